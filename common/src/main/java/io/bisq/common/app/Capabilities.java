@@ -10,16 +10,19 @@ public class Capabilities {
     // We don't use the Enum in any serialized data, as changes in the enum would break backwards compatibility. We use the ordinal integer instead.
     // Sequence in the enum must not be changed (append only).
     public enum Capability {
-        TRADE_STATISTICS
+        TRADE_STATISTICS,
+        GET_DATA_BLOOM_FILTER,
+        BULK_REFRESH_OFFER_MESSAGE
     }
 
     public static void setCapabilities(ArrayList<Integer> capabilities) {
         Capabilities.capabilities = capabilities;
     }
 
-    @SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
     private static ArrayList<Integer> capabilities = new ArrayList<>(Arrays.asList(
-            Capability.TRADE_STATISTICS.ordinal()
+            Capability.TRADE_STATISTICS.ordinal(),
+            Capability.GET_DATA_BLOOM_FILTER.ordinal(),
+            Capability.BULK_REFRESH_OFFER_MESSAGE.ordinal()
     ));
 
     /**
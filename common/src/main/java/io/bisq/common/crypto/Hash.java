@@ -30,20 +30,27 @@ import java.security.NoSuchProviderException;
 public class Hash {
     private static final Logger log = LoggerFactory.getLogger(Hash.class);
 
-    /**
-     * @param data Data as byte array
-     * @return Hash of data
-     */
-    public static byte[] getHash(byte[] data) {
+    // MessageDigest.getInstance is expensive (provider lookup) and a MessageDigest is not thread safe, so we keep
+    // one instance per thread.
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256", "BC");
-            digest.update(data, 0, data.length);
-            return digest.digest();
+            return MessageDigest.getInstance("SHA-256", "BC");
         } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
             log.error("Could not create MessageDigest for hash. " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException(e);
         }
+    });
+
+    /**
+     * @param data Data as byte array
+     * @return Hash of data
+     */
+    public static byte[] getHash(byte[] data) {
+        MessageDigest digest = SHA256_DIGEST.get();
+        digest.reset();
+        digest.update(data, 0, data.length);
+        return digest.digest();
     }
 
     /**
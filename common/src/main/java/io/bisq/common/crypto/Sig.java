@@ -41,6 +41,17 @@ public class Sig {
     public static final String KEY_ALGO = "DSA";
     private static final String ALGO = "SHA256withDSA";
 
+    // The provider lookup at Signature.getInstance is expensive, so we keep one instance per thread.
+    // initSign/initVerify reset the state of the instance.
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(ALGO, "BC");
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+            log.error("Could not create Signature. " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    });
+
 
     /**
      * @return keyPair
@@ -71,11 +82,11 @@ public class Sig {
      */
     public static byte[] sign(PrivateKey privateKey, byte[] data) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO, "BC");
+            Signature sig = SIGNATURE.get();
             sig.initSign(privateKey);
             sig.update(data);
             return sig.sign();
-        } catch (SignatureException | NoSuchProviderException | InvalidKeyException | NoSuchAlgorithmException e) {
+        } catch (SignatureException | InvalidKeyException | RuntimeException e) {
             throw new CryptoException("Signing failed. " + e.getMessage());
         }
     }
@@ -104,11 +115,11 @@ public class Sig {
      */
     public static boolean verify(PublicKey publicKey, byte[] data, byte[] signature) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO, "BC");
+            Signature sig = SIGNATURE.get();
             sig.initVerify(publicKey);
             sig.update(data);
             return sig.verify(signature);
-        } catch (SignatureException | NoSuchProviderException | InvalidKeyException | NoSuchAlgorithmException e) {
+        } catch (SignatureException | InvalidKeyException | RuntimeException e) {
             throw new CryptoException("Signature verification failed. " + e.getMessage());
         }
     }
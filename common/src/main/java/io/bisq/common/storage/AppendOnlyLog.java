@@ -0,0 +1,236 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.common.io.CountingInputStream;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.util.Utilities;
+import io.bisq.generated.protobuffer.PB;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append only log of changes to a persisted object (usually a map) which is too large to be written completely
+ * at each change.
+ * <p/>
+ * The full object (snapshot) is stored in the usual file (fileName) and read with Storage. Changes are appended as
+ * delimited PB.PersistableEnvelope records of the same type to fileName.log and are replayed by the owner on top of
+ * the snapshot at startup. At compaction we write a new snapshot and clear the log.
+ * <p/>
+ * Records are written in the order of the append calls on a background thread. We do not sync each record to disk,
+ * syncs are bundled with a short delay. A record which was not completely written when the app crashed is ignored
+ * at the next read.
+ */
+@Slf4j
+public class AppendOnlyLog<T extends PersistableEnvelope> {
+    private static final long SYNC_DELAY_MS = 500;
+
+    private final File dir;
+    private final File storageFile;
+    private final File logFile;
+    private final PersistenceProtoResolver persistenceProtoResolver;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+    private final AtomicInteger numRecords = new AtomicInteger();
+    // Number of backups of the snapshot we keep at compaction, 0 for none
+    private volatile int numMaxBackupFiles;
+
+    // Only accessed from the executor
+    private FileOutputStream outputStream;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public AppendOnlyLog(File dir, String fileName, PersistenceProtoResolver persistenceProtoResolver) {
+        this.dir = dir;
+        this.storageFile = new File(dir, fileName);
+        this.logFile = new File(dir, fileName + ".log");
+        this.persistenceProtoResolver = persistenceProtoResolver;
+
+        // One thread only as the order of writes matters
+        executor = Utilities.getScheduledThreadPoolExecutor("AppendOnlyLog-" + fileName, 1, 1, 10);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Reads all records of the log. Needs to be called before any append.
+    @SuppressWarnings("unchecked")
+    public List<T> read() {
+        List<T> records = new ArrayList<>();
+        if (!logFile.exists())
+            return records;
+
+        long now = System.currentTimeMillis();
+        long validLength = 0;
+        try (CountingInputStream inputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            PB.PersistableEnvelope proto;
+            while ((proto = PB.PersistableEnvelope.parseDelimitedFrom(inputStream)) != null) {
+                records.add((T) persistenceProtoResolver.fromProto(proto));
+                validLength = inputStream.getCount();
+            }
+        } catch (Throwable t) {
+            log.warn("Could not read record of {} at position {}. We ignore the remaining data. {}",
+                    logFile.getName(), validLength, t.getMessage());
+            truncate(validLength);
+        }
+        numRecords.set(records.size());
+        log.info("Read {} records from {} in {} ms", records.size(), logFile.getName(), System.currentTimeMillis() - now);
+        return records;
+    }
+
+    // The record gets serialized on the calling thread, so later changes of the object don't affect the record.
+    public void append(T record) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            record.toProtoMessage().writeDelimitedTo(byteArrayOutputStream);
+            bytes = byteArrayOutputStream.toByteArray();
+        } catch (IOException e) {
+            log.error("Could not serialize record for " + logFile.getName(), e);
+            return;
+        }
+
+        numRecords.incrementAndGet();
+        executor.execute(() -> write(bytes));
+        if (syncPending.compareAndSet(false, true))
+            executor.schedule(this::sync, SYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public int getNumRecords() {
+        return numRecords.get();
+    }
+
+    public void setNumMaxBackupFiles(int numMaxBackupFiles) {
+        this.numMaxBackupFiles = numMaxBackupFiles;
+    }
+
+    // The snapshot must contain all changes of the records appended so far. As writes are executed in order,
+    // the log is only cleared after the earlier records have been written and not before the new snapshot has
+    // been stored completely.
+    public void compact(T snapshot) {
+        numRecords.set(0);
+        executor.execute(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                if (numMaxBackupFiles > 0)
+                    FileUtil.rollingBackup(dir, storageFile.getName(), numMaxBackupFiles);
+                writeSnapshot(snapshot);
+                closeOutputStream();
+                truncate(0);
+                log.info("Compaction of {} completed in {} ms", storageFile.getName(), System.currentTimeMillis() - now);
+            } catch (Throwable t) {
+                // We keep the log, so no data is lost
+                log.error("Compaction of " + storageFile.getName() + " failed", t);
+            }
+        });
+    }
+
+    public void shutDown() {
+        executor.execute(() -> {
+            sync();
+            closeOutputStream();
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void write(byte[] bytes) {
+        try {
+            if (outputStream == null) {
+                if (!dir.exists() && !dir.mkdir())
+                    log.warn("make dir failed");
+                outputStream = new FileOutputStream(logFile, true);
+            }
+            outputStream.write(bytes);
+        } catch (Throwable t) {
+            log.error("Error at writing record to " + logFile.getName(), t);
+            closeOutputStream();
+        }
+    }
+
+    private void sync() {
+        syncPending.set(false);
+        try {
+            if (outputStream != null) {
+                outputStream.flush();
+                outputStream.getFD().sync();
+            }
+        } catch (Throwable t) {
+            log.error("Error at syncing " + logFile.getName(), t);
+        }
+    }
+
+    private void writeSnapshot(T snapshot) throws IOException {
+        PB.PersistableEnvelope proto = (PB.PersistableEnvelope) snapshot.toProtoMessage();
+        File tempFile = File.createTempFile("temp", null, dir);
+        try {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile)) {
+                proto.writeDelimitedTo(fileOutputStream);
+                fileOutputStream.flush();
+                fileOutputStream.getFD().sync();
+            }
+            FileUtil.renameFile(tempFile, storageFile);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete())
+                log.error("Cannot delete temp file.");
+        }
+    }
+
+    private void truncate(long length) {
+        try (FileChannel channel = new RandomAccessFile(logFile, "rw").getChannel()) {
+            channel.truncate(length);
+            channel.force(true);
+        } catch (IOException e) {
+            log.error("Could not truncate " + logFile.getName(), e);
+        }
+    }
+
+    private void closeOutputStream() {
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                log.debug("Could not close " + logFile.getName() + ". " + e.getMessage());
+            }
+            outputStream = null;
+        }
+    }
+}
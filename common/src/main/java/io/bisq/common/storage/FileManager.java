@@ -36,6 +36,10 @@ import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 public class FileManager<T extends PersistableEnvelope> {
+    public interface StreamReader<R> {
+        R read(InputStream inputStream) throws IOException;
+    }
+
     private final File dir;
     private final File storageFile;
     private final ScheduledThreadPoolExecutor executor;
@@ -123,6 +127,20 @@ public class FileManager<T extends PersistableEnvelope> {
         }
     }
 
+    // Passes the stream of the file to the streamReader instead of parsing the proto, used for large files which
+    // the caller reads entry by entry
+    public synchronized <R> R read(File file, StreamReader<R> streamReader) {
+        log.debug("Read stream from disc: {}", file.getName());
+
+        try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            return streamReader.read(inputStream);
+        } catch (Throwable t) {
+            String errorMsg = "Exception at stream read: " + t.getMessage() + " file:" + file.getAbsolutePath();
+            log.error(errorMsg, t);
+            throw new RuntimeException(errorMsg);
+        }
+    }
+
     public synchronized void removeFile(String fileName) {
         log.debug("removeFile" + fileName);
         File file = new File(dir, fileName);
@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import javax.inject.Named;
 import java.io.File;
 import java.io.IOException;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -85,6 +86,22 @@ public class Storage<T extends PersistableEnvelope> {
         return getPersisted();
     }
 
+    /**
+     * Like initAndGetPersistedWithFileName but the file is read by the streamReader instead of being parsed as a
+     * whole. Used for large files which the caller reads entry by entry. Exceptions thrown by the streamReader are
+     * handled like a corrupted file.
+     *
+     * @return null if there was no valid file
+     */
+    @Nullable
+    public <R> R initAndReadPersistedWithFileName(String fileName, FileManager.StreamReader<R> streamReader) {
+        this.fileName = fileName;
+        storageFile = new File(dir, fileName);
+        fileManager = new FileManager<>(dir, storageFile, 300, persistenceProtoResolver);
+
+        return getPersisted(file -> fileManager.read(file, streamReader));
+    }
+
     @Nullable
     public T initAndGetPersisted(T persistable) {
         return initAndGetPersisted(persistable, persistable.getClass().getSimpleName());
@@ -148,10 +165,15 @@ public class Storage<T extends PersistableEnvelope> {
     // Data are small and read is done only at startup, so it is no performance issue.
     @Nullable
     private T getPersisted() {
+        return getPersisted(fileManager::read);
+    }
+
+    @Nullable
+    private <R> R getPersisted(Function<File, R> reader) {
         if (storageFile.exists()) {
             long now = System.currentTimeMillis();
             try {
-                T persistedObject = fileManager.read(storageFile);
+                R persistedObject = reader.apply(storageFile);
                 log.trace("Read {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
                 // If we did not get any exception we can be sure the data are consistent so we make a backup
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.protobuf.Message;
+import io.bisq.common.Payload;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AppendOnlyLogTest {
+    private static final String FILE_NAME = "TestRecords";
+
+    // Uses the NavigationPath proto as container for a string
+    private static class TestRecord implements PersistableEnvelope {
+        private final String value;
+
+        TestRecord(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public Message toProtoMessage() {
+            return PB.PersistableEnvelope.newBuilder()
+                    .setNavigationPath(PB.NavigationPath.newBuilder().addPath(value))
+                    .build();
+        }
+    }
+
+    private static final PersistenceProtoResolver RESOLVER = new PersistenceProtoResolver() {
+        @Override
+        public PersistableEnvelope fromProto(PB.PersistableEnvelope proto) {
+            return new TestRecord(proto.getNavigationPath().getPath(0));
+        }
+
+        @Override
+        public Payload fromProto(PB.PaymentAccountPayload proto) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dir;
+    private File logFile;
+
+    @Before
+    public void setUp() {
+        dir = temporaryFolder.getRoot();
+        logFile = new File(dir, FILE_NAME + ".log");
+    }
+
+    @Test
+    public void testAppendAndRead() {
+        AppendOnlyLog<TestRecord> appendOnlyLog = createLog();
+        assertTrue(appendOnlyLog.read().isEmpty());
+        appendAll(appendOnlyLog, "a", "b", "c");
+        assertEquals(3, appendOnlyLog.getNumRecords());
+        appendOnlyLog.shutDown();
+
+        AppendOnlyLog<TestRecord> reopened = createLog();
+        assertEquals(Arrays.asList("a", "b", "c"), toValues(reopened.read()));
+        assertEquals(3, reopened.getNumRecords());
+        reopened.shutDown();
+    }
+
+    @Test
+    public void testIncompleteTailIsTruncated() throws IOException {
+        AppendOnlyLog<TestRecord> appendOnlyLog = createLog();
+        appendOnlyLog.read();
+        appendAll(appendOnlyLog, "a", "b");
+        appendOnlyLog.shutDown();
+        long validLength = logFile.length();
+
+        // We simulate a crash while writing a record by appending only the first bytes of it
+        byte[] record = toBytes(new TestRecord("incomplete record"));
+        try (FileOutputStream outputStream = new FileOutputStream(logFile, true)) {
+            outputStream.write(record, 0, record.length - 3);
+        }
+
+        AppendOnlyLog<TestRecord> reopened = createLog();
+        assertEquals(Arrays.asList("a", "b"), toValues(reopened.read()));
+        assertEquals(validLength, logFile.length());
+
+        // New records are appended after the last valid one
+        appendAll(reopened, "c");
+        reopened.shutDown();
+        AppendOnlyLog<TestRecord> reopenedAgain = createLog();
+        assertEquals(Arrays.asList("a", "b", "c"), toValues(reopenedAgain.read()));
+        reopenedAgain.shutDown();
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        AppendOnlyLog<TestRecord> appendOnlyLog = createLog();
+        appendOnlyLog.read();
+        appendAll(appendOnlyLog, "a", "b");
+        appendOnlyLog.compact(new TestRecord("snapshot"));
+        assertEquals(0, appendOnlyLog.getNumRecords());
+        appendAll(appendOnlyLog, "c");
+        appendOnlyLog.shutDown();
+
+        File storageFile = new File(dir, FILE_NAME);
+        assertTrue(storageFile.exists());
+        try (FileInputStream inputStream = new FileInputStream(storageFile)) {
+            PB.PersistableEnvelope proto = PB.PersistableEnvelope.parseDelimitedFrom(inputStream);
+            assertEquals("snapshot", proto.getNavigationPath().getPath(0));
+        }
+
+        // Only the record appended after the compaction is left in the log
+        AppendOnlyLog<TestRecord> reopened = createLog();
+        assertEquals(Arrays.asList("c"), toValues(reopened.read()));
+        reopened.shutDown();
+    }
+
+    private AppendOnlyLog<TestRecord> createLog() {
+        return new AppendOnlyLog<>(dir, FILE_NAME, RESOLVER);
+    }
+
+    private static void appendAll(AppendOnlyLog<TestRecord> appendOnlyLog, String... values) {
+        for (String value : values)
+            appendOnlyLog.append(new TestRecord(value));
+    }
+
+    private static List<String> toValues(List<TestRecord> records) {
+        return records.stream().map(record -> record.value).collect(Collectors.toList());
+    }
+
+    private static byte[] toBytes(TestRecord record) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        record.toProtoMessage().writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -95,6 +95,10 @@ public abstract class BisqExecutable {
                 description("Use localhost P2P network for development", false))
                 .withRequiredArg()
                 .ofType(boolean.class);
+        parser.accepts(NetworkOptionKeys.USE_NIO_TRANSPORT,
+                description("Use a selector based transport for P2P connections instead of a thread per connection", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
         parser.accepts(NetworkOptionKeys.MAX_CONNECTIONS,
                 description("Max. connections a peer will try to keep", P2PService.MAX_CONNECTIONS_DEFAULT))
                 .withRequiredArg()
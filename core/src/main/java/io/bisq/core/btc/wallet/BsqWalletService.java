@@ -35,18 +35,16 @@ import org.bitcoinj.script.Script;
 import org.bitcoinj.wallet.CoinSelection;
 import org.bitcoinj.wallet.SendRequest;
 import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
 import org.bitcoinj.wallet.listeners.AbstractWalletEventListener;
 
 import javax.inject.Inject;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.bitcoinj.core.TransactionConfidence.ConfidenceType.DEAD;
 import static org.bitcoinj.core.TransactionConfidence.ConfidenceType.PENDING;
 
 @Slf4j
@@ -55,6 +53,16 @@ public class BsqWalletService extends WalletService {
     private final BsqChainState bsqChainState;
     private final ObservableList<Transaction> walletTransactions = FXCollections.observableArrayList();
     private final CopyOnWriteArraySet<BsqBalanceListener> bsqBalanceListeners = new CopyOnWriteArraySet<>();
+    // The wallet transactions partitioned by their BSQ state. Updated at wallet events and new BSQ blocks for the
+    // affected transactions only, and for all transactions if the BSQ chain state got rolled back.
+    // Only accessed from the UserThread.
+    private final Map<String, Transaction> walletTransactionsById = new HashMap<>();
+    // Not pending and not found in the BSQ chain state
+    private final Map<String, Transaction> unverifiedBsqTransactionsById = new HashMap<>();
+    // Value of our outputs of pending transactions
+    private final Map<String, Coin> pendingValueByTxId = new HashMap<>();
+    // Chain head height of the BSQ chain state at the last change, used to detect a rollback
+    private int lastChainHeadHeight = -1;
     private Coin availableBsqBalance = Coin.ZERO;
     private Coin unverifiedBalance = Coin.ZERO;
 
@@ -83,17 +91,18 @@ public class BsqWalletService extends WalletService {
                 if (wallet != null) {
                     wallet.setCoinSelector(bsqCoinSelector);
                     wallet.addEventListener(walletEventListener);
+                    updateBsqWalletTransactions();
 
                     //noinspection deprecation
                     wallet.addEventListener(new AbstractWalletEventListener() {
                         @Override
                         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
-                            //TODO do we need updateWalletBsqTransactions(); here?
+                            onBsqWalletTransaction(tx);
                         }
 
                         @Override
                         public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
-                            //TODO do we need updateWalletBsqTransactions(); here?
+                            onBsqWalletTransaction(tx);
                         }
 
                         @Override
@@ -104,6 +113,7 @@ public class BsqWalletService extends WalletService {
 
                         @Override
                         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+                            onBsqWalletTransaction(tx);
                         }
 
                         @Override
@@ -118,7 +128,12 @@ public class BsqWalletService extends WalletService {
 
                         @Override
                         public void onWalletChanged(Wallet wallet) {
-                            updateBsqWalletTransactions();
+                            // Transactions are handled at the events above. We only do a full update if we
+                            // have missed a change of the wallet transactions.
+                            if (getNumWalletTransactions() != walletTransactionsById.size())
+                                updateBsqWalletTransactions();
+                            else
+                                updateBsqBalance();
                         }
 
                     });
@@ -126,7 +141,16 @@ public class BsqWalletService extends WalletService {
             });
 
             bsqBlockchainManager.addBsqChainStateListener(() -> {
-                updateBsqWalletTransactions();
+                int chainHeadHeight = bsqChainState.getChainHeadHeight();
+                if (chainHeadHeight > lastChainHeadHeight) {
+                    // Only the transactions not found in the BSQ chain state so far can get verified by a new block
+                    new ArrayList<>(unverifiedBsqTransactionsById.values()).forEach(this::updateBsqState);
+                } else {
+                    // The chain state was rolled back to a snapshot (reorg), so transactions verified before might
+                    // not be in the chain state anymore.
+                    new ArrayList<>(walletTransactionsById.values()).forEach(this::updateBsqState);
+                }
+                lastChainHeadHeight = chainHeadHeight;
                 updateBsqBalance();
             });
         }
@@ -153,15 +177,8 @@ public class BsqWalletService extends WalletService {
         availableBsqBalance = bsqCoinSelector.select(NetworkParameters.MAX_MONEY,
                 wallet.calculateAllSpendCandidates()).valueGathered;
 
-        unverifiedBalance = Coin.valueOf(getTransactions(false).stream()
-                .flatMap(tx -> tx.getOutputs().stream())
-                .filter(out -> {
-                    final Transaction parentTx = out.getParentTransaction();
-                    return parentTx != null &&
-                            out.isMine(wallet) &&
-                            parentTx.getConfidence().getConfidenceType() == PENDING;
-                })
-                .mapToLong(out -> out.getValue().value).sum());
+        unverifiedBalance = Coin.valueOf(pendingValueByTxId.values().stream()
+                .mapToLong(value -> value.value).sum());
 
         bsqBalanceListeners.stream().forEach(e -> e.updateAvailableBalance(availableBsqBalance, unverifiedBalance));
     }
@@ -192,43 +209,67 @@ public class BsqWalletService extends WalletService {
         return walletTransactions;
     }
 
+    public Set<Transaction> getUnverifiedBsqTransactions() {
+        return new HashSet<>(unverifiedBsqTransactionsById.values());
+    }
+
+    // Full update, used at startup and when the set of wallet transactions might have changed without an event
+    // for the transactions (reorg, new keys or scripts).
     private void updateBsqWalletTransactions() {
-        walletTransactions.setAll(getTransactions(false));
-        // walletTransactions.setAll(getBsqWalletTransactions());
+        walletTransactionsById.clear();
+        unverifiedBsqTransactionsById.clear();
+        pendingValueByTxId.clear();
+        Set<Transaction> transactions = getTransactions(false);
+        transactions.forEach(tx -> {
+            walletTransactionsById.put(tx.getHashAsString(), tx);
+            updateBsqState(tx);
+        });
+        walletTransactions.setAll(transactions);
         updateBsqBalance();
     }
 
-    private Set<Transaction> getBsqWalletTransactions() {
-        return getTransactions(false).stream()
-                .filter(transaction -> transaction.getConfidence().getConfidenceType() == PENDING ||
-                        bsqChainState.containsTx(transaction.getHashAsString()))
-                .collect(Collectors.toSet());
+    private void onBsqWalletTransaction(Transaction tx) {
+        String txId = tx.getHashAsString();
+        if (tx.getConfidence().getConfidenceType() == DEAD) {
+            // getTransactions(false) does not contain dead transactions
+            if (walletTransactionsById.remove(txId) != null)
+                walletTransactions.remove(tx);
+            unverifiedBsqTransactionsById.remove(txId);
+            pendingValueByTxId.remove(txId);
+        } else {
+            if (walletTransactionsById.put(txId, tx) == null)
+                walletTransactions.add(tx);
+            updateBsqState(tx);
+        }
+        updateBsqBalance();
     }
 
-    public Set<Transaction> getUnverifiedBsqTransactions() {
-        Set<Transaction> bsqWalletTransactions = getBsqWalletTransactions();
-        Set<Transaction> walletTxs = getTransactions(false).stream().collect(Collectors.toSet());
-        checkArgument(walletTxs.size() >= bsqWalletTransactions.size(),
-                "We cannot have more txsWithOutputsFoundInBsqTxo than walletTxs");
-        if (walletTxs.size() == bsqWalletTransactions.size()) {
-            // As expected
-            return new HashSet<>();
+    // Pending transactions count for the unverified balance. Confirmed transactions are unverified until the
+    // BSQ parser has found them.
+    private void updateBsqState(Transaction tx) {
+        String txId = tx.getHashAsString();
+        if (tx.getConfidence().getConfidenceType() == PENDING) {
+            unverifiedBsqTransactionsById.remove(txId);
+            pendingValueByTxId.put(txId, Coin.valueOf(tx.getOutputs().stream()
+                    .filter(out -> out.isMine(wallet))
+                    .mapToLong(out -> out.getValue().value)
+                    .sum()));
         } else {
-            Map<String, Transaction> map = walletTxs.stream()
-                    .collect(Collectors.toMap(Transaction::getHashAsString, Function.identity()));
-
-            Set<String> walletTxIds = walletTxs.stream()
-                    .map(Transaction::getHashAsString).collect(Collectors.toSet());
-            Set<String> bsqTxIds = bsqWalletTransactions.stream()
-                    .map(Transaction::getHashAsString).collect(Collectors.toSet());
-
-            walletTxIds.stream()
-                    .filter(bsqTxIds::contains)
-                    .forEach(map::remove);
-            return new HashSet<>(map.values());
+            pendingValueByTxId.remove(txId);
+            if (bsqChainState.containsTx(txId))
+                unverifiedBsqTransactionsById.remove(txId);
+            else
+                unverifiedBsqTransactionsById.put(txId, tx);
         }
     }
 
+    // Same set of transactions as getTransactions(false) without copying them
+    private int getNumWalletTransactions() {
+        return wallet.getTransactionPool(WalletTransaction.Pool.UNSPENT).size() +
+                wallet.getTransactionPool(WalletTransaction.Pool.SPENT).size() +
+                wallet.getTransactionPool(WalletTransaction.Pool.PENDING).size();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Sign tx 
@@ -0,0 +1,182 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.btc.wallet;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Index of the wallet transactions by tx id and by address, so balances, confidences and the number of outputs
+ * of an address can be looked up without iterating over all transactions of the wallet.
+ * <p/>
+ * Transactions are added at the wallet events and removed when they become dead. As events are delivered with a
+ * delay we compare the number of transactions in the wallet with the indexed ones at each lookup and rebuild the
+ * index if they differ. At a reorg we rebuild the index as well.
+ * <p/>
+ * The balances per address depend on the spend candidates of the wallet, which might change with any wallet event.
+ * We calculate them for all addresses at the first lookup after a change.
+ * <p/>
+ * Accessed from the UserThread and the bitcoinj user thread, so all methods are synchronized.
+ */
+class WalletIndex {
+    private static final Set<Transaction> NO_TRANSACTIONS = Collections.emptySet();
+
+    @Nullable
+    private Wallet indexedWallet;
+    private final Map<String, Transaction> transactionsById = new HashMap<>();
+    // Transactions with outputs to the address or spending outputs of the address
+    private final Map<Address, Set<Transaction>> transactionsByAddress = new HashMap<>();
+    private final Map<Address, Integer> numOutputsByAddress = new HashMap<>();
+    @Nullable
+    private Map<Address, Coin> balanceByAddress;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Updates
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized void onTransaction(Wallet wallet, Transaction tx) {
+        // If we have not built the index yet, it gets built at the next lookup
+        if (wallet == indexedWallet) {
+            // Dead transactions are not part of wallet.getTransactions(false)
+            if (tx.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD)
+                removeTransaction(tx);
+            else
+                addTransaction(tx);
+        }
+        balanceByAddress = null;
+    }
+
+    synchronized void onWalletChanged() {
+        balanceByAddress = null;
+    }
+
+    synchronized void reset() {
+        indexedWallet = null;
+        balanceByAddress = null;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Lookups
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Nullable
+    synchronized Transaction getTransaction(Wallet wallet, String txId) {
+        update(wallet);
+        return transactionsById.get(txId);
+    }
+
+    synchronized Set<Transaction> getTransactions(Wallet wallet, Address address) {
+        update(wallet);
+        return new HashSet<>(transactionsByAddress.getOrDefault(address, NO_TRANSACTIONS));
+    }
+
+    synchronized int getNumOutputs(Wallet wallet, Address address) {
+        update(wallet);
+        return numOutputsByAddress.getOrDefault(address, 0);
+    }
+
+    synchronized Coin getBalance(Wallet wallet, Address address) {
+        update(wallet);
+        if (balanceByAddress == null) {
+            balanceByAddress = new HashMap<>();
+            for (TransactionOutput output : wallet.calculateAllSpendCandidates()) {
+                Address outputAddress = WalletService.getAddressFromOutput(output);
+                if (outputAddress != null)
+                    balanceByAddress.merge(outputAddress, output.getValue(), Coin::add);
+            }
+        }
+        return balanceByAddress.getOrDefault(address, Coin.ZERO);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void update(Wallet wallet) {
+        if (wallet != indexedWallet || getNumTransactions(wallet) != transactionsById.size()) {
+            transactionsById.clear();
+            transactionsByAddress.clear();
+            numOutputsByAddress.clear();
+            balanceByAddress = null;
+            wallet.getTransactions(false).forEach(this::addTransaction);
+            indexedWallet = wallet;
+        }
+    }
+
+    // Same set of transactions as wallet.getTransactions(false) without copying them
+    private static int getNumTransactions(Wallet wallet) {
+        return wallet.getTransactionPool(WalletTransaction.Pool.UNSPENT).size() +
+                wallet.getTransactionPool(WalletTransaction.Pool.SPENT).size() +
+                wallet.getTransactionPool(WalletTransaction.Pool.PENDING).size();
+    }
+
+    // Can be called repeatedly for the same transaction, e.g. at each confidence change. The outputs are only
+    // counted when the transaction is added the first time, but inputs might have been connected in the meantime.
+    private void addTransaction(Transaction tx) {
+        if (transactionsById.put(tx.getHashAsString(), tx) == null) {
+            for (TransactionOutput output : tx.getOutputs()) {
+                Address address = WalletService.getAddressFromOutput(output);
+                if (address != null)
+                    numOutputsByAddress.merge(address, 1, Integer::sum);
+            }
+        }
+
+        List<TransactionOutput> outputs = new ArrayList<>(tx.getOutputs());
+        for (TransactionInput input : tx.getInputs()) {
+            if (input.getConnectedOutput() != null)
+                outputs.add(input.getConnectedOutput());
+        }
+        for (TransactionOutput output : outputs) {
+            Address address = WalletService.getAddressFromOutput(output);
+            if (address != null)
+                transactionsByAddress.computeIfAbsent(address, key -> new HashSet<>()).add(tx);
+        }
+    }
+
+    private void removeTransaction(Transaction tx) {
+        if (transactionsById.remove(tx.getHashAsString()) == null)
+            return;
+
+        for (TransactionOutput output : tx.getOutputs()) {
+            Address address = WalletService.getAddressFromOutput(output);
+            if (address != null)
+                numOutputsByAddress.computeIfPresent(address, (key, numOutputs) -> numOutputs > 1 ? numOutputs - 1 : null);
+        }
+
+        // The inputs of a dead transaction might have been disconnected already, so we don't know all the
+        // addresses it was indexed for.
+        Iterator<Set<Transaction>> iterator = transactionsByAddress.values().iterator();
+        while (iterator.hasNext()) {
+            Set<Transaction> transactions = iterator.next();
+            if (transactions.remove(tx) && transactions.isEmpty())
+                iterator.remove();
+        }
+    }
+}
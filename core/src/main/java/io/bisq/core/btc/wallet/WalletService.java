@@ -73,6 +73,7 @@ public abstract class WalletService {
     protected final CopyOnWriteArraySet<AddressConfidenceListener> addressConfidenceListeners = new CopyOnWriteArraySet<>();
     protected final CopyOnWriteArraySet<TxConfidenceListener> txConfidenceListeners = new CopyOnWriteArraySet<>();
     protected final CopyOnWriteArraySet<BalanceListener> balanceListeners = new CopyOnWriteArraySet<>();
+    private final WalletIndex walletIndex = new WalletIndex();
     protected Wallet wallet;
     protected KeyParameter aesKey;
 
@@ -295,12 +296,11 @@ public abstract class WalletService {
     @Nullable
     public TransactionConfidence getConfidenceForAddress(Address address) {
         List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-        if (wallet != null) {
-            Set<Transaction> transactions = wallet.getTransactions(false);
-            if (transactions != null) {
-                transactionConfidenceList.addAll(transactions.stream().map(tx ->
-                        getTransactionConfidence(tx, address)).collect(Collectors.toList()));
-            }
+        if (wallet != null && address != null) {
+            // Only the transactions with outputs to or from the address
+            transactionConfidenceList.addAll(walletIndex.getTransactions(wallet, address).stream()
+                    .map(Transaction::getConfidence)
+                    .collect(Collectors.toList()));
         }
         return getMostRecentConfidence(transactionConfidenceList);
     }
@@ -308,11 +308,9 @@ public abstract class WalletService {
     @Nullable
     public TransactionConfidence getConfidenceForTxId(String txId) {
         if (wallet != null) {
-            Set<Transaction> transactions = wallet.getTransactions(false);
-            for (Transaction tx : transactions) {
-                if (tx.getHashAsString().equals(txId))
-                    return tx.getConfidence();
-            }
+            Transaction tx = walletIndex.getTransaction(wallet, txId);
+            if (tx != null)
+                return tx.getConfidence();
         }
         return null;
     }
@@ -380,7 +378,7 @@ public abstract class WalletService {
     }
 
     public Coin getBalanceForAddress(Address address) {
-        return wallet != null ? getBalance(wallet.calculateAllSpendCandidates(), address) : Coin.ZERO;
+        return wallet != null && address != null ? walletIndex.getBalance(wallet, address) : Coin.ZERO;
     }
 
     protected Coin getBalance(List<TransactionOutput> transactionOutputs, Address address) {
@@ -399,16 +397,7 @@ public abstract class WalletService {
     }
 
     public int getNumTxOutputsForAddress(Address address) {
-        List<TransactionOutput> transactionOutputs = new ArrayList<>();
-        wallet.getTransactions(false).stream().forEach(t -> transactionOutputs.addAll(t.getOutputs()));
-        int outputs = 0;
-        for (TransactionOutput output : transactionOutputs) {
-            if (isOutputScriptConvertibleToAddress(output) &&
-                    address != null &&
-                    address.equals(getAddressFromOutput(output)))
-                outputs++;
-        }
-        return outputs;
+        return wallet != null && address != null ? walletIndex.getNumOutputs(wallet, address) : 0;
     }
 
     Coin getTxFeeForWithdrawalPerByte() {
@@ -612,23 +601,34 @@ public abstract class WalletService {
 
     @SuppressWarnings("deprecation")
     public class BisqWalletListener extends AbstractWalletEventListener {
+        // We update the walletIndex before we notify the listeners, as they might look up balances or confidences.
+
         @Override
         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            walletIndex.onTransaction(wallet, tx);
             notifyBalanceListeners(tx);
         }
 
         @Override
         public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            walletIndex.onTransaction(wallet, tx);
             notifyBalanceListeners(tx);
         }
 
         @Override
         public void onReorganize(Wallet wallet) {
             log.warn("onReorganize ");
+            walletIndex.reset();
+        }
+
+        @Override
+        public void onWalletChanged(Wallet wallet) {
+            walletIndex.onWalletChanged();
         }
 
         @Override
         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+            walletIndex.onTransaction(wallet, tx);
             for (AddressConfidenceListener addressConfidenceListener : addressConfidenceListeners) {
                 List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
                 transactionConfidenceList.add(getTransactionConfidence(tx, addressConfidenceListener.getAddress()));
@@ -201,7 +201,7 @@ public class BsqFullNode extends BsqNode {
     @Override
     protected void onNewBsqBlock(BsqBlock bsqBlock) {
         super.onNewBsqBlock(bsqBlock);
-        jsonChainStateExporter.maybeExport();
+        jsonChainStateExporter.maybeExport(bsqBlock);
         if (parseBlockchainComplete && p2pNetworkReady && requestBlocksManager != null)
             requestBlocksManager.publishNewBlock(bsqBlock);
     }
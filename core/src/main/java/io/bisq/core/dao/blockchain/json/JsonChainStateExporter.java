@@ -17,10 +17,7 @@
 
 package io.bisq.core.dao.blockchain.json;
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.gson.Gson;
 import com.google.inject.Inject;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.common.storage.JsonFileManager;
@@ -28,28 +25,51 @@ import io.bisq.common.storage.Storage;
 import io.bisq.common.util.Utilities;
 import io.bisq.core.dao.DaoOptionKeys;
 import io.bisq.core.dao.blockchain.parse.BsqChainState;
+import io.bisq.core.dao.blockchain.vo.BsqBlock;
 import io.bisq.core.dao.blockchain.vo.Tx;
 import io.bisq.core.dao.blockchain.vo.TxOutput;
 import io.bisq.core.dao.blockchain.vo.TxType;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.Utils;
-import org.jetbrains.annotations.NotNull;
 
 import javax.inject.Named;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+/**
+ * Exports the BSQ chain data as JSON files. At the first block we export all txs, after that only the txs changed
+ * by the new block (its own txs and the txs with outputs spent by it). The changes of each block are appended to
+ * a change log. The aggregated file of the whole chain state is written delayed, so during parsing of many blocks
+ * it is written only once for many blocks.
+ * <p>
+ * At a clean shut down we wait for the pending exports and write a marker file, so at the next start the existing
+ * export is kept and only the changes are exported. Without the marker (e.g. after a crash) we start with a new full
+ * export.
+ */
 @Slf4j
 public class JsonChainStateExporter {
+    private static final long AGGREGATE_EXPORT_DELAY_SEC = 60;
+    private static final long SHUT_DOWN_TIMEOUT_SEC = 10;
+    private static final String FULL_EXPORT_DONE_FILE_NAME = "jsonFullExport.done";
+    private static final Gson GSON = new Gson();
+
     private final boolean dumpBlockchainData;
     private final BsqChainState bsqChainState;
 
-    private final ListeningExecutorService executor = Utilities.getListeningExecutorService("JsonExporter", 1, 1, 1200);
-    private File txDir, txOutputDir, bsqChainStateDir;
+    // Single thread as the order of the exports matters. Unbounded queue as we submit a task for each block.
+    private final ScheduledThreadPoolExecutor executor = Utilities.getScheduledThreadPoolExecutor("JsonExporter", 1, 1, 1200);
+    private final AtomicBoolean aggregateExportScheduled = new AtomicBoolean();
+    private boolean fullExportDone;
+    private File txDir, txOutputDir, bsqChainStateDir, changeLogFile, fullExportDoneFile;
     private JsonFileManager txFileManager, txOutputFileManager, bsqChainStateFileManager;
 
     @Inject
@@ -67,26 +87,38 @@ public class JsonChainStateExporter {
             txDir = new File(Paths.get(storageDir.getAbsolutePath(), "tx").toString());
             txOutputDir = new File(Paths.get(storageDir.getAbsolutePath(), "txo").toString());
             bsqChainStateDir = new File(Paths.get(storageDir.getAbsolutePath(), "all").toString());
-            try {
-                if (txDir.exists())
-                    FileUtil.deleteDirectory(txDir);
-                if (txOutputDir.exists())
-                    FileUtil.deleteDirectory(txOutputDir);
-                if (bsqChainStateDir.exists())
-                    FileUtil.deleteDirectory(bsqChainStateDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            fullExportDoneFile = new File(storageDir, FULL_EXPORT_DONE_FILE_NAME);
 
-            if (!txDir.mkdir())
-                log.warn("make txDir failed.\ntxDir=" + txDir.getAbsolutePath());
+            // The marker is only valid for one start, it gets written again at the next clean shut down
+            fullExportDone = fullExportDoneFile.exists() && txDir.exists() && txOutputDir.exists() && bsqChainStateDir.exists();
+            if (fullExportDoneFile.exists() && !fullExportDoneFile.delete())
+                log.warn("Could not delete " + fullExportDoneFile.getAbsolutePath());
 
-            if (!txOutputDir.mkdir())
-                log.warn("make txOutputDir failed.\ntxOutputDir=" + txOutputDir.getAbsolutePath());
+            if (fullExportDone) {
+                log.info("We keep the existing json export and export only the changes.");
+            } else {
+                try {
+                    if (txDir.exists())
+                        FileUtil.deleteDirectory(txDir);
+                    if (txOutputDir.exists())
+                        FileUtil.deleteDirectory(txOutputDir);
+                    if (bsqChainStateDir.exists())
+                        FileUtil.deleteDirectory(bsqChainStateDir);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+
+                if (!txDir.mkdir())
+                    log.warn("make txDir failed.\ntxDir=" + txDir.getAbsolutePath());
 
-            if (!bsqChainStateDir.mkdir())
-                log.warn("make bsqChainStateDir failed.\nbsqChainStateDir=" + bsqChainStateDir.getAbsolutePath());
+                if (!txOutputDir.mkdir())
+                    log.warn("make txOutputDir failed.\ntxOutputDir=" + txOutputDir.getAbsolutePath());
+
+                if (!bsqChainStateDir.mkdir())
+                    log.warn("make bsqChainStateDir failed.\nbsqChainStateDir=" + bsqChainStateDir.getAbsolutePath());
+            }
 
+            changeLogFile = new File(bsqChainStateDir, "changes.log");
             txFileManager = new JsonFileManager(txDir);
             txOutputFileManager = new JsonFileManager(txOutputDir);
             bsqChainStateFileManager = new JsonFileManager(bsqChainStateDir);
@@ -95,81 +127,141 @@ public class JsonChainStateExporter {
 
     public void shutDown() {
         if (dumpBlockchainData) {
+            // Delayed tasks are dropped at shut down, so we write a scheduled aggregate export now
+            if (aggregateExportScheduled.get())
+                execute(this::exportAggregate);
+
+            // Our tasks write with the file managers, so they must complete before the file managers get shut down
+            executor.shutdown();
+            boolean terminated = false;
+            try {
+                terminated = executor.awaitTermination(SHUT_DOWN_TIMEOUT_SEC, TimeUnit.SECONDS);
+                if (!terminated)
+                    log.warn("Json export did not complete within {} sec.", SHUT_DOWN_TIMEOUT_SEC);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
             txFileManager.shutDown();
             txOutputFileManager.shutDown();
             bsqChainStateFileManager.shutDown();
+
+            if (terminated && fullExportDone) {
+                try {
+                    if (!fullExportDoneFile.createNewFile())
+                        log.warn("Could not create " + fullExportDoneFile.getAbsolutePath());
+                } catch (IOException e) {
+                    log.error("Could not create " + fullExportDoneFile.getAbsolutePath(), e);
+                }
+            }
         }
     }
 
-    public void maybeExport() {
+    public void maybeExport(BsqBlock bsqBlock) {
         if (dumpBlockchainData) {
-            ListenableFuture<Void> future = executor.submit(() -> {
-                final BsqChainState bsqChainStateClone = bsqChainState.getClone();
-                for (Tx tx : bsqChainStateClone.getTxMap().values()) {
-                    String txId = tx.getId();
-                    JsonTxType txType = tx.getTxType() != TxType.UNDEFINED_TX_TYPE ? JsonTxType.valueOf(tx.getTxType().name()) : null;
-                    List<JsonTxOutput> outputs = new ArrayList<>();
-                    tx.getOutputs().stream().forEach(txOutput -> {
-                        final JsonTxOutput outputForJson = new JsonTxOutput(txId,
-                                txOutput.getIndex(),
-                                txOutput.isVerified() ? txOutput.getValue() : 0,
-                                !txOutput.isVerified() ? txOutput.getValue() : 0,
-                                txOutput.getBlockHeight(),
-                                txOutput.isVerified(),
-                                tx.getBurntFee(),
-                                txOutput.getAddress(),
-                                new JsonScriptPubKey(txOutput.getPubKeyScript()),
-                                txOutput.getSpentInfo() != null ?
-                                        new JsonSpentInfo(txOutput.getSpentInfo()) : null,
-                                tx.getTime(),
-                                txType,
-                                txType != null ? txType.getDisplayString() : "",
-                                txOutput.getOpReturnData() != null ? Utils.HEX.encode(txOutput.getOpReturnData()) : null
-                        );
-                        outputs.add(outputForJson);
-                        txOutputFileManager.writeToDisc(Utilities.objectToJson(outputForJson), outputForJson.getId());
-                    });
-
-
-                    List<JsonTxInput> inputs = tx.getInputs().stream()
-                            .map(txInput -> {
-                                final TxOutput connectedTxOutput = txInput.getConnectedTxOutput();
-                                return new JsonTxInput(txInput.getTxOutputIndex(),
-                                        txInput.getTxId(),
-                                        connectedTxOutput != null ? connectedTxOutput.getValue() : 0,
-                                        connectedTxOutput != null && connectedTxOutput.isVerified(),
-                                        connectedTxOutput != null ? connectedTxOutput.getAddress() : null,
-                                        tx.getTime());
-                            })
-                            .collect(Collectors.toList());
-
-                    final JsonTx jsonTx = new JsonTx(txId,
-                            tx.getBlockHeight(),
-                            tx.getBlockHash(),
-                            tx.getTime(),
-                            inputs,
-                            outputs,
-                            txType,
-                            txType != null ? txType.getDisplayString() : "",
-                            tx.getBurntFee());
-
-                    txFileManager.writeToDisc(Utilities.objectToJson(jsonTx), txId);
-                }
+            if (!fullExportDone) {
+                // The txs of the blocks before (e.g. from the snapshot) have not been exported yet
+                fullExportDone = true;
+                final List<Tx> txs = new ArrayList<>(bsqChainState.getClone().getTxMap().values());
+                execute(() -> txs.forEach(this::exportTx));
+            } else {
+                // We copy the changed txs here as they might get changed by the parser while we export
+                final List<Tx> changedTxs = bsqChainState.getTxsChangedByBlock(bsqBlock);
+                execute(() -> {
+                    changedTxs.forEach(this::exportTx);
+                    appendToChangeLog(bsqBlock, changedTxs);
+                });
+            }
 
-                bsqChainStateFileManager.writeToDisc(Utilities.objectToJson(bsqChainStateClone), "bsqChainState");
-                return null;
-            });
+            if (aggregateExportScheduled.compareAndSet(false, true)) {
+                executor.schedule(() -> {
+                    try {
+                        exportAggregate();
+                    } catch (Throwable t) {
+                        log.error(t.toString());
+                        t.printStackTrace();
+                    }
+                }, AGGREGATE_EXPORT_DELAY_SEC, TimeUnit.SECONDS);
+            }
+        }
+    }
 
-            Futures.addCallback(future, new FutureCallback<Void>() {
-                public void onSuccess(Void ignore) {
-                    log.trace("onSuccess");
-                }
+    private void exportAggregate() {
+        aggregateExportScheduled.set(false);
+        bsqChainStateFileManager.writeToDisc(Utilities.objectToJson(bsqChainState.getClone()), "bsqChainState");
+    }
 
-                public void onFailure(@NotNull Throwable throwable) {
-                    log.error(throwable.toString());
-                    throwable.printStackTrace();
-                }
-            });
+    private void execute(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error(t.toString());
+                t.printStackTrace();
+            }
+        });
+    }
+
+    private void exportTx(Tx tx) {
+        String txId = tx.getId();
+        JsonTxType txType = tx.getTxType() != TxType.UNDEFINED_TX_TYPE ? JsonTxType.valueOf(tx.getTxType().name()) : null;
+        List<JsonTxOutput> outputs = new ArrayList<>();
+        tx.getOutputs().stream().forEach(txOutput -> {
+            final JsonTxOutput outputForJson = new JsonTxOutput(txId,
+                    txOutput.getIndex(),
+                    txOutput.isVerified() ? txOutput.getValue() : 0,
+                    !txOutput.isVerified() ? txOutput.getValue() : 0,
+                    txOutput.getBlockHeight(),
+                    txOutput.isVerified(),
+                    tx.getBurntFee(),
+                    txOutput.getAddress(),
+                    new JsonScriptPubKey(txOutput.getPubKeyScript()),
+                    txOutput.getSpentInfo() != null ?
+                            new JsonSpentInfo(txOutput.getSpentInfo()) : null,
+                    tx.getTime(),
+                    txType,
+                    txType != null ? txType.getDisplayString() : "",
+                    txOutput.getOpReturnData() != null ? Utils.HEX.encode(txOutput.getOpReturnData()) : null
+            );
+            outputs.add(outputForJson);
+            txOutputFileManager.writeToDisc(Utilities.objectToJson(outputForJson), outputForJson.getId());
+        });
+
+
+        List<JsonTxInput> inputs = tx.getInputs().stream()
+                .map(txInput -> {
+                    final TxOutput connectedTxOutput = txInput.getConnectedTxOutput();
+                    return new JsonTxInput(txInput.getTxOutputIndex(),
+                            txInput.getTxId(),
+                            connectedTxOutput != null ? connectedTxOutput.getValue() : 0,
+                            connectedTxOutput != null && connectedTxOutput.isVerified(),
+                            connectedTxOutput != null ? connectedTxOutput.getAddress() : null,
+                            tx.getTime());
+                })
+                .collect(Collectors.toList());
+
+        final JsonTx jsonTx = new JsonTx(txId,
+                tx.getBlockHeight(),
+                tx.getBlockHash(),
+                tx.getTime(),
+                inputs,
+                outputs,
+                txType,
+                txType != null ? txType.getDisplayString() : "",
+                tx.getBurntFee());
+
+        txFileManager.writeToDisc(Utilities.objectToJson(jsonTx), txId);
+    }
+
+    // One line per block with the ids of the txs which have been written again
+    private void appendToChangeLog(BsqBlock bsqBlock, List<Tx> changedTxs) {
+        final JsonBlockChanges blockChanges = new JsonBlockChanges(bsqBlock.getHeight(),
+                bsqBlock.getHash(),
+                changedTxs.stream().map(Tx::getId).collect(Collectors.toList()));
+        try (Writer writer = new FileWriter(changeLogFile, true)) {
+            writer.write(GSON.toJson(blockChanges));
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            log.error("Could not write to " + changeLogFile, e);
         }
     }
 }
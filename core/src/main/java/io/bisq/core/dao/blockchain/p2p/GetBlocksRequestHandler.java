@@ -9,7 +9,7 @@ import io.bisq.common.app.Log;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksRequest;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksResponse;
 import io.bisq.core.dao.blockchain.parse.BsqChainState;
-import io.bisq.core.dao.blockchain.vo.BsqBlock;
+import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.network.CloseConnectionReason;
 import io.bisq.network.p2p.network.Connection;
 import io.bisq.network.p2p.network.NetworkNode;
@@ -65,8 +65,10 @@ public class GetBlocksRequestHandler {
 
     public void handle(GetBsqBlocksRequest getBsqBlocksRequest, final Connection connection) {
         Log.traceCall(getBsqBlocksRequest + "\n\tconnection=" + connection);
-        List<BsqBlock> bsqBlocks = bsqChainState.getResettedBlocksFrom(getBsqBlocksRequest.getFromBlockHeight());
-        final GetBsqBlocksResponse bsqBlocksResponse = new GetBsqBlocksResponse(bsqBlocks, getBsqBlocksRequest.getNonce());
+        // The blocks are cached in encoded form, so we don't copy the chain state for each request
+        List<PB.BsqBlock> bsqBlocks = bsqChainState.getResettedBlockProtosFrom(getBsqBlocksRequest.getFromBlockHeight());
+        final GetBsqBlocksResponse bsqBlocksResponse = GetBsqBlocksResponse.fromEncodedBlocks(bsqBlocks,
+                getBsqBlocksRequest.getNonce());
 
         if (timeoutTimer == null) {
             timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
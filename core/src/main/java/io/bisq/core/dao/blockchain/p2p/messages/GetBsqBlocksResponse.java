@@ -13,14 +13,24 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+// The blocks are kept as protos, so a full node can send the same encoded blocks to many lite nodes and a lite
+// node converts them only once it processes them.
 @EqualsAndHashCode(callSuper = true)
-@Getter
 public final class GetBsqBlocksResponse extends NetworkEnvelope implements DirectMessage, ExtendedDataSizePermission {
-    private final List<BsqBlock> bsqBlocks;
+    private final List<PB.BsqBlock> bsqBlockProtos;
+    @Getter
     private final int requestNonce;
 
     public GetBsqBlocksResponse(List<BsqBlock> bsqBlocks, int requestNonce) {
-        this(bsqBlocks, requestNonce, Version.getP2PMessageVersion());
+        this(bsqBlocks.stream()
+                        .map(BsqBlock::toProtoMessage)
+                        .collect(Collectors.toList()),
+                requestNonce,
+                Version.getP2PMessageVersion());
+    }
+
+    public static GetBsqBlocksResponse fromEncodedBlocks(List<PB.BsqBlock> bsqBlockProtos, int requestNonce) {
+        return new GetBsqBlocksResponse(bsqBlockProtos, requestNonce, Version.getP2PMessageVersion());
     }
 
 
@@ -28,9 +38,9 @@ public final class GetBsqBlocksResponse extends NetworkEnvelope implements Direc
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private GetBsqBlocksResponse(List<BsqBlock> bsqBlocks, int requestNonce, int messageVersion) {
+    private GetBsqBlocksResponse(List<PB.BsqBlock> bsqBlockProtos, int requestNonce, int messageVersion) {
         super(messageVersion);
-        this.bsqBlocks = bsqBlocks;
+        this.bsqBlockProtos = bsqBlockProtos;
         this.requestNonce = requestNonce;
     }
 
@@ -38,20 +48,25 @@ public final class GetBsqBlocksResponse extends NetworkEnvelope implements Direc
     public PB.NetworkEnvelope toProtoNetworkEnvelope() {
         return getNetworkEnvelopeBuilder()
                 .setGetBsqBlocksResponse(PB.GetBsqBlocksResponse.newBuilder()
-                        .addAllBsqBlocks(bsqBlocks.stream()
-                                .map(BsqBlock::toProtoMessage)
-                                .collect(Collectors.toList()))
+                        .addAllBsqBlocks(bsqBlockProtos)
                         .setRequestNonce(requestNonce))
                 .build();
     }
 
     public static NetworkEnvelope fromProto(PB.GetBsqBlocksResponse proto, int messageVersion) {
-        return new GetBsqBlocksResponse(proto.getBsqBlocksList().isEmpty() ?
-                new ArrayList<>() :
-                proto.getBsqBlocksList().stream()
-                        .map(BsqBlock::fromProto)
-                        .collect(Collectors.toList()),
+        return new GetBsqBlocksResponse(new ArrayList<>(proto.getBsqBlocksList()),
                 proto.getRequestNonce(),
                 messageVersion);
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public List<BsqBlock> getBsqBlocks() {
+        return bsqBlockProtos.stream()
+                .map(BsqBlock::fromProto)
+                .collect(Collectors.toList());
+    }
 }
@@ -18,6 +18,8 @@
 package io.bisq.core.dao.blockchain.parse;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.protobuf.Message;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
@@ -35,7 +37,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -60,6 +64,8 @@ public class BsqChainState implements PersistableEnvelope {
     }
 
     private static final int SNAPSHOT_GRID = 100;  // set high to deactivate
+    // About one week of blocks. Lite nodes which are online regularly request only blocks from that range.
+    private static final int RESETTED_BLOCK_CACHE_WINDOW = 1000;
     private static final int ISSUANCE_MATURITY = 144 * 30; // 30 days
 
     //mainnet
@@ -127,10 +133,28 @@ public class BsqChainState implements PersistableEnvelope {
 
     // transient
     @Nullable
-    transient private Storage<BsqChainState> storage;
+    transient private Storage<PersistableEnvelope> storage;
+    // The snapshot candidate is kept as proto, which is immutable, so we don't need to copy it again for saving
     @Nullable
-    transient private BsqChainState snapshotCandidate;
+    transient private PB.PersistableEnvelope snapshotCandidate;
+    transient private int snapshotCandidateHeight;
     transient private final FunctionalReadWriteLock lock;
+    // Protos of the txs of the added blocks. Txs are mutable, but once their block is added they only get changed
+    // if one of their outputs gets spent. So we only need to encode the txs of the new block and the txs spent by
+    // it again when we create a snapshot, a clone or serve blocks. Besides at addBlock the protos get invalidated
+    // by the mutators called by the parser, so a block which fails to parse does not leave stale protos.
+    transient private final Map<String, PB.Tx> txProtoCache = new ConcurrentHashMap<>();
+    // Blocks in the form we send them to lite nodes by height. The reset removes all data set by the parser, so
+    // the protos don't change once the block has been added. We only cache the blocks of the last
+    // RESETTED_BLOCK_CACHE_WINDOW heights. A request from an older height (e.g. a new lite node starting at
+    // genesis) would otherwise evict the whole cache on each request, those blocks are encoded per request.
+    // The memory used is about the serialized size of the blocks in the window, BSQ blocks contain only the BSQ txs.
+    transient private final Cache<Integer, PB.BsqBlock> resettedBlockProtoCache = CacheBuilder.newBuilder()
+            .maximumSize(RESETTED_BLOCK_CACHE_WINDOW)
+            .build();
+    // Outputs of the txs in txMap by their address. Used for the lookups of compensation request and sponsoring
+    // outputs. We store the TxIdIndexTuple as the tx objects get replaced when a block is added again.
+    transient private final Map<String, Set<TxIdIndexTuple>> txOutputsByAddress = new HashMap<>();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -202,6 +226,7 @@ public class BsqChainState implements PersistableEnvelope {
         this.genesisTx = genesisTx;
 
         lock = new FunctionalReadWriteLock(true);
+        txMap.values().forEach(this::addToTxOutputsByAddress);
 
         // not impl yet in PB
         compensationRequestFees = new HashSet<>();
@@ -216,14 +241,14 @@ public class BsqChainState implements PersistableEnvelope {
     private PB.BsqChainState.Builder getBsqChainStateBuilder() {
         return PB.BsqChainState.newBuilder()
                 .addAllBsqBlocks(bsqBlocks.stream()
-                        .map(BsqBlock::toProtoMessage)
+                        .map(this::getBlockProto)
                         .collect(Collectors.toList()))
                 .putAllTxMap(txMap.entrySet().stream()
                         .collect(Collectors.toMap(Map.Entry::getKey,
-                                v -> v.getValue().toProtoMessage())))
+                                v -> getTxProto(v.getValue()))))
                 .putAllUnspentTxOutputsMap(unspentTxOutputsMap.entrySet().stream()
                         .collect(Collectors.toMap(k -> k.getKey().getAsString(),
-                                v -> v.getValue().toProtoMessage())))
+                                v -> getTxOutputProto(v.getValue()))))
                 .setGenesisTxId(genesisTxId)
                 .setGenesisBlockHeight(genesisBlockHeight)
                 .setChainHeadHeight(chainHeadHeight)
@@ -253,9 +278,12 @@ public class BsqChainState implements PersistableEnvelope {
     public void applySnapshot() {
         lock.write(() -> {
             checkNotNull(storage, "storage must not be null");
-            BsqChainState snapshot = storage.initAndGetPersistedWithFileName("BsqChainState");
+            BsqChainState snapshot = (BsqChainState) storage.initAndGetPersistedWithFileName("BsqChainState");
             bsqBlocks.clear();
             txMap.clear();
+            txProtoCache.clear();
+            resettedBlockProtoCache.invalidateAll();
+            txOutputsByAddress.clear();
             unspentTxOutputsMap.clear();
             chainHeadHeight = 0;
             genesisTx = null;
@@ -264,6 +292,7 @@ public class BsqChainState implements PersistableEnvelope {
                 log.info("applySnapshot snapshot.chainHeadHeight=" + snapshot.chainHeadHeight);
                 bsqBlocks.addAll(snapshot.bsqBlocks);
                 txMap.putAll(snapshot.txMap);
+                txMap.values().forEach(this::addToTxOutputsByAddress);
                 unspentTxOutputsMap.putAll(snapshot.unspentTxOutputsMap);
                 chainHeadHeight = snapshot.chainHeadHeight;
                 genesisTx = snapshot.genesisTx;
@@ -296,6 +325,7 @@ public class BsqChainState implements PersistableEnvelope {
                             bsqBlocks.getLast().getHeight() + 1 == block.getHeight())) {
                         bsqBlocks.add(block);
                         block.getTxs().stream().forEach(BsqChainState.this::addTxToMap);
+                        invalidateTxProtos(block);
                         chainHeadHeight = block.getHeight();
                         maybeMakeSnapshot();
                         printDetails();
@@ -320,18 +350,27 @@ public class BsqChainState implements PersistableEnvelope {
     }
 
     void addTxToMap(Tx tx) {
-        lock.write(() -> txMap.put(tx.getId(), tx));
+        lock.write(() -> {
+            txMap.put(tx.getId(), tx);
+            txProtoCache.remove(tx.getId());
+            addToTxOutputsByAddress(tx);
+        });
     }
 
     void addUnspentTxOutput(TxOutput txOutput) {
         lock.write(() -> {
             checkArgument(txOutput.isVerified(), "txOutput must be verified at addUnspentTxOutput");
             unspentTxOutputsMap.put(txOutput.getTxIdIndexTuple(), txOutput);
+            txProtoCache.remove(txOutput.getTxId());
         });
     }
 
+    // Needs to be called after the spent info of the output has been set
     void removeUnspentTxOutput(TxOutput txOutput) {
-        lock.write(() -> unspentTxOutputsMap.remove(txOutput.getTxIdIndexTuple()));
+        lock.write(() -> {
+            unspentTxOutputsMap.remove(txOutput.getTxIdIndexTuple());
+            txProtoCache.remove(txOutput.getTxId());
+        });
     }
 
     void setGenesisTx(Tx tx) {
@@ -364,9 +403,7 @@ public class BsqChainState implements PersistableEnvelope {
     }
 
     Optional<TxOutput> getUnspentTxOutput(TxIdIndexTuple txIdIndexTuple) {
-        return lock.read(() -> unspentTxOutputsMap.entrySet().stream()
-                .filter(e -> e.getKey().equals(txIdIndexTuple))
-                .map(Map.Entry::getValue).findAny());
+        return lock.read(() -> Optional.ofNullable(unspentTxOutputsMap.get(txIdIndexTuple)));
     }
 
     public boolean isTxOutputSpendable(String txId, int index) {
@@ -394,17 +431,32 @@ public class BsqChainState implements PersistableEnvelope {
         return lock.read(() -> txMap);
     }
 
-    public List<BsqBlock> getResettedBlocksFrom(int fromBlockHeight) {
+    // Copies of the txs of the block and of the txs with outputs spent in the block
+    public List<Tx> getTxsChangedByBlock(BsqBlock bsqBlock) {
         return lock.read(() -> {
-            BsqChainState clone = getClone();
-            List<BsqBlock> filtered = clone.bsqBlocks.stream()
-                    .filter(block -> block.getHeight() >= fromBlockHeight)
+            Set<String> txIds = new LinkedHashSet<>();
+            bsqBlock.getTxs().forEach(tx -> {
+                txIds.add(tx.getId());
+                tx.getInputs().stream()
+                        .filter(txInput -> txInput.getConnectedTxOutput() != null)
+                        .forEach(txInput -> txIds.add(txInput.getConnectedTxOutput().getTxId()));
+            });
+            return txIds.stream()
+                    .map(txMap::get)
+                    .filter(Objects::nonNull)
+                    .map(tx -> Tx.fromProto(getTxProto(tx)))
                     .collect(Collectors.toList());
-            filtered.stream().forEach(BsqBlock::reset);
-            return filtered;
         });
     }
 
+    // Used for serving lite nodes. The protos are immutable and shared between all responses.
+    public List<PB.BsqBlock> getResettedBlockProtosFrom(int fromBlockHeight) {
+        return lock.read(() -> bsqBlocks.stream()
+                .filter(block -> block.getHeight() >= fromBlockHeight)
+                .map(this::getResettedBlockProto)
+                .collect(Collectors.toList()));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Package scope read access
@@ -455,17 +507,15 @@ public class BsqChainState implements PersistableEnvelope {
     }
 
     boolean existsCompensationRequestBtcAddress(String btcAddress) {
-        return lock.read(() -> getAllTxOutputs().stream()
-                .filter(txOutput -> txOutput.isCompensationRequestBtcOutput() &&
-                        txOutput.getAddress().equals(btcAddress))
+        return lock.read(() -> getTxOutputsByAddress(btcAddress)
+                .filter(TxOutput::isCompensationRequestBtcOutput)
                 .findAny()
                 .isPresent());
     }
 
     Set<TxOutput> findSponsoringBtcOutputsWithSameBtcAddress(String btcAddress) {
-        return lock.read(() -> getAllTxOutputs().stream()
-                .filter(txOutput -> txOutput.isSponsoringBtcOutput() &&
-                        txOutput.getAddress().equals(btcAddress))
+        return lock.read(() -> getTxOutputsByAddress(btcAddress)
+                .filter(TxOutput::isSponsoringBtcOutput)
                 .collect(Collectors.toSet()));
     }
 
@@ -492,28 +542,86 @@ public class BsqChainState implements PersistableEnvelope {
         lock.read(() -> {
             if (isSnapshotHeight(getChainHeadHeight()) &&
                     (snapshotCandidate == null ||
-                            snapshotCandidate.chainHeadHeight != getChainHeadHeight())) {
+                            snapshotCandidateHeight != getChainHeadHeight())) {
                 // At trigger event we store the latest snapshotCandidate to disc
                 if (snapshotCandidate != null) {
-                    // We clone because storage is in a threaded context
-                    final BsqChainState cloned = getClone(snapshotCandidate);
+                    // The proto is immutable, so we can pass it to the storage which is in a threaded context
+                    final PB.PersistableEnvelope proto = snapshotCandidate;
                     checkNotNull(storage, "storage must nto be null");
-                    storage.queueUpForSave(cloned);
-                    // dont access cloned anymore with methods as locks are transient!
-                    log.info("Saved snapshotCandidate to Disc at height " + cloned.chainHeadHeight);
+                    storage.queueUpForSave(() -> proto);
+                    log.info("Saved snapshotCandidate to Disc at height " + snapshotCandidateHeight);
                 }
-                // Now we clone and keep it in memory for the next trigger
-                snapshotCandidate = getClone(this);
-                // dont access cloned anymore with methods as locks are transient!
-                log.debug("Cloned new snapshotCandidate at height " + snapshotCandidate.chainHeadHeight);
+                // Now we encode the current state and keep it in memory for the next trigger
+                snapshotCandidate = (PB.PersistableEnvelope) toProtoMessage();
+                snapshotCandidateHeight = getChainHeadHeight();
+                log.debug("Created new snapshotCandidate at height " + snapshotCandidateHeight);
             }
         });
     }
 
-    private Set<TxOutput> getAllTxOutputs() {
-        return txMap.values().stream()
-                .flatMap(tx -> tx.getOutputs().stream())
-                .collect(Collectors.toSet());
+    // At addBlock all changes caused by the block are done
+    private void invalidateTxProtos(BsqBlock block) {
+        block.getTxs().forEach(tx -> {
+            txProtoCache.remove(tx.getId());
+            tx.getInputs().stream()
+                    .filter(txInput -> txInput.getConnectedTxOutput() != null)
+                    .forEach(txInput -> txProtoCache.remove(txInput.getConnectedTxOutput().getTxId()));
+        });
+    }
+
+    private PB.Tx getTxProto(Tx tx) {
+        return txProtoCache.computeIfAbsent(tx.getId(), txId -> tx.toProtoMessage());
+    }
+
+    private PB.BsqBlock getBlockProto(BsqBlock block) {
+        return PB.BsqBlock.newBuilder()
+                .setBsqBlockVo(block.getBsqBlockVo().toProtoMessage())
+                .addAllTxs(block.getTxs().stream()
+                        .map(this::getTxProto)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private PB.BsqBlock getResettedBlockProto(BsqBlock block) {
+        PB.BsqBlock proto = resettedBlockProtoCache.getIfPresent(block.getHeight());
+        // We check the hash in case the block at that height has changed
+        if (proto == null || !proto.getBsqBlockVo().getHash().equals(block.getHash())) {
+            final BsqBlock clone = BsqBlock.fromProto(getBlockProto(block));
+            clone.reset();
+            proto = clone.toProtoMessage();
+            if (block.getHeight() > chainHeadHeight - RESETTED_BLOCK_CACHE_WINDOW)
+                resettedBlockProtoCache.put(block.getHeight(), proto);
+        }
+        return proto;
+    }
+
+    private PB.TxOutput getTxOutputProto(TxOutput txOutput) {
+        final Tx tx = txMap.get(txOutput.getTxId());
+        if (tx != null) {
+            final List<TxOutput> outputs = tx.getOutputs();
+            for (int i = 0; i < outputs.size(); i++) {
+                if (outputs.get(i) == txOutput)
+                    return getTxProto(tx).getOutputs(i);
+            }
+        }
+        return txOutput.toProtoMessage();
+    }
+
+    private void addToTxOutputsByAddress(Tx tx) {
+        tx.getOutputs().stream()
+                .filter(txOutput -> txOutput.getAddress() != null)
+                .forEach(txOutput -> txOutputsByAddress.computeIfAbsent(txOutput.getAddress(), k -> new HashSet<>())
+                        .add(txOutput.getTxIdIndexTuple()));
+    }
+
+    private Stream<TxOutput> getTxOutputsByAddress(String address) {
+        return txOutputsByAddress.getOrDefault(address, Collections.emptySet()).stream()
+                .map(txIdIndexTuple -> getTx(txIdIndexTuple.getTxId())
+                        .flatMap(tx -> tx.getOutputs().stream()
+                                .filter(txOutput -> txOutput.getIndex() == txIdIndexTuple.getIndex())
+                                .findAny()))
+                .filter(Optional::isPresent)
+                .map(Optional::get);
     }
 
     private void printDetails() {
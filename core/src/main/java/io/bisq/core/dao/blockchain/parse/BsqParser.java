@@ -18,8 +18,10 @@
 package io.bisq.core.dao.blockchain.parse;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.neemre.btcdcli4j.core.domain.Block;
 import io.bisq.common.app.DevEnv;
+import io.bisq.common.util.Tuple2;
 import io.bisq.core.dao.blockchain.exceptions.BlockNotConnectingException;
 import io.bisq.core.dao.blockchain.exceptions.BsqBlockchainException;
 import io.bisq.core.dao.blockchain.vo.*;
@@ -28,6 +30,7 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.concurrent.Immutable;
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -42,6 +45,9 @@ public class BsqParser {
     private final IssuanceVerification issuanceVerification;
     private final RpcService rpcService;
 
+    // Number of blocks we request ahead of the block we are parsing
+    private static final int NUM_PREFETCHED_BLOCKS = 10;
+
     // Maybe we want to request fee at some point, leave it for now and disable it
     private boolean requestFee = false;
     private final Map<Integer, Long> feesByBlock = new HashMap<>();
@@ -101,11 +107,24 @@ public class BsqParser {
                      String genesisTxId,
                      Consumer<BsqBlock> newBlockHandler)
             throws BsqBlockchainException, BlockNotConnectingException {
+        // We request the next blocks and their txs in parallel while we parse the current block. Blocks are parsed
+        // strictly in the order of the height as the BSQ state of a block depends on the previous blocks.
+        Queue<ListenableFuture<Tuple2<Block, List<Tx>>>> pendingRequests = new ArrayDeque<>();
+        int nextBlockHeightToRequest = startBlockHeight;
         try {
             for (int blockHeight = startBlockHeight; blockHeight <= chainHeadHeight; blockHeight++) {
+                while (nextBlockHeightToRequest <= chainHeadHeight &&
+                        nextBlockHeightToRequest < blockHeight + NUM_PREFETCHED_BLOCKS) {
+                    pendingRequests.add(rpcService.requestBlockWithTxs(nextBlockHeightToRequest));
+                    nextBlockHeightToRequest++;
+                }
+
                 long startTs = System.currentTimeMillis();
-                Block btcdBlock = rpcService.requestBlock(blockHeight);
+                Tuple2<Block, List<Tx>> blockWithTxs = getResult(pendingRequests.poll());
+                Block btcdBlock = blockWithTxs.first;
+                long waitingTime = System.currentTimeMillis() - startTs;
                 List<Tx> bsqTxsInBlock = findBsqTxsInBlock(btcdBlock,
+                        blockWithTxs.second,
                         genesisBlockHeight,
                         genesisTxId);
                 final BsqBlockVo bsqBlockVo = new BsqBlockVo(btcdBlock.getHeight(),
@@ -116,8 +135,8 @@ public class BsqParser {
 
                 bsqChainState.addBlock(bsqBlock);
                 newBlockHandler.accept(bsqBlock);
-                log.info("parseBlock took {} ms at blockHeight {}; bsqTxsInBlock.size={}",
-                        System.currentTimeMillis() - startTs, blockHeight, bsqTxsInBlock.size());
+                log.info("parseBlock took {} ms at blockHeight {} (waited {} ms for RPC requests); bsqTxsInBlock.size={}",
+                        System.currentTimeMillis() - startTs, blockHeight, waitingTime, bsqTxsInBlock.size());
             }
         } catch (BlockNotConnectingException e) {
             throw e;
@@ -125,10 +144,13 @@ public class BsqParser {
             log.error(t.toString());
             t.printStackTrace();
             throw new BsqBlockchainException(t);
+        } finally {
+            pendingRequests.forEach(future -> future.cancel(false));
         }
     }
 
     private List<Tx> findBsqTxsInBlock(Block btcdBlock,
+                                       List<Tx> txList,
                                        int genesisBlockHeight,
                                        String genesisTxId)
             throws BsqBlockchainException {
@@ -136,22 +158,14 @@ public class BsqParser {
         int blockHeight = btcdBlock.getHeight();
         log.debug("Parse block at height={} ", blockHeight);
 
-        // check if the new block is the same chain we have built on.
-        List<Tx> txList = new ArrayList<>();
         // We use a list as we want to maintain sorting of tx intra-block dependency
         List<Tx> bsqTxsInBlock = new ArrayList<>();
-        // We add all transactions to the block
-        long startTs = System.currentTimeMillis();
-        for (String txId : btcdBlock.getTx()) {
+        for (Tx tx : txList) {
             if (requestFee)
-                rpcService.requestFees(txId, blockHeight, feesByBlock);
+                rpcService.requestFees(tx.getId(), blockHeight, feesByBlock);
 
-            final Tx tx = rpcService.requestTx(txId, blockHeight);
-            txList.add(tx);
             checkForGenesisTx(genesisBlockHeight, genesisTxId, blockHeight, bsqTxsInBlock, tx);
         }
-        log.info("Requesting {} transactions took {} ms",
-                btcdBlock.getTx().size(), System.currentTimeMillis() - startTs);
         // Worst case is that all txs in a block are depending on another, so only one get resolved at each iteration.
         // Min tx size is 189 bytes (normally about 240 bytes), 1 MB can contain max. about 5300 txs (usually 2000).
         // Realistically we don't expect more then a few recursive calls.
@@ -163,6 +177,15 @@ public class BsqParser {
         return bsqTxsInBlock;
     }
 
+    private static <T> T getResult(ListenableFuture<T> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // We throw the exception of the request, e.g. a BsqBlockchainException
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Parse when requested from new block arrived handler (rpc) 
@@ -170,7 +193,19 @@ public class BsqParser {
 
     BsqBlock parseBlock(Block btcdBlock, int genesisBlockHeight, String genesisTxId)
             throws BsqBlockchainException, BlockNotConnectingException {
+        long startTs = System.currentTimeMillis();
+        List<Tx> txList;
+        try {
+            txList = getResult(rpcService.requestTxs(btcdBlock));
+        } catch (BsqBlockchainException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new BsqBlockchainException(t);
+        }
+        log.info("Requesting {} transactions took {} ms",
+                btcdBlock.getTx().size(), System.currentTimeMillis() - startTs);
         List<Tx> bsqTxsInBlock = findBsqTxsInBlock(btcdBlock,
+                txList,
                 genesisBlockHeight,
                 genesisTxId);
         final BsqBlockVo bsqBlockVo = new BsqBlockVo(btcdBlock.getHeight(),
@@ -207,7 +242,7 @@ public class BsqParser {
     }
 
     // Performance-wise the recursion does not hurt (e.g. 5-20 ms). 
-    // The RPC requestTransaction is the bottleneck.  
+    // The RPC requestTransaction is the bottleneck, so we request the txs in parallel and ahead of parsing.
     private void recursiveFindBsqTxs(List<Tx> bsqTxsInBlock,
                                      List<Tx> transactions,
                                      int blockHeight,
@@ -286,8 +321,9 @@ public class BsqParser {
             if (spendableTxOutput.isPresent()) {
                 final TxOutput spentTxOutput = spendableTxOutput.get();
                 spentTxOutput.setUnspent(false);
-                bsqChainState.removeUnspentTxOutput(spentTxOutput);
                 spentTxOutput.setSpentInfo(new SpentInfo(blockHeight, tx.getId(), inputIndex));
+                // Called after the output has been changed as it invalidates the cached proto of its tx
+                bsqChainState.removeUnspentTxOutput(spentTxOutput);
                 input.setConnectedTxOutput(spentTxOutput);
                 availableValue = availableValue + spentTxOutput.getValue();
             }
@@ -17,7 +17,12 @@
 
 package io.bisq.core.dao.blockchain.parse;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.neemre.btcdcli4j.core.BitcoindException;
 import com.neemre.btcdcli4j.core.CommunicationException;
@@ -30,6 +35,8 @@ import com.neemre.btcdcli4j.core.domain.enums.ScriptTypes;
 import com.neemre.btcdcli4j.daemon.BtcdDaemon;
 import com.neemre.btcdcli4j.daemon.BtcdDaemonImpl;
 import com.neemre.btcdcli4j.daemon.event.BlockListener;
+import io.bisq.common.util.Tuple2;
+import io.bisq.common.util.Utilities;
 import io.bisq.core.dao.DaoOptionKeys;
 import io.bisq.core.dao.blockchain.btcd.PubKeyScript;
 import io.bisq.core.dao.blockchain.exceptions.BsqBlockchainException;
@@ -55,11 +62,17 @@ import java.util.stream.Collectors;
 public class RpcService {
     private static final Logger log = LoggerFactory.getLogger(RpcService.class);
 
+    // Bitcoin Core handles 4 RPC requests in parallel by default (rpcthreads)
+    private static final int NUM_REQUEST_THREADS = 4;
+
     private final String rpcUser;
     private final String rpcPassword;
     private final String rpcPort;
     private final String rpcBlockPort;
     private final boolean dumpBlockchainData;
+    // Unbounded queue as we submit all txs of a block at once
+    private final ListeningExecutorService requestExecutor = MoreExecutors.listeningDecorator(
+            Utilities.getScheduledThreadPoolExecutor("RpcRequests", NUM_REQUEST_THREADS, NUM_REQUEST_THREADS, 60));
 
     private BtcdClient client;
     private BtcdDaemon daemon;
@@ -87,6 +100,10 @@ public class RpcService {
         try {
             long startTs = System.currentTimeMillis();
             PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+            // The default of 2 connections per route would limit our parallel requests. We add one for the
+            // requests outside of the requestExecutor.
+            cm.setDefaultMaxPerRoute(NUM_REQUEST_THREADS + 1);
+            cm.setMaxTotal(NUM_REQUEST_THREADS + 1);
             CloseableHttpClient httpProvider = HttpClients.custom().setConnectionManager(cm).build();
             Properties nodeConfig = new Properties();
             nodeConfig.setProperty("node.bitcoind.rpc.protocol", "http");
@@ -137,6 +154,20 @@ public class RpcService {
         return client.getBlock(blockHash);
     }
 
+    // Requests the block and then all its transactions in parallel. The txs are in the order of the block.
+    ListenableFuture<Tuple2<Block, List<Tx>>> requestBlockWithTxs(int blockHeight) {
+        ListenableFuture<Block> blockFuture = requestExecutor.submit(() -> requestBlock(blockHeight));
+        return Futures.transformAsync(blockFuture, block -> Futures.transform(requestTxs(block),
+                (Function<List<Tx>, Tuple2<Block, List<Tx>>>) txs -> new Tuple2<>(block, txs)));
+    }
+
+    ListenableFuture<List<Tx>> requestTxs(Block block) {
+        final List<ListenableFuture<Tx>> futures = block.getTx().stream()
+                .map(txId -> requestExecutor.submit(() -> requestTx(txId, block.getHeight())))
+                .collect(Collectors.toList());
+        return Futures.allAsList(futures);
+    }
+
     void requestFees(String txId, int blockHeight, Map<Integer, Long> feesByBlock) throws BsqBlockchainException {
         try {
             Transaction transaction = requestTx(txId);
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -51,6 +52,11 @@ public class OfferBookService {
         void onAdded(Offer offer);
 
         void onRemoved(Offer offer);
+
+        // Expired offers are removed in batches
+        default void onRemoved(Collection<Offer> offers) {
+            offers.forEach(this::onRemoved);
+        }
     }
 
     private final P2PService p2PService;
@@ -96,6 +102,22 @@ public class OfferBookService {
                     }
                 });
             }
+
+            @Override
+            public void onRemoved(Collection<ProtectedStorageEntry> data) {
+                offerBookChangedListeners.stream().forEach(listener -> {
+                    List<Offer> offers = data.stream()
+                            .filter(entry -> entry.getStoragePayload() instanceof OfferPayload)
+                            .map(entry -> {
+                                Offer offer = new Offer((OfferPayload) entry.getStoragePayload());
+                                offer.setPriceFeedService(priceFeedService);
+                                return offer;
+                            })
+                            .collect(Collectors.toList());
+                    if (!offers.isEmpty())
+                        listener.onRemoved(offers);
+                });
+            }
         });
 
         if (dumpStatistics) {
@@ -112,6 +134,11 @@ public class OfferBookService {
                         public void onRemoved(Offer offer) {
                             doDumpStatistics();
                         }
+
+                        @Override
+                        public void onRemoved(Collection<Offer> offers) {
+                            doDumpStatistics();
+                        }
                     });
                     UserThread.runAfter(OfferBookService.this::doDumpStatistics, 1);
                 }
@@ -134,10 +161,11 @@ public class OfferBookService {
         }
     }
 
-    public void refreshTTL(OfferPayload offerPayload, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
-        boolean result = p2PService.refreshTTL(offerPayload, true);
+    public void refreshTTL(Collection<OfferPayload> offerPayloads, ResultHandler resultHandler,
+                           ErrorMessageHandler errorMessageHandler) {
+        boolean result = p2PService.refreshTTL(offerPayloads, true);
         if (result) {
-            log.trace("Refresh TTL was successful. OfferPayload ID = " + offerPayload.getId());
+            log.trace("Refresh TTL was successful. Number of offers = " + offerPayloads.size());
             resultHandler.handleResult();
         } else {
             errorMessageHandler.handleErrorMessage("Refresh TTL failed.");
@@ -555,22 +555,10 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
                             int size = openOffers.size();
                             Log.traceCall("Number of offer for refresh: " + size);
 
-                            //we clone our list as openOffers might change during our delayed call
-                            final ArrayList<OpenOffer> openOffersList = new ArrayList<>(openOffers.getList());
-                            for (int i = 0; i < size; i++) {
-                                // we delay to avoid reaching throttle limits
-                                // roughly 4 offers per second
-
-                                long delay = 300;
-                                final long minDelay = (i + 1) * delay;
-                                final long maxDelay = (i + 2) * delay;
-                                final OpenOffer openOffer = openOffersList.get(i);
-                                UserThread.runAfterRandomDelay(() -> {
-                                    // we need to check if in the meantime the offer has been removed
-                                    if (openOffers.contains(openOffer))
-                                        refreshOffer(openOffer);
-                                }, minDelay, maxDelay, TimeUnit.MILLISECONDS);
-                            }
+                            // We refresh all offers with one BulkRefreshOfferMessage (or a few for very many offers)
+                            // instead of one message per offer
+                            if (size > 0)
+                                refreshOffers(openOffers.getList());
                         } else {
                             log.debug("We have stopped already. We ignore that periodicRefreshOffersTimer.run call.");
                         }
@@ -581,9 +569,12 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
             log.trace("periodicRefreshOffersTimer already stated");
     }
 
-    private void refreshOffer(OpenOffer openOffer) {
-        offerBookService.refreshTTL(openOffer.getOffer().getOfferPayload(),
-                () -> log.debug("Successful refreshed TTL for offer"),
+    private void refreshOffers(List<OpenOffer> openOffers) {
+        List<OfferPayload> offerPayloads = openOffers.stream()
+                .map(openOffer -> openOffer.getOffer().getOfferPayload())
+                .collect(Collectors.toList());
+        offerBookService.refreshTTL(offerPayloads,
+                () -> log.debug("Successful refreshed TTL for {} offers", offerPayloads.size()),
                 log::warn);
     }
 
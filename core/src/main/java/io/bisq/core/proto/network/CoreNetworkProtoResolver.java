@@ -31,6 +31,7 @@ import io.bisq.network.p2p.peers.keepalive.messages.Pong;
 import io.bisq.network.p2p.peers.peerexchange.messages.GetPeersRequest;
 import io.bisq.network.p2p.peers.peerexchange.messages.GetPeersResponse;
 import io.bisq.network.p2p.storage.messages.AddDataMessage;
+import io.bisq.network.p2p.storage.messages.BulkRefreshOfferMessage;
 import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
 import io.bisq.network.p2p.storage.messages.RemoveDataMessage;
 import io.bisq.network.p2p.storage.messages.RemoveMailboxDataMessage;
@@ -75,6 +76,8 @@ public class CoreNetworkProtoResolver extends CoreProtoResolver implements Netwo
                     return OfferAvailabilityResponse.fromProto(proto.getOfferAvailabilityResponse(), messageVersion);
                 case REFRESH_OFFER_MESSAGE:
                     return RefreshOfferMessage.fromProto(proto.getRefreshOfferMessage(), messageVersion);
+                case BULK_REFRESH_OFFER_MESSAGE:
+                    return BulkRefreshOfferMessage.fromProto(proto.getBulkRefreshOfferMessage(), messageVersion);
 
                 case ADD_DATA_MESSAGE:
                     return AddDataMessage.fromProto(proto.getAddDataMessage(), this, messageVersion);
@@ -52,7 +52,7 @@ public class CorePersistenceProtoResolver extends CoreProtoResolver implements P
                 case SEQUENCE_NUMBER_MAP:
                     return SequenceNumberMap.fromProto(proto.getSequenceNumberMap());
                 case PERSISTED_ENTRY_MAP:
-                    return PersistedEntryMap.fromProto(proto.getPersistedEntryMap().getPersistedEntryMapMap(),
+                    return PersistedEntryMap.fromProto(proto.getPersistedEntryMap(),
                             networkProtoResolver);
                 case PEER_LIST:
                     return PeerList.fromProto(proto.getPeerList());
@@ -62,6 +62,8 @@ public class PriceFeedService {
     private final IntegerProperty updateCounter = new SimpleIntegerProperty(0);
     private long epochInSecondAtLastRequest;
     private Map<String, Long> timeStampMap = new HashMap<>();
+    // Version of the data of the current provider, 0 if unknown. Used to request only the changed prices.
+    private long priceDataVersion;
     private int retryCounter = 0;
     private int retryDelay = 1;
 
@@ -120,6 +122,8 @@ public class PriceFeedService {
             if (providersRepository.hasMoreProviders()) {
                 providersRepository.setNewRandomBaseUrl();
                 priceProvider = new PriceProvider(httpClient, providersRepository.getBaseUrl());
+                // Versions of different providers are not comparable
+                priceDataVersion = 0;
             }
             UserThread.runAfter(() -> {
                 retryCounter++;
@@ -216,7 +220,7 @@ public class PriceFeedService {
     private void requestAllPrices(PriceProvider provider, Runnable resultHandler, FaultHandler faultHandler) {
         Log.traceCall();
         PriceRequest priceRequest = new PriceRequest();
-        SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = priceRequest.requestAllPrices(provider);
+        SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = priceRequest.requestAllPrices(provider, priceDataVersion);
         Futures.addCallback(future, new FutureCallback<Tuple2<Map<String, Long>, Map<String, MarketPrice>>>() {
             @Override
             public void onSuccess(@Nullable Tuple2<Map<String, Long>, Map<String, MarketPrice>> result) {
@@ -224,6 +228,10 @@ public class PriceFeedService {
                     checkNotNull(result, "Result must not be null at requestAllPrices");
                     timeStampMap = result.first;
                     epochInSecondAtLastRequest = timeStampMap.get("btcAverageTs");
+                    // We only apply the version if we did not switch the provider in the meantime. For other base
+                    // currencies we need all prices for the conversion, so we don't request the changes only.
+                    if (provider == priceProvider && baseCurrencyCode.equals("BTC"))
+                        priceDataVersion = timeStampMap.getOrDefault("version", 0L);
                     final Map<String, MarketPrice> priceMap = result.second;
                     switch (baseCurrencyCode) {
                         case "BTC":
@@ -40,15 +40,23 @@ public class PriceProvider extends HttpClientProvider {
     }
 
     public Tuple2<Map<String, Long>, Map<String, MarketPrice>> getAll() throws IOException {
+        return getAllSince(0);
+    }
+
+    // If we got a version from the provider we request only the prices which have been changed after that version.
+    // The version is delivered in the tsMap, older providers don't deliver it.
+    public Tuple2<Map<String, Long>, Map<String, MarketPrice>> getAllSince(long version) throws IOException {
         Map<String, MarketPrice> marketPriceMap = new HashMap<>();
-        String json = httpClient.requestWithGET("getAllMarketPrices", "User-Agent", "bisq/"
-                + Version.VERSION + ", uid:" + httpClient.getUid());
+        String json = httpClient.requestWithGET(version > 0 ? "getMarketPricesSince/" + version : "getAllMarketPrices",
+                "User-Agent", "bisq/" + Version.VERSION + ", uid:" + httpClient.getUid());
         //noinspection unchecked
         LinkedTreeMap<String, Object> map = new Gson().fromJson(json, LinkedTreeMap.class);
         Map<String, Long> tsMap = new HashMap<>();
         tsMap.put("btcAverageTs", ((Double) map.get("btcAverageTs")).longValue());
         tsMap.put("poloniexTs", ((Double) map.get("poloniexTs")).longValue());
         tsMap.put("coinmarketcapTs", ((Double) map.get("coinmarketcapTs")).longValue());
+        if (map.get("version") != null)
+            tsMap.put("version", ((Double) map.get("version")).longValue());
 
         //noinspection unchecked
         List<LinkedTreeMap<String, Object>> list = (ArrayList<LinkedTreeMap<String, Object>>) map.get("data");
@@ -32,10 +32,15 @@ public class PriceRequest {
     }
 
     public SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> requestAllPrices(PriceProvider provider) {
+        return requestAllPrices(provider, 0);
+    }
+
+    public SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> requestAllPrices(PriceProvider provider,
+                                                                                                 long sinceVersion) {
         final SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> resultFuture = SettableFuture.create();
         ListenableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = executorService.submit(() -> {
             Thread.currentThread().setName("PriceRequest-" + provider.toString());
-            return provider.getAll();
+            return provider.getAllSince(sinceVersion);
         });
 
         Futures.addCallback(future, new FutureCallback<Tuple2<Map<String, Long>, Map<String, MarketPrice>>>() {
@@ -0,0 +1,51 @@
+package io.bisq.core.trade.statistics;
+
+import java.util.concurrent.TimeUnit;
+
+// The ordinal is persisted in the preferences, so new units must be appended
+public enum TickUnit {
+    YEAR,
+    MONTH,
+    WEEK,
+    DAY,
+    HOUR,
+    MINUTE_10;
+
+    public long getTickFromTime(long time) {
+        switch (this) {
+            case YEAR:
+                return TimeUnit.MILLISECONDS.toDays(time) / 365;
+            case MONTH:
+                return TimeUnit.MILLISECONDS.toDays(time) / 31;
+            case WEEK:
+                return TimeUnit.MILLISECONDS.toDays(time) / 7;
+            case DAY:
+                return TimeUnit.MILLISECONDS.toDays(time);
+            case HOUR:
+                return TimeUnit.MILLISECONDS.toHours(time);
+            case MINUTE_10:
+                return TimeUnit.MILLISECONDS.toMinutes(time) / 10;
+            default:
+                return time;
+        }
+    }
+
+    public long getTimeFromTick(long tick) {
+        switch (this) {
+            case YEAR:
+                return TimeUnit.DAYS.toMillis(tick) * 365;
+            case MONTH:
+                return TimeUnit.DAYS.toMillis(tick) * 31;
+            case WEEK:
+                return TimeUnit.DAYS.toMillis(tick) * 7;
+            case DAY:
+                return TimeUnit.DAYS.toMillis(tick);
+            case HOUR:
+                return TimeUnit.HOURS.toMillis(tick);
+            case MINUTE_10:
+                return TimeUnit.MINUTES.toMillis(tick) * 10;
+            default:
+                return tick;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.bisq.core.trade.statistics;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Open, close, min and max price and the accumulated amount and volume of the trades of one currency in one tick.
+ * Gets updated at each new trade, so the trades don't need to be sorted. Prices are the raw trade prices, the
+ * interpretation of min and max as high and low depends on the currency (altcoin prices are inverted).
+ */
+@Getter
+@ToString
+public final class TradeStatisticsCandle {
+    private final long tick;
+    private long openTime = Long.MAX_VALUE;
+    private long open;
+    private long closeTime = Long.MIN_VALUE;
+    private long close;
+    private long minPrice = Long.MAX_VALUE;
+    private long maxPrice = Long.MIN_VALUE;
+    private long accumulatedAmount;
+    private long accumulatedVolume;
+    private long numTrades;
+
+    TradeStatisticsCandle(long tick) {
+        this.tick = tick;
+    }
+
+    void add(long tradeDate, long price, long amount, long volume) {
+        if (tradeDate < openTime) {
+            openTime = tradeDate;
+            open = price;
+        }
+        if (tradeDate >= closeTime) {
+            closeTime = tradeDate;
+            close = price;
+        }
+        minPrice = Math.min(minPrice, price);
+        maxPrice = Math.max(maxPrice, price);
+        accumulatedAmount += amount;
+        accumulatedVolume += volume;
+        numTrades++;
+    }
+
+    // Combines the candles of several currencies of the same tick
+    void add(TradeStatisticsCandle candle) {
+        if (candle.openTime < openTime) {
+            openTime = candle.openTime;
+            open = candle.open;
+        }
+        if (candle.closeTime >= closeTime) {
+            closeTime = candle.closeTime;
+            close = candle.close;
+        }
+        minPrice = Math.min(minPrice, candle.minPrice);
+        maxPrice = Math.max(maxPrice, candle.maxPrice);
+        accumulatedAmount += candle.accumulatedAmount;
+        accumulatedVolume += candle.accumulatedVolume;
+        numTrades += candle.numTrades;
+    }
+}
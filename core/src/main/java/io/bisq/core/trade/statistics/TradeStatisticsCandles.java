@@ -0,0 +1,61 @@
+package io.bisq.core.trade.statistics;
+
+import java.util.*;
+
+/**
+ * Keeps the candles of all currencies and tick units up to date as trade statistics get added, so switching the
+ * currency or tick unit of a chart is a lookup instead of bucketing and sorting all trades.
+ * Not thread safe, it is accessed from the UserThread only.
+ */
+public class TradeStatisticsCandles {
+    private final Map<String, Map<TickUnit, NavigableMap<Long, TradeStatisticsCandle>>> candlesByCurrency = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void add(TradeStatistics tradeStatistics) {
+        add(tradeStatistics.getCurrencyCode(),
+                tradeStatistics.getTradeDate().getTime(),
+                tradeStatistics.getTradePrice().getValue(),
+                tradeStatistics.getTradeAmount().getValue(),
+                tradeStatistics.getTradeVolume() != null ? tradeStatistics.getTradeVolume().getValue() : 0);
+    }
+
+    // Returns the candles of the currency from fromTick on, sorted by tick
+    public List<TradeStatisticsCandle> getCandles(String currencyCode, TickUnit tickUnit, long fromTick) {
+        Map<TickUnit, NavigableMap<Long, TradeStatisticsCandle>> candlesByTickUnit = candlesByCurrency.get(currencyCode);
+        if (candlesByTickUnit == null)
+            return new ArrayList<>();
+
+        return new ArrayList<>(candlesByTickUnit.get(tickUnit).tailMap(fromTick, true).values());
+    }
+
+    // Returns the candles of the trades of all currencies from fromTick on, sorted by tick
+    public List<TradeStatisticsCandle> getCandlesOfAllCurrencies(TickUnit tickUnit, long fromTick) {
+        TreeMap<Long, TradeStatisticsCandle> combined = new TreeMap<>();
+        candlesByCurrency.values().forEach(candlesByTickUnit ->
+                candlesByTickUnit.get(tickUnit).tailMap(fromTick, true).values().forEach(candle ->
+                        combined.computeIfAbsent(candle.getTick(), TradeStatisticsCandle::new).add(candle)));
+        return new ArrayList<>(combined.values());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void add(String currencyCode, long tradeDate, long price, long amount, long volume) {
+        Map<TickUnit, NavigableMap<Long, TradeStatisticsCandle>> candlesByTickUnit = candlesByCurrency.computeIfAbsent(currencyCode, key -> {
+            Map<TickUnit, NavigableMap<Long, TradeStatisticsCandle>> map = new EnumMap<>(TickUnit.class);
+            for (TickUnit tickUnit : TickUnit.values())
+                map.put(tickUnit, new TreeMap<>());
+            return map;
+        });
+
+        candlesByTickUnit.forEach((tickUnit, candles) ->
+                candles.computeIfAbsent(tickUnit.getTickFromTime(tradeDate), TradeStatisticsCandle::new)
+                        .add(tradeDate, price, amount, volume));
+    }
+}
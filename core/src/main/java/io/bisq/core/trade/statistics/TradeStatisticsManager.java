@@ -7,6 +7,8 @@ import io.bisq.common.locale.CurrencyTuple;
 import io.bisq.common.locale.CurrencyUtil;
 import io.bisq.common.locale.Res;
 import io.bisq.common.proto.persistable.PersistedDataHost;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.AppendOnlyLog;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.common.storage.JsonFileManager;
 import io.bisq.common.storage.Storage;
@@ -24,28 +26,49 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class TradeStatisticsManager implements PersistedDataHost {
+    private static final String FILE_NAME = "TradeStatistics";
+    // We compact the log once it has more records than the snapshot, but not before we have that many records,
+    // so the costs for the compaction are spread over the records.
+    private static final int MIN_LOG_RECORDS_FOR_COMPACTION = 1000;
+    // The complete trade_statistics.json is written at most once in that interval
+    private static final long AGGREGATE_DUMP_DELAY_SEC = 60;
+
     private final Storage<TradeStatisticsList> statisticsStorage;
+    private final AppendOnlyLog<TradeStatisticsList> statisticsLog;
     private final JsonFileManager jsonFileManager;
     private final P2PService p2PService;
     private final boolean dumpStatistics;
     private final ObservableSet<TradeStatistics> observableTradeStatisticsSet = FXCollections.observableSet();
     private final HashSet<TradeStatistics> tradeStatisticsSet = new HashSet<>();
+    private final Set<String> offerIds = new HashSet<>();
+    private final TradeStatisticsCandles candles = new TradeStatisticsCandles();
+    // Json dump partitioned by the month of the trade date, so at a new trade only the file of its month is written
+    private final Map<String, List<TradeStatisticsForJson>> jsonPartitions = new HashMap<>();
+    private final SimpleDateFormat partitionDateFormat = new SimpleDateFormat("yyyy-MM");
     private List<TradeStatistics> persistedTradeStatisticsList;
+    private boolean aggregateDumpPending;
 
     @Inject
     public TradeStatisticsManager(Storage<TradeStatisticsList> statisticsStorage,
                                   P2PService p2PService,
+                                  PersistenceProtoResolver persistenceProtoResolver,
                                   @Named(Storage.STORAGE_DIR) File storageDir,
                                   @Named(AppOptionKeys.DUMP_STATISTICS) boolean dumpStatistics) {
         this.statisticsStorage = statisticsStorage;
         this.p2PService = p2PService;
         this.dumpStatistics = dumpStatistics;
         jsonFileManager = new JsonFileManager(storageDir);
+        partitionDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // New items are appended to a log instead of writing the whole list at each new trade.
+        statisticsLog = new AppendOnlyLog<>(storageDir, FILE_NAME, persistenceProtoResolver);
+        statisticsLog.setNumMaxBackupFiles(1);
 
         this.statisticsStorage.setNumMaxBackupFiles(1);
 
@@ -69,9 +92,13 @@ public class TradeStatisticsManager implements PersistedDataHost {
 
     @Override
     public void readPersisted() {
-        TradeStatisticsList persisted = statisticsStorage.initAndGetPersistedWithFileName("TradeStatistics");
+        TradeStatisticsList persisted = statisticsStorage.initAndGetPersistedWithFileName(FILE_NAME);
+        persistedTradeStatisticsList = new ArrayList<>();
         if (persisted != null)
-            persistedTradeStatisticsList = persisted.getList();
+            persistedTradeStatisticsList.addAll(persisted.getList());
+
+        // We apply the items which have been added since the last compaction
+        statisticsLog.read().forEach(record -> persistedTradeStatisticsList.addAll(record.getList()));
     }
 
     public void onAllServicesInitialized() {
@@ -90,6 +117,7 @@ public class TradeStatisticsManager implements PersistedDataHost {
 
         if (persistedTradeStatisticsList != null)
             persistedTradeStatisticsList.stream().forEach(e -> add(e, false));
+        final int numPersisted = tradeStatisticsSet.size();
 
         p2PService.addHashSetChangedListener(new HashMapChangedListener() {
             @Override
@@ -129,24 +157,51 @@ public class TradeStatisticsManager implements PersistedDataHost {
 
         });
 
-        statisticsStorage.queueUpForSave(new TradeStatisticsList(new ArrayList<>(tradeStatisticsSet)), 2000);
-        dump();
+        // Items we got from the P2PDataStorage but did not have persisted yet are stored with a new snapshot
+        if (tradeStatisticsSet.size() > numPersisted || statisticsLog.getNumRecords() > 0)
+            statisticsLog.compact(new TradeStatisticsList(new ArrayList<>(tradeStatisticsSet)));
+
+        if (dumpStatistics) {
+            jsonPartitions.keySet().forEach(this::dumpPartition);
+            dumpAggregate();
+        }
 
         // print all currencies sorted by nr. of trades
         // printAllCurrencyStats();
 
     }
 
+    public void shutDown() {
+        if (dumpStatistics && aggregateDumpPending) {
+            aggregateDumpPending = false;
+            dumpAggregate();
+        }
+        statisticsLog.shutDown();
+    }
+
     public void add(TradeStatistics tradeStatistics, boolean storeLocally) {
         if (!tradeStatisticsSet.contains(tradeStatistics)) {
-            boolean itemAlreadyAdded = tradeStatisticsSet.stream().filter(e -> (e.getOfferId().equals(tradeStatistics.getOfferId()))).findAny().isPresent();
-            if (!itemAlreadyAdded) {
+            if (offerIds.add(tradeStatistics.getOfferId())) {
                 tradeStatisticsSet.add(tradeStatistics);
+                candles.add(tradeStatistics);
                 observableTradeStatisticsSet.add(tradeStatistics);
 
+                String partition = null;
+                if (dumpStatistics) {
+                    partition = partitionDateFormat.format(tradeStatistics.getTradeDate());
+                    jsonPartitions.computeIfAbsent(partition, key -> new ArrayList<>())
+                            .add(new TradeStatisticsForJson(tradeStatistics));
+                }
+
                 if (storeLocally) {
-                    statisticsStorage.queueUpForSave(new TradeStatisticsList(new ArrayList<>(tradeStatisticsSet)), 2000);
-                    dump();
+                    statisticsLog.append(new TradeStatisticsList(Collections.singletonList(tradeStatistics)));
+                    if (statisticsLog.getNumRecords() > Math.max(MIN_LOG_RECORDS_FOR_COMPACTION, tradeStatisticsSet.size()))
+                        statisticsLog.compact(new TradeStatisticsList(new ArrayList<>(tradeStatisticsSet)));
+
+                    if (dumpStatistics) {
+                        dumpPartition(partition);
+                        scheduleAggregateDump();
+                    }
                 }
             } else {
                 log.debug("We have already an item with the same offer ID. That might happen if both the maker and the taker published the tradeStatistics");
@@ -158,22 +213,42 @@ public class TradeStatisticsManager implements PersistedDataHost {
         return observableTradeStatisticsSet;
     }
 
-    private void dump() {
-        if (dumpStatistics) {
-            // We store the statistics as json so it is easy for further processing (e.g. for web based services)
-            // TODO This is just a quick solution for storing to one file.
-            // 1 statistic entry has 500 bytes as json.
-            // Need a more scalable solution later when we get more volume.
-            // The flag will only be activated by dedicated nodes, so it should not be too critical for the moment, but needs to
-            // get improved. Maybe a LevelDB like DB...? Could be impl. in a headless version only.
-            List<TradeStatisticsForJson> list = tradeStatisticsSet.stream().map(TradeStatisticsForJson::new).collect(Collectors.toList());
-            list.sort((o1, o2) -> (o1.tradeDate < o2.tradeDate ? 1 : (o1.tradeDate == o2.tradeDate ? 0 : -1)));
-            TradeStatisticsForJson[] array = new TradeStatisticsForJson[list.size()];
-            list.toArray(array);
-            jsonFileManager.writeToDisc(Utilities.objectToJson(array), "trade_statistics");
+    public TradeStatisticsCandles getCandles() {
+        return candles;
+    }
+
+    // We store the statistics as json so it is easy for further processing (e.g. for web based services).
+    // 1 statistic entry has 500 bytes as json, so we write per month partitions (trade_statistics_yyyy-MM.json)
+    // at each new trade and the complete file only delayed.
+    private void dumpPartition(String partition) {
+        jsonFileManager.writeToDisc(Utilities.objectToJson(getSortedArray(jsonPartitions.get(partition))),
+                "trade_statistics_" + partition);
+    }
+
+    private void scheduleAggregateDump() {
+        if (!aggregateDumpPending) {
+            aggregateDumpPending = true;
+            UserThread.runAfter(() -> {
+                aggregateDumpPending = false;
+                dumpAggregate();
+            }, AGGREGATE_DUMP_DELAY_SEC);
         }
     }
 
+    // Kept for the consumers which expect all items in one file
+    private void dumpAggregate() {
+        List<TradeStatisticsForJson> list = new ArrayList<>();
+        jsonPartitions.values().forEach(list::addAll);
+        jsonFileManager.writeToDisc(Utilities.objectToJson(getSortedArray(list)), "trade_statistics");
+    }
+
+    private static TradeStatisticsForJson[] getSortedArray(List<TradeStatisticsForJson> list) {
+        TradeStatisticsForJson[] array = new TradeStatisticsForJson[list.size()];
+        list.toArray(array);
+        Arrays.sort(array, (o1, o2) -> Long.compare(o2.tradeDate, o1.tradeDate));
+        return array;
+    }
+
     private void printAllCurrencyStats() {
         Map<String, Set<TradeStatistics>> map1 = new HashMap<>();
         for (TradeStatistics tradeStatistics : tradeStatisticsSet) {
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.btc.wallet;
+
+import io.bisq.core.app.BisqEnvironment;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.WalletTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalletIndexTest {
+    private NetworkParameters params;
+    private Wallet wallet;
+    private Address address;
+    private WalletIndex walletIndex;
+
+    @Before
+    public void setUp() {
+        params = BisqEnvironment.getParameters();
+        wallet = new Wallet(params);
+        address = wallet.freshReceiveAddress();
+        walletIndex = new WalletIndex();
+    }
+
+    @Test
+    public void testDeadTransactionsAreNotIndexed() {
+        Transaction tx = createTransaction(Coin.COIN);
+        Transaction deadTx = createTransaction(Coin.CENT);
+        deadTx.getConfidence().setConfidenceType(TransactionConfidence.ConfidenceType.DEAD);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx));
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.DEAD, deadTx));
+
+        assertEquals(tx, walletIndex.getTransaction(wallet, tx.getHashAsString()));
+        assertNull(walletIndex.getTransaction(wallet, deadTx.getHashAsString()));
+        assertEquals(1, walletIndex.getNumOutputs(wallet, address));
+        assertEquals(1, walletIndex.getTransactions(wallet, address).size());
+    }
+
+    @Test
+    public void testTransactionAddedWithoutEvent() {
+        Transaction tx1 = createTransaction(Coin.COIN);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.UNSPENT, tx1));
+        assertEquals(1, walletIndex.getNumOutputs(wallet, address));
+
+        // The event might be delivered later, the lookup must see the transaction anyway
+        Transaction tx2 = createTransaction(Coin.CENT);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.PENDING, tx2));
+        assertEquals(tx2, walletIndex.getTransaction(wallet, tx2.getHashAsString()));
+        assertEquals(2, walletIndex.getNumOutputs(wallet, address));
+        assertEquals(2, walletIndex.getTransactions(wallet, address).size());
+    }
+
+    @Test
+    public void testTransactionBecomingDead() {
+        Transaction tx = createTransaction(Coin.COIN);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.PENDING, tx));
+        assertEquals(tx, walletIndex.getTransaction(wallet, tx.getHashAsString()));
+
+        // Move the transaction to the dead pool as the wallet does if it got double spent
+        wallet.clearTransactions(0);
+        tx.getConfidence().setConfidenceType(TransactionConfidence.ConfidenceType.DEAD);
+        wallet.addWalletTransaction(new WalletTransaction(WalletTransaction.Pool.DEAD, tx));
+        walletIndex.onTransaction(wallet, tx);
+
+        assertNull(walletIndex.getTransaction(wallet, tx.getHashAsString()));
+        assertEquals(0, walletIndex.getNumOutputs(wallet, address));
+        assertTrue(walletIndex.getTransactions(wallet, address).isEmpty());
+    }
+
+    private Transaction createTransaction(Coin value) {
+        Transaction tx = new Transaction(params);
+        tx.addOutput(value, address);
+        return tx;
+    }
+}
@@ -0,0 +1,66 @@
+package io.bisq.core.trade.statistics;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TradeStatisticsCandlesTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void testCandleOfUnsortedTrades() {
+        TradeStatisticsCandles candles = new TradeStatisticsCandles();
+        long time = 100 * DAY;
+        candles.add("EUR", time + 300, 580, 1, 580);
+        candles.add("EUR", time, 520, 1, 520);
+        candles.add("EUR", time + 200, 600, 1, 600);
+        candles.add("EUR", time + 100, 500, 1, 500);
+
+        List<TradeStatisticsCandle> list = candles.getCandles("EUR", TickUnit.DAY, 0);
+        assertEquals(1, list.size());
+        TradeStatisticsCandle candle = list.get(0);
+        assertEquals(100, candle.getTick());
+        assertEquals(520, candle.getOpen());
+        assertEquals(580, candle.getClose());
+        assertEquals(500, candle.getMinPrice());
+        assertEquals(600, candle.getMaxPrice());
+        assertEquals(4, candle.getAccumulatedAmount());
+        assertEquals(2200, candle.getAccumulatedVolume());
+        assertEquals(4, candle.getNumTrades());
+    }
+
+    @Test
+    public void testCandlesFromTick() {
+        TradeStatisticsCandles candles = new TradeStatisticsCandles();
+        candles.add("EUR", 10 * DAY, 500, 1, 500);
+        candles.add("EUR", 11 * DAY, 510, 1, 510);
+        candles.add("EUR", 12 * DAY, 520, 1, 520);
+
+        List<TradeStatisticsCandle> list = candles.getCandles("EUR", TickUnit.DAY, 11);
+        assertEquals(2, list.size());
+        assertEquals(11, list.get(0).getTick());
+        assertEquals(12, list.get(1).getTick());
+
+        assertEquals(1, candles.getCandles("EUR", TickUnit.WEEK, 0).size());
+        assertTrue(candles.getCandles("USD", TickUnit.DAY, 0).isEmpty());
+    }
+
+    @Test
+    public void testCandlesOfAllCurrencies() {
+        TradeStatisticsCandles candles = new TradeStatisticsCandles();
+        candles.add("EUR", 10 * DAY + 100, 500, 1, 500);
+        candles.add("USD", 10 * DAY, 600, 2, 1200);
+
+        List<TradeStatisticsCandle> list = candles.getCandlesOfAllCurrencies(TickUnit.DAY, 0);
+        assertEquals(1, list.size());
+        TradeStatisticsCandle candle = list.get(0);
+        assertEquals(600, candle.getOpen());
+        assertEquals(500, candle.getClose());
+        assertEquals(3, candle.getAccumulatedAmount());
+        assertEquals(3, candle.getNumTrades());
+    }
+}
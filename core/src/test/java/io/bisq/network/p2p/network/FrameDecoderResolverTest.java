@@ -0,0 +1,43 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+// In the network package as FrameDecoder is package private, but in core as we need the full resolver
+public class FrameDecoderResolverTest {
+
+    // If a new ExtendedDataSizePermission message is added it needs to be added here as well. If it is not resolved
+    // from its default instance it would be rejected when exceeding the normal permitted size.
+    @Test
+    public void testExtendedSizeFieldNumbersOfCoreResolver() {
+        assertEquals(new HashSet<>(Arrays.asList(
+                PB.NetworkEnvelope.PRELIMINARY_GET_DATA_REQUEST_FIELD_NUMBER,
+                PB.NetworkEnvelope.GET_UPDATED_DATA_REQUEST_FIELD_NUMBER,
+                PB.NetworkEnvelope.GET_DATA_RESPONSE_FIELD_NUMBER,
+                PB.NetworkEnvelope.GET_BSQ_BLOCKS_RESPONSE_FIELD_NUMBER)),
+                FrameDecoder.getExtendedSizeFieldNumbers(new CoreNetworkProtoResolver()));
+    }
+}
@@ -465,6 +465,7 @@ public class BisqApp extends Application {
                             log.debug("Graceful shutdown completed");
                             resultHandler.handleResult();
                         });
+                        injector.getInstance(TradeStatisticsManager.class).shutDown();
                         injector.getInstance(WalletsSetup.class).shutDown();
                         injector.getInstance(BtcWalletService.class).shutDown();
                         injector.getInstance(BsqWalletService.class).shutDown();
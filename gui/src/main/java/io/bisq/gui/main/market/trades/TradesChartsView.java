@@ -24,6 +24,7 @@ import io.bisq.common.monetary.Price;
 import io.bisq.common.monetary.Volume;
 import io.bisq.common.util.MathUtils;
 import io.bisq.core.offer.OfferPayload;
+import io.bisq.core.trade.statistics.TickUnit;
 import io.bisq.core.trade.statistics.TradeStatistics;
 import io.bisq.gui.common.view.ActivatableViewAndModel;
 import io.bisq.gui.common.view.FxmlView;
@@ -124,7 +125,7 @@ public class TradesChartsView extends ActivatableViewAndModel<VBox, TradesCharts
 
         timeUnitChangeListener = (observable, oldValue, newValue) -> {
             if (newValue != null) {
-                model.setTickUnit((TradesChartsViewModel.TickUnit) newValue.getUserData());
+                model.setTickUnit((TickUnit) newValue.getUserData());
                 priceAxisX.setTickLabelFormatter(getTimeAxisStringConverter());
                 volumeAxisX.setTickLabelFormatter(getTimeAxisStringConverter());
             }
@@ -389,7 +390,7 @@ public class TradesChartsView extends ActivatableViewAndModel<VBox, TradesCharts
             public String toString(Number object) {
                 long index = MathUtils.doubleToLong((double) object);
                 long time = model.getTimeFromTickIndex(index);
-                if (model.tickUnit.ordinal() <= TradesChartsViewModel.TickUnit.DAY.ordinal())
+                if (model.tickUnit.ordinal() <= TickUnit.DAY.ordinal())
                     return index % 4 == 0 ? formatter.formatDate(new Date(time)) : "";
                 else
                     return index % 3 == 0 ? formatter.formatTime(new Date(time)) : "";
@@ -422,12 +423,12 @@ public class TradesChartsView extends ActivatableViewAndModel<VBox, TradesCharts
         label.setPadding(new Insets(0, 4, 0, 0));
 
         toggleGroup = new ToggleGroup();
-        ToggleButton year = getToggleButton(Res.get("time.year"), TradesChartsViewModel.TickUnit.YEAR, toggleGroup, "toggle-left");
-        ToggleButton month = getToggleButton(Res.get("time.month"), TradesChartsViewModel.TickUnit.MONTH, toggleGroup, "toggle-left");
-        ToggleButton week = getToggleButton(Res.get("time.week"), TradesChartsViewModel.TickUnit.WEEK, toggleGroup, "toggle-center");
-        ToggleButton day = getToggleButton(Res.get("time.day"), TradesChartsViewModel.TickUnit.DAY, toggleGroup, "toggle-center");
-        ToggleButton hour = getToggleButton(Res.get("time.hour"), TradesChartsViewModel.TickUnit.HOUR, toggleGroup, "toggle-center");
-        ToggleButton minute10 = getToggleButton(Res.get("time.minute10"), TradesChartsViewModel.TickUnit.MINUTE_10, toggleGroup, "toggle-center");
+        ToggleButton year = getToggleButton(Res.get("time.year"), TickUnit.YEAR, toggleGroup, "toggle-left");
+        ToggleButton month = getToggleButton(Res.get("time.month"), TickUnit.MONTH, toggleGroup, "toggle-left");
+        ToggleButton week = getToggleButton(Res.get("time.week"), TickUnit.WEEK, toggleGroup, "toggle-center");
+        ToggleButton day = getToggleButton(Res.get("time.day"), TickUnit.DAY, toggleGroup, "toggle-center");
+        ToggleButton hour = getToggleButton(Res.get("time.hour"), TickUnit.HOUR, toggleGroup, "toggle-center");
+        ToggleButton minute10 = getToggleButton(Res.get("time.minute10"), TickUnit.MINUTE_10, toggleGroup, "toggle-center");
 
         HBox hBox = new HBox();
         hBox.setSpacing(0);
@@ -437,7 +438,7 @@ public class TradesChartsView extends ActivatableViewAndModel<VBox, TradesCharts
         return hBox;
     }
 
-    private ToggleButton getToggleButton(String label, TradesChartsViewModel.TickUnit tickUnit, ToggleGroup toggleGroup, String style) {
+    private ToggleButton getToggleButton(String label, TickUnit tickUnit, ToggleGroup toggleGroup, String style) {
         ToggleButton toggleButton = new ToggleButton(label);
         toggleButton.setPadding(new Insets(0, 5, 0, 5));
         toggleButton.setUserData(tickUnit);
@@ -26,7 +26,9 @@ import io.bisq.common.locale.TradeCurrency;
 import io.bisq.common.monetary.Altcoin;
 import io.bisq.common.util.MathUtils;
 import io.bisq.core.provider.price.PriceFeedService;
+import io.bisq.core.trade.statistics.TickUnit;
 import io.bisq.core.trade.statistics.TradeStatistics;
+import io.bisq.core.trade.statistics.TradeStatisticsCandle;
 import io.bisq.core.trade.statistics.TradeStatisticsManager;
 import io.bisq.core.user.Preferences;
 import io.bisq.gui.Navigation;
@@ -50,28 +52,15 @@ import org.bitcoinj.core.Coin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 class TradesChartsViewModel extends ActivatableViewModel {
     private static final Logger log = LoggerFactory.getLogger(TradesChartsViewModel.class);
     private static final int TAB_INDEX = 2;
 
-
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Enum
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
-    public enum TickUnit {
-        YEAR,
-        MONTH,
-        WEEK,
-        DAY,
-        HOUR,
-        MINUTE_10
-    }
-
     private final TradeStatisticsManager tradeStatisticsManager;
     final Preferences preferences;
     private PriceFeedService priceFeedService;
@@ -241,29 +230,15 @@ class TradesChartsViewModel extends ActivatableViewModel {
                 .filter(e -> showAllTradeCurrenciesProperty.get() || e.getCurrencyCode().equals(getCurrencyCode()))
                 .collect(Collectors.toList()));
 
-        // Get all entries for the defined time interval
-        Map<Long, Set<TradeStatistics>> itemsPerInterval = new HashMap<>();
-        final long dateAsTime = new Date().getTime();
-        tradeStatisticsByCurrency.stream().forEach(e -> {
-            Set<TradeStatistics> set;
-            final long time = getTickFromTime(e.getTradeDate().getTime(), tickUnit);
-            final long now = getTickFromTime(dateAsTime, tickUnit);
-            long index = maxTicks - (now - time);
-            if (itemsPerInterval.containsKey(index)) {
-                set = itemsPerInterval.get(index);
-            } else {
-                set = new HashSet<>();
-                itemsPerInterval.put(index, set);
-            }
-            set.add(e);
-        });
-
-        // create CandleData for defined time interval
-        List<CandleData> candleDataList = itemsPerInterval.entrySet().stream()
-                .filter(entry -> entry.getKey() >= 0)
-                .map(entry -> getCandleData(entry.getKey(), entry.getValue()))
+        // The candles are maintained by the TradeStatisticsManager, so we only need to look them up
+        final long now = getTickFromTime(new Date().getTime(), tickUnit);
+        final long fromTick = now - maxTicks;
+        List<TradeStatisticsCandle> candles = showAllTradeCurrenciesProperty.get() ?
+                tradeStatisticsManager.getCandles().getCandlesOfAllCurrencies(tickUnit, fromTick) :
+                tradeStatisticsManager.getCandles().getCandles(getCurrencyCode(), tickUnit, fromTick);
+        List<CandleData> candleDataList = candles.stream()
+                .map(candle -> getCandleData(candle.getTick() - fromTick, candle))
                 .collect(Collectors.toList());
-        candleDataList.sort((o1, o2) -> (o1.tick < o2.tick ? -1 : (o1.tick == o2.tick ? 0 : 1)));
 
         //noinspection Convert2Diamond
         priceItems.setAll(candleDataList.stream()
@@ -277,34 +252,21 @@ class TradesChartsViewModel extends ActivatableViewModel {
     }
 
     @VisibleForTesting
-    CandleData getCandleData(long tick, Set<TradeStatistics> set) {
-        long open = 0;
-        long close = 0;
-        long high = 0;
-        long low = 0;
-        long accumulatedVolume = 0;
-        long accumulatedAmount = 0;
-        long numTrades = set.size();
-
-        for (TradeStatistics item : set) {
-            long tradePriceAsLong = item.getTradePrice().getValue();
-            if (CurrencyUtil.isCryptoCurrency(getCurrencyCode())) {
-                low = (low != 0) ? Math.max(low, tradePriceAsLong) : tradePriceAsLong;
-                high = (high != 0) ? Math.min(high, tradePriceAsLong) : tradePriceAsLong;
-            } else {
-                low = (low != 0) ? Math.min(low, tradePriceAsLong) : tradePriceAsLong;
-                high = (high != 0) ? Math.max(high, tradePriceAsLong) : tradePriceAsLong;
-            }
-
-            accumulatedVolume += (item.getTradeVolume() != null) ? item.getTradeVolume().getValue() : 0;
-            accumulatedAmount += item.getTradeAmount().getValue();
-        }
+    CandleData getCandleData(long tick, TradeStatisticsCandle candle) {
+        long open = candle.getOpen();
+        long close = candle.getClose();
+        long high;
+        long low;
+        long accumulatedVolume = candle.getAccumulatedVolume();
+        long accumulatedAmount = candle.getAccumulatedAmount();
+        long numTrades = candle.getNumTrades();
 
-        List<TradeStatistics> list = new ArrayList<>(set);
-        list.sort((o1, o2) -> (o1.getTradeDate().getTime() < o2.getTradeDate().getTime() ? -1 : (o1.getTradeDate().getTime() == o2.getTradeDate().getTime() ? 0 : 1)));
-        if (list.size() > 0) {
-            open = list.get(0).getTradePrice().getValue();
-            close = list.get(list.size() - 1).getTradePrice().getValue();
+        if (CurrencyUtil.isCryptoCurrency(getCurrencyCode())) {
+            low = candle.getMaxPrice();
+            high = candle.getMinPrice();
+        } else {
+            low = candle.getMinPrice();
+            high = candle.getMaxPrice();
         }
 
         long averagePrice;
@@ -329,47 +291,13 @@ class TradesChartsViewModel extends ActivatableViewModel {
     }
 
     long getTickFromTime(long tradeDateAsTime, TickUnit tickUnit) {
-        switch (tickUnit) {
-            case YEAR:
-                return TimeUnit.MILLISECONDS.toDays(tradeDateAsTime) / 365;
-            case MONTH:
-                return TimeUnit.MILLISECONDS.toDays(tradeDateAsTime) / 31;
-            case WEEK:
-                return TimeUnit.MILLISECONDS.toDays(tradeDateAsTime) / 7;
-            case DAY:
-                return TimeUnit.MILLISECONDS.toDays(tradeDateAsTime);
-            case HOUR:
-                return TimeUnit.MILLISECONDS.toHours(tradeDateAsTime);
-            case MINUTE_10:
-                return TimeUnit.MILLISECONDS.toMinutes(tradeDateAsTime) / 10;
-            default:
-                return tradeDateAsTime;
-        }
-    }
-
-    private long getTimeFromTick(long tick, TickUnit tickUnit) {
-        switch (tickUnit) {
-            case YEAR:
-                return TimeUnit.DAYS.toMillis(tick) * 365;
-            case MONTH:
-                return TimeUnit.DAYS.toMillis(tick) * 31;
-            case WEEK:
-                return TimeUnit.DAYS.toMillis(tick) * 7;
-            case DAY:
-                return TimeUnit.DAYS.toMillis(tick);
-            case HOUR:
-                return TimeUnit.HOURS.toMillis(tick);
-            case MINUTE_10:
-                return TimeUnit.MINUTES.toMillis(tick) * 10;
-            default:
-                return tick;
-        }
+        return tickUnit.getTickFromTime(tradeDateAsTime);
     }
 
     long getTimeFromTickIndex(long index) {
         long now = getTickFromTime(new Date().getTime(), tickUnit);
         long tick = now - (maxTicks - index);
-        return getTimeFromTick(tick, tickUnit);
+        return tickUnit.getTimeFromTick(tick);
     }
 
     private boolean isShowAllEntry(String id) {
@@ -26,7 +26,7 @@ import javafx.collections.ObservableList;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -62,20 +62,28 @@ public class OfferBook {
 
             @Override
             public void onRemoved(Offer offer) {
-                // Update state in case that that offer is used in the take offer screen, so it gets updated correctly
-                offer.setState(Offer.State.REMOVED);
-
-                // clean up possible references in openOfferManager 
-                tradeManager.onOfferRemovedFromRemoteOfferBook(offer);
-                Optional<OfferBookListItem> candidate = offerBookListItems.stream()
-                        .filter(item -> item.getOffer().getId().equals(offer.getId()))
-                        .findAny();
-                if (candidate.isPresent()) {
-                    OfferBookListItem item = candidate.get();
-                    if (offerBookListItems.contains(item)) {
-                        offerBookListItems.remove(item);
-                        Log.logIfStressTests("OfferPayload removed: No. of offers = " + offerBookListItems.size());
-                    }
+                onRemoved(Collections.singletonList(offer));
+            }
+
+            @Override
+            public void onRemoved(Collection<Offer> offers) {
+                Set<String> offerIds = new HashSet<>();
+                offers.forEach(offer -> {
+                    // Update state in case that that offer is used in the take offer screen, so it gets updated correctly
+                    offer.setState(Offer.State.REMOVED);
+
+                    // clean up possible references in openOfferManager 
+                    tradeManager.onOfferRemovedFromRemoteOfferBook(offer);
+                    offerIds.add(offer.getId());
+                });
+
+                // We remove all items at once so the list views get only one change event
+                List<OfferBookListItem> items = offerBookListItems.stream()
+                        .filter(item -> offerIds.contains(item.getOffer().getId()))
+                        .collect(Collectors.toList());
+                if (!items.isEmpty()) {
+                    offerBookListItems.removeAll(items);
+                    Log.logIfStressTests("OfferPayload removed: No. of offers = " + offerBookListItems.size());
                 }
             }
         });
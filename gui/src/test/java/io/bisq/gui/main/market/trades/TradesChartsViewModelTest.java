@@ -2,7 +2,9 @@ package io.bisq.gui.main.market.trades;
 
 import io.bisq.common.monetary.Price;
 import io.bisq.core.offer.OfferPayload;
+import io.bisq.core.trade.statistics.TickUnit;
 import io.bisq.core.trade.statistics.TradeStatistics;
+import io.bisq.core.trade.statistics.TradeStatisticsCandles;
 import io.bisq.gui.main.market.trades.charts.CandleData;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.utils.Fiat;
@@ -84,7 +86,10 @@ public class TradesChartsViewModelTest {
         set.add(new TradeStatistics(offer, Price.parse("600", "EUR"), Coin.parseCoin("1"), new Date(now.getTime() + 200), null, null));
         set.add(new TradeStatistics(offer, Price.parse("580", "EUR"), Coin.parseCoin("1"), new Date(now.getTime() + 300), null, null));
 
-        CandleData candleData = model.getCandleData(model.getTickFromTime(now.getTime(), TradesChartsViewModel.TickUnit.DAY), set);
+        TradeStatisticsCandles candles = new TradeStatisticsCandles();
+        set.forEach(candles::add);
+        final long tick = model.getTickFromTime(now.getTime(), TickUnit.DAY);
+        CandleData candleData = model.getCandleData(tick, candles.getCandlesOfAllCurrencies(TickUnit.DAY, tick).get(0));
         assertEquals(open, candleData.open);
         assertEquals(close, candleData.close);
         assertEquals(high, candleData.high);
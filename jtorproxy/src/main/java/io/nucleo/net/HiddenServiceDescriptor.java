@@ -8,7 +8,12 @@ public class HiddenServiceDescriptor extends ServiceDescriptor {
     private final int localPort;
 
     public HiddenServiceDescriptor(String serviceName, int localPort, int servicePort) throws IOException {
-        super(serviceName, servicePort);
+        this(serviceName, localPort, servicePort, false);
+    }
+
+    public HiddenServiceDescriptor(String serviceName, int localPort, int servicePort, boolean channelBacked)
+            throws IOException {
+        super(serviceName, servicePort, channelBacked);
         this.localPort = localPort;
         this.serverSocket.bind(new InetSocketAddress(TorNode.PROXY_LOCALHOST, localPort));
     }
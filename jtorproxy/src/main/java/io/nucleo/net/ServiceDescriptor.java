@@ -2,6 +2,7 @@ package io.nucleo.net;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 public abstract class ServiceDescriptor {
 
@@ -10,9 +11,15 @@ public abstract class ServiceDescriptor {
     protected final ServerSocket serverSocket;
 
     public ServiceDescriptor(String hostname, int servicePort) throws IOException {
+        this(hostname, servicePort, false);
+    }
+
+    // A channel backed server socket is only needed if the accepted sockets are used with a selector.
+    // Blocking accept() and stream based IO work the same as with a plain ServerSocket.
+    public ServiceDescriptor(String hostname, int servicePort, boolean channelBacked) throws IOException {
         this.hostname = hostname;
         this.servicePort = servicePort;
-        this.serverSocket = new ServerSocket();
+        this.serverSocket = channelBacked ? ServerSocketChannel.open().socket() : new ServerSocket();
     }
 
     public String getHostname() {
@@ -89,10 +89,18 @@ public abstract class TorNode<M extends OnionProxyManager, C extends OnionProxyC
 
     public HiddenServiceDescriptor createHiddenService(final int localPort, final int servicePort,
                                                        final HiddenServiceReadyListener listener) throws IOException {
+        return createHiddenService(localPort, servicePort, listener, false);
+    }
+
+    // If channelBacked is set the server socket is created from a ServerSocketChannel, so the accepted sockets can
+    // be used with a selector.
+    public HiddenServiceDescriptor createHiddenService(final int localPort, final int servicePort,
+                                                       final HiddenServiceReadyListener listener,
+                                                       final boolean channelBacked) throws IOException {
         log.debug("Publishing Hidden Service. This will at least take half a minute...");
         final String hiddenServiceName = tor.publishHiddenService(servicePort, localPort);
         final HiddenServiceDescriptor hiddenServiceDescriptor = new HiddenServiceDescriptor(hiddenServiceName,
-                localPort, servicePort);
+                localPort, servicePort, channelBacked);
         if (listener != null)
             tor.attachHiddenServiceReadyListener(hiddenServiceDescriptor, listener);
         return hiddenServiceDescriptor;
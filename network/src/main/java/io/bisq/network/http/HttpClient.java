@@ -27,6 +27,9 @@ import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -34,6 +37,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class HttpClient {
     private static final Logger log = LoggerFactory.getLogger(HttpClient.class);
 
+    // The price and fee requests are repeated about every minute, so we keep the connections open a bit longer
+    private static final long MAX_IDLE_TIME_SEC = 120;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 2;
+    private static final int MAX_CONNECTIONS_TOTAL = 10;
+    // Connections which have not been used for that time get checked before they are reused
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
 
     @Nullable
     private Socks5ProxyProvider socks5ProxyProvider;
@@ -42,6 +51,19 @@ public class HttpClient {
     private boolean ignoreSocks5Proxy;
     private final String uid;
 
+    // The client with its connection pool is reused for all requests over the same socks5 proxy, so we don't need a
+    // new socks5 handshake and Tor stream for each request. Connections are pooled per route (host).
+    @Nullable
+    private CloseableHttpClient proxyHttpClient;
+    @Nullable
+    private Socks5Proxy proxyHttpClientSocks5Proxy;
+
+    private final AtomicLong numRequests = new AtomicLong();
+    private final AtomicLong numFailedRequests = new AtomicLong();
+    private final AtomicLong accumulatedLatencyMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private volatile long lastLatencyMs;
+
     @Inject
     public HttpClient(@Nullable Socks5ProxyProvider socks5ProxyProvider) {
         this.socks5ProxyProvider = socks5ProxyProvider;
@@ -89,23 +111,33 @@ public class HttpClient {
         HttpURLConnection connection = null;
         log.debug("Executing HTTP request " + baseUrl + param + " proxy: none.");
         URL url = new URL(baseUrl + param);
+        long ts = System.currentTimeMillis();
         try {
             connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("GET");
             connection.setConnectTimeout(10_000);
             connection.setReadTimeout(10_000);
             connection.setRequestProperty("User-Agent", "bisq/" + Version.VERSION);
+            // The Apache client used for the socks5 proxy requests gzip by default, we do the same here
+            connection.setRequestProperty("Accept-Encoding", "gzip");
             if (headerKey != null && headerValue != null)
                 connection.setRequestProperty(headerKey, headerValue);
 
             if (connection.getResponseCode() == 200) {
-                return convertInputStreamToString(connection.getInputStream());
+                String result;
+                if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+                    result = convertInputStreamToString(new GZIPInputStream(connection.getInputStream()));
+                else
+                    result = convertInputStreamToString(connection.getInputStream());
+                onRequestCompleted(System.currentTimeMillis() - ts);
+                return result;
             } else {
                 String error = convertInputStreamToString(connection.getErrorStream());
                 connection.getErrorStream().close();
                 throw new HttpException(error);
             }
         } catch (Throwable t) {
+            numFailedRequests.incrementAndGet();
             throw new IOException("Error at requestWithGETNoProxy with URL: " + (baseUrl + param) + ". Throwable=" + t.getMessage());
         } finally {
             if (connection != null)
@@ -117,27 +149,36 @@ public class HttpClient {
         return uid;
     }
 
+    public long getNumRequests() {
+        return numRequests.get();
+    }
+
+    public long getNumFailedRequests() {
+        return numFailedRequests.get();
+    }
+
+    public long getAverageLatencyMs() {
+        long numRequests = this.numRequests.get();
+        return numRequests > 0 ? accumulatedLatencyMs.get() / numRequests : 0;
+    }
+
+    public long getMaxLatencyMs() {
+        return maxLatencyMs.get();
+    }
+
+    public long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
 
     /**
      * Make an HTTP Get request routed over socks5 proxy.
      */
     private String requestWithGETProxy(String param, Socks5Proxy socks5Proxy, @Nullable String headerKey, @Nullable String headerValue) throws IOException {
         log.debug("requestWithGETProxy param=" + param);
-        // This code is adapted from:
-        //  http://stackoverflow.com/a/25203021/5616248
-
-        // Register our own SocketFactories to override createSocket() and connectSocket().
-        // connectSocket does NOT resolve hostname before passing it to proxy.
-        Registry<ConnectionSocketFactory> reg = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", new SocksConnectionSocketFactory())
-                .register("https", new SocksSSLConnectionSocketFactory(SSLContexts.createSystemDefault())).build();
-
-        // Use FakeDNSResolver if not resolving DNS locally.
-        // This prevents a local DNS lookup (which would be ignored anyway)
-        PoolingHttpClientConnectionManager cm = socks5Proxy.resolveAddrLocally() ?
-                new PoolingHttpClientConnectionManager(reg) :
-                new PoolingHttpClientConnectionManager(reg, new FakeDnsResolver());
-        try (CloseableHttpClient httpclient = HttpClients.custom().setConnectionManager(cm).build()) {
+        long ts = System.currentTimeMillis();
+        try {
+            CloseableHttpClient httpclient = getProxyHttpClient(socks5Proxy);
             InetSocketAddress socksaddr = new InetSocketAddress(socks5Proxy.getInetAddress(), socks5Proxy.getPort());
 
             // remove me: Use this to test with system-wide Tor proxy, or change port for another proxy.
@@ -151,14 +192,60 @@ public class HttpClient {
                 request.setHeader(headerKey, headerValue);
 
             log.debug("Executing request " + request + " proxy: " + socksaddr);
+            // The connection is released to the pool when the response is closed after we have read the content
             try (CloseableHttpResponse response = httpclient.execute(request, context)) {
-                return convertInputStreamToString(response.getEntity().getContent());
+                String result = convertInputStreamToString(response.getEntity().getContent());
+                onRequestCompleted(System.currentTimeMillis() - ts);
+                return result;
             }
         } catch (Throwable t) {
+            numFailedRequests.incrementAndGet();
             throw new IOException("Error at requestWithGETProxy with URL: " + (baseUrl + param) + ". Throwable=" + t.getMessage());
         }
     }
 
+    private synchronized CloseableHttpClient getProxyHttpClient(Socks5Proxy socks5Proxy) throws IOException {
+        if (proxyHttpClient == null || proxyHttpClientSocks5Proxy != socks5Proxy) {
+            if (proxyHttpClient != null)
+                proxyHttpClient.close();
+
+            // This code is adapted from:
+            //  http://stackoverflow.com/a/25203021/5616248
+
+            // Register our own SocketFactories to override createSocket() and connectSocket().
+            // connectSocket does NOT resolve hostname before passing it to proxy.
+            Registry<ConnectionSocketFactory> reg = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", new SocksConnectionSocketFactory())
+                    .register("https", new SocksSSLConnectionSocketFactory(SSLContexts.createSystemDefault())).build();
+
+            // Use FakeDNSResolver if not resolving DNS locally.
+            // This prevents a local DNS lookup (which would be ignored anyway)
+            PoolingHttpClientConnectionManager cm = socks5Proxy.resolveAddrLocally() ?
+                    new PoolingHttpClientConnectionManager(reg) :
+                    new PoolingHttpClientConnectionManager(reg, new FakeDnsResolver());
+            cm.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+            cm.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+            cm.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+            // The evictor runs on a daemon thread
+            proxyHttpClient = HttpClients.custom()
+                    .setConnectionManager(cm)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(MAX_IDLE_TIME_SEC, TimeUnit.SECONDS)
+                    .build();
+            proxyHttpClientSocks5Proxy = socks5Proxy;
+        }
+        return proxyHttpClient;
+    }
+
+    private void onRequestCompleted(long latencyMs) {
+        numRequests.incrementAndGet();
+        accumulatedLatencyMs.addAndGet(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        lastLatencyMs = latencyMs;
+        log.debug("Request to {} completed in {} ms. Average latency: {} ms", baseUrl, latencyMs, getAverageLatencyMs());
+    }
+
     private String convertInputStreamToString(InputStream inputStream) throws IOException {
         BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
         StringBuilder stringBuilder = new StringBuilder();
@@ -0,0 +1,14 @@
+package io.bisq.network.p2p;
+
+import java.util.List;
+
+/**
+ * Used for message types which are not known by nodes with an old version. We only send such messages to nodes
+ * which support one of the required capabilities.
+ */
+public interface CapabilityRequiringMessage {
+    /**
+     * @return Capabilities the other node need to support to receive that message
+     */
+    List<Integer> getRequiredCapabilities();
+}
@@ -1,6 +1,7 @@
 package io.bisq.network.p2p;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
@@ -36,6 +37,7 @@ import io.bisq.network.p2p.storage.HashMapChangedListener;
 import io.bisq.network.p2p.storage.P2PDataStorage;
 import io.bisq.network.p2p.storage.messages.AddDataMessage;
 import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import io.bisq.network.p2p.storage.messages.BulkRefreshOfferMessage;
 import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
 import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
 import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
@@ -117,6 +119,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                       @Named(NetworkOptionKeys.PORT_KEY) int port,
                       @Named(NetworkOptionKeys.TOR_DIR) File torDir,
                       @Named(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P) boolean useLocalhostForP2P,
+                      @Named(NetworkOptionKeys.USE_NIO_TRANSPORT) boolean useNioTransport,
                       @Named(NetworkOptionKeys.NETWORK_ID) int networkId,
                       @Named(NetworkOptionKeys.MAX_CONNECTIONS) int maxConnections,
                       @Named(Storage.STORAGE_DIR) File storageDir,
@@ -147,6 +150,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                 networkProtoResolver,
                 persistenceProtoResolver
         );
+
+        networkNode.setUseNioTransport(useNioTransport);
     }
 
     @VisibleForTesting
@@ -214,7 +219,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
 
         peerManager = new PeerManager(networkNode, maxConnections, seedNodeAddresses, storageDir, clock, persistenceProtoResolver);
         broadcaster = new Broadcaster(networkNode, peerManager);
-        p2PDataStorage = new P2PDataStorage(broadcaster, networkNode, storageDir, persistenceProtoResolver);
+        p2PDataStorage = new P2PDataStorage(broadcaster, networkNode, storageDir, networkProtoResolver, persistenceProtoResolver);
         p2PDataStorage.addHashMapChangedListener(this);
         requestDataManager = new RequestDataManager(networkNode, p2PDataStorage, peerManager, seedNodeAddresses, this);
         peerExchangeManager = new PeerExchangeManager(networkNode, peerManager, seedNodeAddresses);
@@ -819,6 +824,32 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         }
     }
 
+    // The refreshes are sent in BulkRefreshOfferMessages instead of one RefreshOfferMessage per payload
+    public boolean refreshTTL(Collection<? extends StoragePayload> storagePayloads, boolean isDataOwner) {
+        Log.traceCall();
+        checkArgument(optionalKeyRing.isPresent(), "keyRing not set. Seems that is called on a seed node which must not happen.");
+        if (isBootstrapped()) {
+            try {
+                List<RefreshOfferMessage> refreshTTLMessages = new ArrayList<>();
+                for (StoragePayload storagePayload : storagePayloads)
+                    refreshTTLMessages.add(p2PDataStorage.getRefreshTTLMessage(storagePayload, optionalKeyRing.get().getSignatureKeyPair()));
+
+                boolean result = true;
+                for (List<RefreshOfferMessage> partition : Lists.partition(refreshTTLMessages,
+                        BulkRefreshOfferMessage.MAX_REFRESH_OFFER_MESSAGES)) {
+                    result &= p2PDataStorage.refreshTTL(new BulkRefreshOfferMessage(partition),
+                            networkNode.getNodeAddress(), isDataOwner);
+                }
+                return result;
+            } catch (CryptoException e) {
+                log.error("Signing at getDataWithSignedSeqNr failed. That should never happen.");
+                return false;
+            }
+        } else {
+            throw new NetworkNotReadyException();
+        }
+    }
+
     public boolean removeData(StoragePayload storagePayload, boolean isDataOwner) {
         Log.traceCall();
         checkArgument(optionalKeyRing.isPresent(), "keyRing not set. Seems that is called on a seed node which must not happen.");
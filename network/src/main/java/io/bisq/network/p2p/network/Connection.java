@@ -19,6 +19,7 @@ import io.bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
 import io.bisq.network.p2p.peers.keepalive.messages.Ping;
 import io.bisq.network.p2p.peers.keepalive.messages.Pong;
 import io.bisq.network.p2p.storage.messages.AddDataMessage;
+import io.bisq.network.p2p.storage.messages.BulkRefreshOfferMessage;
 import io.bisq.network.p2p.storage.messages.RefreshOfferMessage;
 import io.bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
 import io.bisq.network.p2p.storage.payload.StoragePayload;
@@ -37,8 +38,11 @@ import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -74,7 +78,27 @@ public class Connection implements MessageListener {
     //TODO decrease limits again after testing
     static final int MSG_THROTTLE_PER_SEC = 200;              // With MAX_MSG_SIZE of 200kb results in bandwidth of 40MB/sec or 5 mbit/sec
     static final int MSG_THROTTLE_PER_10_SEC = 1000;          // With MAX_MSG_SIZE of 200kb results in bandwidth of 20MB/sec or 2.5 mbit/sec
+    // A BulkRefreshOfferMessage counts as one message per that many refreshes for the throttle limits
+    private static final int REFRESH_OFFER_MESSAGES_PER_THROTTLE_UNIT = 10;
     private static final int SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+    // Max. number of messages waiting to be sent. If a peer is too slow to consume them we drop new messages.
+    static final int MAX_OUTBOUND_QUEUE_SIZE = 500;
+    // Outbound rate limit: bursts of SEND_BURST_SIZE messages and SEND_MSG_PER_SEC messages per second on average
+    private static final int SEND_BURST_SIZE = 20;
+    private static final int SEND_MSG_PER_SEC = 50;
+    // Max. number of messages/bytes we write in one batch before we flush
+    private static final int MAX_BATCH_SIZE = 20;
+    private static final int MAX_BATCH_BYTES = 1024 * 1024;
+    private static final int SEND_BUFFER_SIZE = 64 * 1024;
+    private static final long WRITE_TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+    // Max. time we wait for the writer to finish its batch before we write the CloseConnectionMessage
+    private static final long CLOSE_MESSAGE_TIMEOUT = 500;
+    // Max. number/bytes of received frames waiting to be handled on a NioTransport connection. If exceeded we stop
+    // reading from the channel until all pending frames are handled.
+    private static final int MAX_PENDING_FRAMES = 100;
+    private static final int MAX_PENDING_FRAME_BYTES = MAX_PERMITTED_MESSAGE_SIZE;
+    // Delay before the writer checks again if a NioTransport connection has a write backlog
+    private static final long WRITE_BACKLOG_RETRY_DELAY = 100;
 
     public static int getPermittedMessageSize() {
         return PERMITTED_MESSAGE_SIZE;
@@ -82,6 +106,16 @@ public class Connection implements MessageListener {
 
     private static final CycleDetectingLockFactory cycleDetectingLockFactory = CycleDetectingLockFactory.newInstance(CycleDetectingLockFactory.Policies.THROW);
 
+    // Writes the queued messages of the NioTransport connections, which never block on a slow peer.
+    // Connections with a blocking socket get their own writer, see writerExecutor.
+    private static final ScheduledThreadPoolExecutor nioWriterExecutor = Utilities.getScheduledThreadPoolExecutor("Connection.nioWriter", 4, 4, 60);
+    // Blocking sockets have no write timeout, so a peer not reading our data would block a writer thread forever.
+    // If a batch is not written within WRITE_TIMEOUT we close the connection, which releases the writer thread.
+    private static final ScheduledThreadPoolExecutor writeTimeoutExecutor = Utilities.getScheduledThreadPoolExecutor("Connection.writeTimeout", 1, 1, 60);
+    // Shared by the connections handled by the NioTransport. Received messages are resolved, checked and delivered
+    // there, so the selector loops only read and parse the frames.
+    private static final ScheduledThreadPoolExecutor nioMessageExecutor = Utilities.getScheduledThreadPoolExecutor("Connection.nioMessage", 4, 8, 60);
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Class fields
@@ -93,6 +127,8 @@ public class Connection implements MessageListener {
     private final String portInfo;
     private final String uid;
     private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+    // Writes the queued messages so that caller threads never block on a slow peer. Set in init.
+    private ScheduledExecutorService writerExecutor;
     private final ReentrantLock protoOutputStreamLock = cycleDetectingLockFactory.newReentrantLock("protoOutputStreamLock");
     // holder of state shared between InputHandler and Connection
     private final SharedModel sharedModel;
@@ -101,6 +137,9 @@ public class Connection implements MessageListener {
     // set in init
     private InputHandler inputHandler;
     private OutputStream protoOutputStream;
+    // null if the connection is not handled by the NioTransport
+    @Nullable
+    private NioTransport.ChannelHandle channelHandle;
 
     // mutable data, set from other threads but not changed internally.
     private Optional<NodeAddress> peersNodeAddressOptional = Optional.empty();
@@ -109,7 +148,10 @@ public class Connection implements MessageListener {
     private final ObjectProperty<NodeAddress> peersNodeAddressProperty = new SimpleObjectProperty<>();
     private final List<Tuple2<Long, NetworkEnvelope>> messageTimeStamps = new ArrayList<>();
     private final CopyOnWriteArraySet<MessageListener> messageListeners = new CopyOnWriteArraySet<>();
-    private volatile long lastSendTimeStamp = 0;
+    private final BlockingQueue<EncodedEnvelope> outboundQueue = new LinkedBlockingQueue<>(MAX_OUTBOUND_QUEUE_SIZE);
+    private final AtomicBoolean writerScheduled = new AtomicBoolean();
+    // Only accessed by the writer
+    private final TokenBucket sendTokenBucket = new TokenBucket(SEND_BURST_SIZE, SEND_MSG_PER_SEC);
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -118,6 +160,12 @@ public class Connection implements MessageListener {
 
     Connection(Socket socket, MessageListener messageListener, ConnectionListener connectionListener,
                @Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
+        this(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver, null);
+    }
+
+    Connection(Socket socket, MessageListener messageListener, ConnectionListener connectionListener,
+               @Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver,
+               @Nullable NioTransport nioTransport) {
         this.socket = socket;
         this.connectionListener = connectionListener;
         uid = UUID.randomUUID().toString();
@@ -132,22 +180,38 @@ public class Connection implements MessageListener {
         else
             portInfo = "localPort=" + socket.getLocalPort() + "/port=" + socket.getPort();
 
-        init(peersNodeAddress, networkProtoResolver);
+        init(peersNodeAddress, networkProtoResolver, nioTransport);
     }
 
-    private void init(@Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
+    private void init(@Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver,
+                      @Nullable NioTransport nioTransport) {
         try {
-            socket.setSoTimeout(SOCKET_TIMEOUT);
-            // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
-            // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
-            // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
-            // the associated ObjectOutputStream on the other end of the connection has written.
-            // It will not return until that header has been read.
-            protoOutputStream = socket.getOutputStream();
-            InputStream protoInputStream = socket.getInputStream();
-            // We create a thread for handling inputStream data
-            inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
-            singleThreadExecutor.submit(inputHandler);
+            if (nioTransport != null && NioTransport.supports(socket)) {
+                // The selector loop reads and decodes the frames and calls the inputHandler, so we don't need a
+                // thread for that connection.
+                inputHandler = new InputHandler(sharedModel, null, portInfo, this, networkProtoResolver);
+                channelHandle = nioTransport.register(socket.getChannel(), inputHandler,
+                        inputHandler.frameDecoder, SOCKET_TIMEOUT, WRITE_TIMEOUT);
+                protoOutputStream = channelHandle.getOutputStream();
+                inputHandler.setChannelHandle(channelHandle);
+                writerExecutor = nioWriterExecutor;
+            } else {
+                socket.setSoTimeout(SOCKET_TIMEOUT);
+                // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
+                // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
+                // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
+                // the associated ObjectOutputStream on the other end of the connection has written.
+                // It will not return until that header has been read.
+                // We buffer the output so that a batch of messages results in one write to the socket
+                protoOutputStream = new BufferedOutputStream(socket.getOutputStream(), SEND_BUFFER_SIZE);
+                InputStream protoInputStream = socket.getInputStream();
+                // We create a thread for handling inputStream data
+                inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
+                singleThreadExecutor.submit(inputHandler);
+                // A write to a blocking socket can block up to WRITE_TIMEOUT, so we don't want to share the writer
+                // thread with other connections. The thread terminates if there is nothing to write.
+                writerExecutor = Utilities.getScheduledThreadPoolExecutor("Connection.writer-" + uid, 1, 1, 10);
+            }
 
             // Use Peer as default, in case of other types they will set it as soon as possible.
             peerType = PeerType.PEER;
@@ -174,32 +238,26 @@ public class Connection implements MessageListener {
     // API
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // Called from various threads
+    // Called from various threads. We only add the message to the outbound queue, the writer sends it.
+    // Throws an OutboundQueueFullException if the message was dropped because the peer does not consume our
+    // messages fast enough.
     public void sendMessage(NetworkEnvelope networkEnvelope) {
         log.debug(">> Send networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
 
         if (!stopped) {
             if (!isCapabilityRequired(networkEnvelope) || isCapabilitySupported(networkEnvelope)) {
+                EncodedEnvelope encodedEnvelope = null;
                 try {
                     Log.traceCall();
 
-                    // Throttle outbound network_messages
-                    long now = System.currentTimeMillis();
-                    long elapsed = now - lastSendTimeStamp;
-                    if (elapsed < 20) {
-                        log.debug("We got 2 sendMessage requests in less than 20 ms. We set the thread to sleep " +
-                                        "for 50 ms to avoid flooding our peer. lastSendTimeStamp={}, now={}, elapsed={}",
-                                lastSendTimeStamp, now, elapsed);
-                        Thread.sleep(50);
-                    }
-
-                    lastSendTimeStamp = now;
                     String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
 
                     PB.NetworkEnvelope proto = networkEnvelope.toProtoNetworkEnvelope();
-                    log.debug("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
+                    if (log.isDebugEnabled())
+                        log.debug("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
 
-                    if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage) {
+                    if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage |
+                            networkEnvelope instanceof BulkRefreshOfferMessage) {
                         // pings and offer refresh msg we dont want to log in production
                         log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
                                         "Sending direct message to peer" +
@@ -223,58 +281,166 @@ public class Connection implements MessageListener {
                                 peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), proto.getSerializedSize());
                     }
 
-                    if (!stopped) {
-                        protoOutputStreamLock.lock();
-                        proto.writeDelimitedTo(protoOutputStream);
-                        protoOutputStream.flush();
-
-                        statistic.addSentBytes(proto.getSerializedSize());
-                        statistic.addSentMessage(networkEnvelope);
-
-                        // We don't want to get the activity ts updated by ping/pong msg
-                        if (!(networkEnvelope instanceof KeepAliveMessage))
-                            statistic.updateLastActivityTimestamp();
-                    }
+                    encodedEnvelope = EncodedEnvelope.encode(networkEnvelope, proto);
                 } catch (Throwable t) {
                     handleException(t);
-                } finally {
-                    if (protoOutputStreamLock.isLocked())
-                        protoOutputStreamLock.unlock();
                 }
+
+                // A full queue is not a connection failure, so we let the caller handle it
+                if (encodedEnvelope != null && !stopped)
+                    enqueue(encodedEnvelope);
             }
         } else {
             log.debug("called sendMessage but was already stopped");
         }
     }
 
+    // Called from various threads. Used for broadcasts, where the same encodedEnvelope is sent to many connections.
+    // The caller has to check if the capabilities required by the message are supported by the peer.
+    // Throws an OutboundQueueFullException if the message was dropped.
+    public void sendMessage(EncodedEnvelope encodedEnvelope) {
+        log.debug(">> Send encoded networkEnvelope of type: {}", encodedEnvelope.getNetworkEnvelope().getClass().getSimpleName());
+        if (!stopped)
+            enqueue(encodedEnvelope);
+        else
+            log.debug("called sendMessage but was already stopped");
+    }
+
+    private void enqueue(EncodedEnvelope encodedEnvelope) {
+        if (outboundQueue.offer(encodedEnvelope)) {
+            statistic.setOutboundQueueSize(outboundQueue.size());
+            scheduleWriter(0);
+        } else {
+            NetworkEnvelope networkEnvelope = encodedEnvelope.getNetworkEnvelope();
+            log.warn("Outbound queue is full. We drop the message. queueSize={}, message={}, connection={}",
+                    outboundQueue.size(), networkEnvelope.getClass().getSimpleName(), this);
+            statistic.addDroppedMessage(networkEnvelope);
+            throw new OutboundQueueFullException("Outbound queue is full. We dropped the message " +
+                    networkEnvelope.getClass().getSimpleName());
+        }
+    }
+
+    private void scheduleWriter(long delayMs) {
+        // writerExecutor is null if init failed
+        if (writerExecutor != null && writerScheduled.compareAndSet(false, true))
+            writerExecutor.schedule(this::writeQueuedMessages, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs at the writerExecutor. Only one writer per connection is scheduled at a time.
+    // We write up to MAX_BATCH_SIZE messages and flush once. If we run out of send tokens we reschedule the
+    // writer for the time when the next token is available instead of blocking.
+    // Writes to a NioTransport connection never block, instead we reschedule the writer while the peer has not
+    // consumed the data written so far. The messages stay in the outboundQueue meanwhile, so its limit applies.
+    // The NioTransport closes the connection if the pending data cannot be written within WRITE_TIMEOUT.
+    private void writeQueuedMessages() {
+        long delayMs = 0;
+        ScheduledFuture<?> writeTimeoutFuture = null;
+        protoOutputStreamLock.lock();
+        try {
+            boolean writeBacklogged = channelHandle != null && channelHandle.isWriteBacklogged();
+            if (writeBacklogged) {
+                delayMs = WRITE_BACKLOG_RETRY_DELAY;
+                log.debug("Peer did not consume the data we have written so far. We retry in {} ms. queueSize={}",
+                        delayMs, outboundQueue.size());
+            } else if (!stopped && !outboundQueue.isEmpty() && channelHandle == null) {
+                writeTimeoutFuture = writeTimeoutExecutor.schedule(this::onWriteTimeout, WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+
+            int numMessages = 0;
+            int numBytes = 0;
+            boolean updateActivityTimestamp = false;
+            while (!stopped && !writeBacklogged && numMessages < MAX_BATCH_SIZE && numBytes < MAX_BATCH_BYTES && !outboundQueue.isEmpty()) {
+                if (!sendTokenBucket.tryConsume()) {
+                    delayMs = sendTokenBucket.getMillisUntilNextToken();
+                    log.debug("We reached the send rate limit. We write the next messages in {} ms. queueSize={}",
+                            delayMs, outboundQueue.size());
+                    break;
+                }
+
+                EncodedEnvelope encodedEnvelope = outboundQueue.poll();
+                NetworkEnvelope networkEnvelope = encodedEnvelope.getNetworkEnvelope();
+                encodedEnvelope.writeTo(protoOutputStream);
+                numMessages++;
+                int size = encodedEnvelope.getSize();
+                numBytes += size;
+
+                statistic.addSentBytes(size);
+                statistic.addSentMessage(encodedEnvelope.getMessageCase());
+
+                // We don't want to get the activity ts updated by ping/pong msg
+                if (!(networkEnvelope instanceof KeepAliveMessage))
+                    updateActivityTimestamp = true;
+            }
+
+            if (numMessages > 0) {
+                protoOutputStream.flush();
+                statistic.setOutboundQueueSize(outboundQueue.size());
+                if (updateActivityTimestamp)
+                    statistic.updateLastActivityTimestamp();
+            }
+        } catch (Throwable t) {
+            handleException(t);
+        } finally {
+            if (writeTimeoutFuture != null)
+                writeTimeoutFuture.cancel(false);
+            protoOutputStreamLock.unlock();
+            writerScheduled.set(false);
+        }
+
+        // Messages might have been added after our last check but before we reset writerScheduled
+        if (!stopped && !outboundQueue.isEmpty())
+            scheduleWriter(delayMs);
+    }
+
+    private void onWriteTimeout() {
+        log.warn("Writing to the socket did not complete within {} ms. We close the connection. queueSize={}, connection={}",
+                WRITE_TIMEOUT, outboundQueue.size(), this);
+        // Closing the socket lets the blocked write fail, so the writer thread gets released
+        handleException(new SocketTimeoutException("Write timed out after " + WRITE_TIMEOUT + " ms"));
+    }
+
+    // Writes the message directly, bypassing the outbound queue and the rate limit. We only wait
+    // CLOSE_MESSAGE_TIMEOUT ms for a writer which is in progress, as we close the connection anyway.
+    private void writeCloseConnectionMessage(CloseConnectionMessage closeConnectionMessage) throws IOException,
+            InterruptedException {
+        if (protoOutputStreamLock.tryLock(CLOSE_MESSAGE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            try {
+                EncodedEnvelope encodedEnvelope = EncodedEnvelope.encode(closeConnectionMessage);
+                encodedEnvelope.writeTo(protoOutputStream);
+                protoOutputStream.flush();
+                statistic.addSentBytes(encodedEnvelope.getSize());
+                statistic.addSentMessage(encodedEnvelope.getMessageCase());
+            } finally {
+                protoOutputStreamLock.unlock();
+            }
+        } else {
+            log.debug("We could not send the CloseConnectionMessage as the writer is blocked. connection={}", this);
+        }
+    }
+
     public boolean isCapabilitySupported(NetworkEnvelope networkEnvelop) {
-        if (networkEnvelop instanceof AddDataMessage) {
-            final StoragePayload storagePayload = (((AddDataMessage) networkEnvelop).getProtectedStorageEntry()).getStoragePayload();
-            if (storagePayload instanceof CapabilityRequiringPayload) {
-                final List<Integer> requiredCapabilities = ((CapabilityRequiringPayload) storagePayload).getRequiredCapabilities();
-                final List<Integer> supportedCapabilities = sharedModel.getSupportedCapabilities();
-                if (supportedCapabilities != null) {
-                    for (int messageCapability : requiredCapabilities) {
-                        for (int connectionCapability : supportedCapabilities) {
-                            if (messageCapability == connectionCapability)
-                                return true;
-                        }
+        final List<Integer> requiredCapabilities = getRequiredCapabilities(networkEnvelop);
+        if (requiredCapabilities != null) {
+            final List<Integer> supportedCapabilities = sharedModel.getSupportedCapabilities();
+            if (supportedCapabilities != null) {
+                for (int messageCapability : requiredCapabilities) {
+                    for (int connectionCapability : supportedCapabilities) {
+                        if (messageCapability == connectionCapability)
+                            return true;
                     }
-                    log.debug("We do not send the message to the peer because he does not support the required capability for that message type.\n" +
-                            "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
-                            "Supported capabilities is: " + supportedCapabilities.toString() + "\n" +
-                            "connection: " + this.toString() + "\n" +
-                            "storagePayload is: " + Utilities.toTruncatedString(storagePayload));
-                    return false;
-                } else {
-                    log.debug("We do not send the message to the peer because he uses an old version which does not support capabilities.\n" +
-                            "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
-                            "connection: " + this.toString() + "\n" +
-                            "storagePayload is: " + Utilities.toTruncatedString(storagePayload));
-                    return false;
                 }
+                log.debug("We do not send the message to the peer because he does not support the required capability for that message type.\n" +
+                        "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
+                        "Supported capabilities is: " + supportedCapabilities.toString() + "\n" +
+                        "connection: " + this.toString() + "\n" +
+                        "message is: " + Utilities.toTruncatedString(networkEnvelop));
+                return false;
             } else {
-                return true;
+                log.debug("We do not send the message to the peer because he uses an old version which does not support capabilities.\n" +
+                        "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
+                        "connection: " + this.toString() + "\n" +
+                        "message is: " + Utilities.toTruncatedString(networkEnvelop));
+                return false;
             }
         } else {
             return true;
@@ -283,7 +449,20 @@ public class Connection implements MessageListener {
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean isCapabilityRequired(NetworkEnvelope networkEnvelop) {
-        return networkEnvelop instanceof AddDataMessage && (((AddDataMessage) networkEnvelop).getProtectedStorageEntry()).getStoragePayload() instanceof CapabilityRequiringPayload;
+        return getRequiredCapabilities(networkEnvelop) != null;
+    }
+
+    // Returns null if the message can be sent to any peer
+    @Nullable
+    private static List<Integer> getRequiredCapabilities(NetworkEnvelope networkEnvelop) {
+        if (networkEnvelop instanceof CapabilityRequiringMessage) {
+            return ((CapabilityRequiringMessage) networkEnvelop).getRequiredCapabilities();
+        } else if (networkEnvelop instanceof AddDataMessage) {
+            final StoragePayload storagePayload = (((AddDataMessage) networkEnvelop).getProtectedStorageEntry()).getStoragePayload();
+            if (storagePayload instanceof CapabilityRequiringPayload)
+                return ((CapabilityRequiringPayload) storagePayload).getRequiredCapabilities();
+        }
+        return null;
     }
 
     public List<Integer> getSupportedCapabilities() {
@@ -312,6 +491,11 @@ public class Connection implements MessageListener {
     private boolean violatesThrottleLimit(NetworkEnvelope networkEnvelop) {
         long now = System.currentTimeMillis();
         boolean violated = false;
+        // A message with a weight > 1 counts as that many messages, the additional ones are added before the check
+        int weight = getThrottleWeight(networkEnvelop);
+        for (int i = 1; i < weight; i++)
+            addMessageTimeStamp(now, networkEnvelop);
+
         //TODO remove message storage after network is tested stable
         if (messageTimeStamps.size() >= MSG_THROTTLE_PER_SEC) {
             // check if we got more than 70 (MSG_THROTTLE_PER_SEC) msg per sec.
@@ -342,14 +526,30 @@ public class Connection implements MessageListener {
                             .collect(Collectors.toList()).toString());
                 }
             }
-            // we limit to max 50 (MSG_THROTTLE_PER_10SEC) entries
-            messageTimeStamps.remove(0);
         }
 
-        messageTimeStamps.add(new Tuple2<>(now, networkEnvelop));
+        addMessageTimeStamp(now, networkEnvelop);
         return violated;
     }
 
+    private void addMessageTimeStamp(long now, NetworkEnvelope networkEnvelop) {
+        // we limit to max 50 (MSG_THROTTLE_PER_10SEC) entries
+        if (messageTimeStamps.size() >= MSG_THROTTLE_PER_10_SEC)
+            messageTimeStamps.remove(0);
+
+        messageTimeStamps.add(new Tuple2<>(now, networkEnvelop));
+    }
+
+    // Each refresh of a BulkRefreshOfferMessage costs a signature verification. We count every
+    // REFRESH_OFFER_MESSAGES_PER_THROTTLE_UNIT refreshes as one message, so a full bulk message from a maker with
+    // many offers does not exceed MSG_THROTTLE_PER_SEC on its own.
+    private static int getThrottleWeight(NetworkEnvelope networkEnvelop) {
+        if (networkEnvelop instanceof BulkRefreshOfferMessage)
+            return 1 + ((BulkRefreshOfferMessage) networkEnvelop).getRefreshOfferMessages().size() /
+                    REFRESH_OFFER_MESSAGES_PER_THROTTLE_UNIT;
+        return 1;
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // MessageListener implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -456,11 +656,14 @@ public class Connection implements MessageListener {
                     try {
                         String reason = closeConnectionReason == CloseConnectionReason.RULE_VIOLATION ?
                                 sharedModel.getRuleViolation().name() : closeConnectionReason.name();
-                        sendMessage(new CloseConnectionMessage(reason));
-
-                        setStopFlags();
+                        // We stop the writer so that the queued messages don't delay the CloseConnectionMessage
+                        stopped = true;
+                        writeCloseConnectionMessage(new CloseConnectionMessage(reason));
 
+                        // We give the peer a bit of time to read the CloseConnectionMessage before we close the socket
                         Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+
+                        setStopFlags();
                     } catch (Throwable t) {
                         log.error(t.getMessage());
                         t.printStackTrace();
@@ -482,6 +685,7 @@ public class Connection implements MessageListener {
 
     private void setStopFlags() {
         stopped = true;
+        outboundQueue.clear();
         sharedModel.stop();
         if (inputHandler != null)
             inputHandler.stop();
@@ -517,6 +721,8 @@ public class Connection implements MessageListener {
             } catch (Throwable ignore) {
             }
             MoreExecutors.shutdownAndAwaitTermination(singleThreadExecutor, 500, TimeUnit.MILLISECONDS);
+            if (writerExecutor != null && writerExecutor != nioWriterExecutor)
+                writerExecutor.shutdownNow();
 
             log.debug("Connection shutdown complete " + this.toString());
             // Use UserThread.execute as its not clear if that is called from a non-UserThread
@@ -699,21 +905,35 @@ public class Connection implements MessageListener {
     // Runs in same thread as Connection, receives a message, performs several checks on it
     // (including throttling limits, validity and statistics)
     // and delivers it to the message listener given in the constructor.
-    private static class InputHandler implements Runnable {
+    private static class InputHandler implements Runnable, NioTransport.FrameListener {
         private static final Logger log = LoggerFactory.getLogger(InputHandler.class);
 
         private final SharedModel sharedModel;
+        // null if the connection is handled by the NioTransport
+        @Nullable
         private final InputStream protoInputStream;
         private final String portInfo;
         private final MessageListener messageListener;
         private final NetworkProtoResolver networkProtoResolver;
+        private final FrameDecoder frameDecoder;
+
+        // Frames received from the NioTransport waiting to be handled at the nioMessageExecutor. Only one task per
+        // connection is scheduled at a time, so the messages are handled in the order they have been received.
+        private final Queue<Runnable> pendingFrames = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean frameHandlerScheduled = new AtomicBoolean();
+        private final AtomicInteger numPendingFrames = new AtomicInteger();
+        private final AtomicInteger numPendingFrameBytes = new AtomicInteger();
+        // Set if the pending frames exceed our limits, reset once they are all handled
+        private final AtomicBoolean readPaused = new AtomicBoolean();
+        @Nullable
+        private volatile NioTransport.ChannelHandle channelHandle;
 
         private volatile boolean stopped;
         private long lastReadTimeStamp;
         private boolean threadNameSet;
 
         public InputHandler(SharedModel sharedModel,
-                            InputStream protoInputStream,
+                            @Nullable InputStream protoInputStream,
                             String portInfo,
                             MessageListener messageListener,
                             NetworkProtoResolver networkProtoResolver) {
@@ -722,12 +942,20 @@ public class Connection implements MessageListener {
             this.portInfo = portInfo;
             this.messageListener = messageListener;
             this.networkProtoResolver = networkProtoResolver;
+            frameDecoder = new FrameDecoder(networkProtoResolver, PERMITTED_MESSAGE_SIZE, MAX_PERMITTED_MESSAGE_SIZE);
+        }
+
+        // Frames might have been received already, so we apply the current read state
+        void setChannelHandle(NioTransport.ChannelHandle channelHandle) {
+            this.channelHandle = channelHandle;
+            channelHandle.updateReadInterest();
         }
 
         public void stop() {
             if (!stopped) {
                 try {
-                    protoInputStream.close();
+                    if (protoInputStream != null)
+                        protoInputStream.close();
                 } catch (IOException e) {
                     log.error("IOException at InputHandler.stop\n" + e.getMessage());
                     e.printStackTrace();
@@ -767,136 +995,14 @@ public class Connection implements MessageListener {
                             Thread.sleep(20);
                         }
 
-                        // Reading the protobuffer message from the inputstream
-                        PB.NetworkEnvelope proto = PB.NetworkEnvelope.parseDelimitedFrom(protoInputStream);
-
-                        if (proto == null) {
-                            if (protoInputStream.read() != -1)
-                                log.error("proto is null. Should not happen...");
+                        // Reading the next protobuffer frame from the inputstream. The frameDecoder checks the size
+                        // before parsing and calls onFrame or onOversizedFrame.
+                        if (!frameDecoder.readFrom(protoInputStream, this)) {
                             stopAndShutDown(CloseConnectionReason.NO_PROTO_BUFFER_ENV);
                             return;
                         }
 
-                        NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
                         lastReadTimeStamp = now;
-                        log.debug("<< Received networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
-
-                        int size = proto.getSerializedSize();
-                        if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
-                            // We only log Pong and RefreshOfferMsg when in dev environment (trace)
-                            log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        } else {
-                            // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
-                            // so we log before the data type checks
-                            //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
-                            log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        }
-
-                        // We want to track the size of each object even if it is invalid data
-                        connection.statistic.addReceivedBytes(size);
-
-                        // We want to track the network_messages also before the checks, so do it early...
-                        connection.statistic.addReceivedMessage(networkEnvelope);
-
-                        // First we check thel size
-                        boolean exceeds;
-                        if (networkEnvelope instanceof ExtendedDataSizePermission) {
-                            exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
-                            log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
-                        } else {
-                            exceeds = size > PERMITTED_MESSAGE_SIZE;
-                        }
-
-                        if (exceeds) {
-                            log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
-
-                            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                                return;
-                        }
-
-                        if (connection.violatesThrottleLimit(networkEnvelope)
-                                && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
-                            return;
-
-                        // Check P2P network ID
-                        if (proto.getMessageVersion() != Version.getP2PMessageVersion()
-                                && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
-                            log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
-                                            "proto.toTruncatedString={}", proto.getMessageVersion(),
-                                    Version.getP2PMessageVersion(),
-                                    Utilities.toTruncatedString(proto.toString()));
-                            return;
-                        }
-
-                        if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
-                            sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
-
-                        if (networkEnvelope instanceof CloseConnectionMessage) {
-                            // If we get a CloseConnectionMessage we shut down
-                            log.debug("CloseConnectionMessage received. Reason={}\n\t" +
-                                    "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
-                            if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
-                                log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
-                                stopAndShutDown(CloseConnectionReason.PEER_BANNED);
-                            } else {
-                                stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
-                            }
-                            return;
-                        } else if (!stopped) {
-                            // We don't want to get the activity ts updated by ping/pong msg
-                            if (!(networkEnvelope instanceof KeepAliveMessage))
-                                connection.statistic.updateLastActivityTimestamp();
-
-                            if (networkEnvelope instanceof GetDataRequest)
-                                connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
-
-                            // First a seed node gets a message from a peer (PreliminaryDataRequest using
-                            // AnonymousMessage interface) which does not have its hidden service
-                            // published, so it does not know its address. As the IncomingConnection does not have the
-                            // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
-                            // get the address set.
-                            // At the data update message (DataRequest using SendersNodeAddressMessage interface)
-                            // after the HS is published we get the peer's address set.
-
-                            // There are only those network_messages used for new connections to a peer:
-                            // 1. PreliminaryDataRequest
-                            // 2. DataRequest (implements SendersNodeAddressMessage)
-                            // 3. GetPeersRequest (implements SendersNodeAddressMessage)
-                            // 4. DirectMessage (implements SendersNodeAddressMessage)
-                            if (networkEnvelope instanceof SendersNodeAddressMessage) {
-                                NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
-                                // We must not shut down a banned peer at that moment as it would trigger a connection termination
-                                // and we could not send the CloseConnectionMessage.
-                                // We shut down a banned peer at the next step at setPeersNodeAddress().
-
-                                Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
-                                if (peersNodeAddressOptional.isPresent()) {
-                                    // If we have already the peers address we check again if it matches our stored one
-                                    checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
-                                            "senderNodeAddress not matching connections peer address.\n\t" +
-                                                    "message=" + networkEnvelope);
-                                } else {
-                                    connection.setPeersNodeAddress(senderNodeAddress);
-                                }
-                            }
-
-                            if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
-                                connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                            messageListener.onMessage(networkEnvelope, connection);
-                        }
                     } catch (InvalidClassException e) {
                         log.error(e.getMessage());
                         e.printStackTrace();
@@ -914,6 +1020,246 @@ public class Connection implements MessageListener {
             }
         }
 
+
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        // NioTransport.FrameListener implementation
+        ///////////////////////////////////////////////////////////////////////////////////////////
+
+        // Called from the InputHandler thread or the selector loop thread
+        @Override
+        public void onFrame(PB.NetworkEnvelope proto, int size) {
+            if (isNioTransport())
+                executeInOrder(() -> handleFrame(proto, size), size);
+            else
+                handleFrame(proto, size);
+        }
+
+        // The frame was skipped without parsing it
+        @Override
+        public void onOversizedFrame(int size, int maxSize) {
+            // The frame was not kept, so it does not count for the pending bytes
+            if (isNioTransport())
+                executeInOrder(() -> handleOversizedFrame(size, maxSize), 0);
+            else
+                handleOversizedFrame(size, maxSize);
+        }
+
+        @Override
+        public void onException(Throwable throwable) {
+            handleException(throwable);
+        }
+
+        @Override
+        public boolean isReadPaused() {
+            return readPaused.get();
+        }
+
+
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        // Private
+        ///////////////////////////////////////////////////////////////////////////////////////////
+
+        private boolean isNioTransport() {
+            return protoInputStream == null;
+        }
+
+        // Called from the selector loop thread. The selector loop checks isReadPaused after each read.
+        private void executeInOrder(Runnable task, int size) {
+            if (stopped)
+                return;
+
+            pendingFrames.add(() -> {
+                numPendingFrames.decrementAndGet();
+                numPendingFrameBytes.addAndGet(-size);
+                task.run();
+            });
+            int numFrames = numPendingFrames.incrementAndGet();
+            int numBytes = numPendingFrameBytes.addAndGet(size);
+            if ((numFrames >= MAX_PENDING_FRAMES || numBytes >= MAX_PENDING_FRAME_BYTES) &&
+                    readPaused.compareAndSet(false, true)) {
+                log.debug("We pause reading as too many received frames are pending. numPendingFrames={}, " +
+                        "numPendingFrameBytes={}", numFrames, numBytes);
+            }
+            if (frameHandlerScheduled.compareAndSet(false, true))
+                nioMessageExecutor.execute(this::handlePendingFrames);
+        }
+
+        // Runs at the nioMessageExecutor
+        private void handlePendingFrames() {
+            Runnable task;
+            while (!stopped && (task = pendingFrames.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    handleException(t);
+                }
+            }
+            frameHandlerScheduled.set(false);
+
+            // Frames might have been added after our last check but before we reset frameHandlerScheduled
+            if (stopped) {
+                pendingFrames.clear();
+            } else if (!pendingFrames.isEmpty()) {
+                if (frameHandlerScheduled.compareAndSet(false, true))
+                    nioMessageExecutor.execute(this::handlePendingFrames);
+            } else if (readPaused.compareAndSet(true, false)) {
+                NioTransport.ChannelHandle channelHandle = this.channelHandle;
+                if (channelHandle != null)
+                    channelHandle.updateReadInterest();
+            }
+        }
+
+        private void handleFrame(PB.NetworkEnvelope proto, int size) {
+            if (stopped)
+                return;
+
+            try {
+                onMessage(proto, size);
+            } catch (NoClassDefFoundError e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
+            }
+        }
+
+        private void handleOversizedFrame(int size, int maxSize) {
+            Connection connection = checkNotNull(sharedModel.connection, "connection must not be null");
+            log.warn("We received a message exceeding the permitted size and skipped it. size={}, maxSize={}, " +
+                    "connection={}", size, maxSize, connection);
+            connection.statistic.addReceivedBytes(size);
+            reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED);
+        }
+
+        // Performs the checks on a received message and delivers it to the messageListener.
+        // Returns early if the message caused a shut down.
+        private void onMessage(PB.NetworkEnvelope proto, int size) {
+            Connection connection = checkNotNull(sharedModel.connection, "connection must not be null");
+            NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
+            log.debug("<< Received networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
+
+            if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage ||
+                    networkEnvelope instanceof BulkRefreshOfferMessage) {
+                // We only log Pong and RefreshOfferMsg when in dev environment (trace)
+                if (log.isTraceEnabled())
+                    log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                    "New data arrived at inputHandler of connection {}.\n" +
+                                    "Received object (truncated)={} / size={}"
+                                    + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                            connection,
+                            Utilities.toTruncatedString(proto.toString()),
+                            size);
+            } else {
+                // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
+                // so we log before the data type checks
+                //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
+                // We avoid the costly proto.toString() if debug is not enabled
+                if (log.isDebugEnabled())
+                    log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                    "New data arrived at inputHandler of connection {}.\n" +
+                                    "Received object (truncated)={} / size={}"
+                                    + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                            connection,
+                            Utilities.toTruncatedString(proto.toString()),
+                            size);
+            }
+
+            // We want to track the size of each object even if it is invalid data
+            connection.statistic.addReceivedBytes(size);
+
+            // We want to track the network_messages also before the checks, so do it early...
+            connection.statistic.addReceivedMessage(proto.getMessageCase());
+
+            // The frameDecoder has already skipped frames exceeding the size permitted for their message type,
+            // but we check again based on the parsed message.
+            boolean exceeds;
+            if (networkEnvelope instanceof ExtendedDataSizePermission) {
+                exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
+                if (log.isDebugEnabled())
+                    log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
+            } else {
+                exceeds = size > PERMITTED_MESSAGE_SIZE;
+            }
+
+            if (exceeds) {
+                log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
+
+                if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                    return;
+            }
+
+            if (connection.violatesThrottleLimit(networkEnvelope)
+                    && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
+                return;
+
+            // Check P2P network ID
+            if (proto.getMessageVersion() != Version.getP2PMessageVersion()
+                    && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
+                log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
+                                "proto.toTruncatedString={}", proto.getMessageVersion(),
+                        Version.getP2PMessageVersion(),
+                        Utilities.toTruncatedString(proto.toString()));
+                return;
+            }
+
+            if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
+                sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
+
+            if (networkEnvelope instanceof CloseConnectionMessage) {
+                // If we get a CloseConnectionMessage we shut down
+                log.debug("CloseConnectionMessage received. Reason={}\n\t" +
+                        "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
+                if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
+                    log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
+                    stopAndShutDown(CloseConnectionReason.PEER_BANNED);
+                } else {
+                    stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
+                }
+                return;
+            } else if (!stopped) {
+                // We don't want to get the activity ts updated by ping/pong msg
+                if (!(networkEnvelope instanceof KeepAliveMessage))
+                    connection.statistic.updateLastActivityTimestamp();
+
+                if (networkEnvelope instanceof GetDataRequest)
+                    connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
+
+                // First a seed node gets a message from a peer (PreliminaryDataRequest using
+                // AnonymousMessage interface) which does not have its hidden service
+                // published, so it does not know its address. As the IncomingConnection does not have the
+                // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
+                // get the address set.
+                // At the data update message (DataRequest using SendersNodeAddressMessage interface)
+                // after the HS is published we get the peer's address set.
+
+                // There are only those network_messages used for new connections to a peer:
+                // 1. PreliminaryDataRequest
+                // 2. DataRequest (implements SendersNodeAddressMessage)
+                // 3. GetPeersRequest (implements SendersNodeAddressMessage)
+                // 4. DirectMessage (implements SendersNodeAddressMessage)
+                if (networkEnvelope instanceof SendersNodeAddressMessage) {
+                    NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
+                    // We must not shut down a banned peer at that moment as it would trigger a connection termination
+                    // and we could not send the CloseConnectionMessage.
+                    // We shut down a banned peer at the next step at setPeersNodeAddress().
+
+                    Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
+                    if (peersNodeAddressOptional.isPresent()) {
+                        // If we have already the peers address we check again if it matches our stored one
+                        checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
+                                "senderNodeAddress not matching connections peer address.\n\t" +
+                                        "message=" + networkEnvelope);
+                    } else {
+                        connection.setPeersNodeAddress(senderNodeAddress);
+                    }
+                }
+
+                if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
+                    connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+
+                messageListener.onMessage(networkEnvelope, connection);
+            }
+        }
+
         private void stopAndShutDown(CloseConnectionReason reason) {
             stop();
             sharedModel.shutDown(reason);
@@ -0,0 +1,58 @@
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A NetworkEnvelope serialized as length delimited frame (varint32 size followed by the serialized
+ * PB.NetworkEnvelope), as written by PB.NetworkEnvelope.writeDelimitedTo and read by the FrameDecoder.
+ * <p>
+ * Immutable, so the same instance can be written to any number of connections. Used for broadcasts, where we
+ * send the same message to many peers and want to serialize it only once.
+ */
+public final class EncodedEnvelope {
+    @Getter
+    private final NetworkEnvelope networkEnvelope;
+    // Size of the serialized PB.NetworkEnvelope without the size prefix
+    @Getter
+    private final int size;
+    @Getter
+    private final PB.NetworkEnvelope.MessageCase messageCase;
+    private final byte[] bytes;
+
+    public static EncodedEnvelope encode(NetworkEnvelope networkEnvelope) {
+        return encode(networkEnvelope, networkEnvelope.toProtoNetworkEnvelope());
+    }
+
+    static EncodedEnvelope encode(NetworkEnvelope networkEnvelope, PB.NetworkEnvelope proto) {
+        int size = proto.getSerializedSize();
+        byte[] bytes = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+        try {
+            codedOutputStream.writeUInt32NoTag(size);
+            proto.writeTo(codedOutputStream);
+            codedOutputStream.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // Cannot happen as we write to an array of the exact size
+            throw new IllegalStateException("Serializing " + networkEnvelope.getClass().getSimpleName() + " failed", e);
+        }
+        return new EncodedEnvelope(networkEnvelope, size, proto.getMessageCase(), bytes);
+    }
+
+    private EncodedEnvelope(NetworkEnvelope networkEnvelope, int size, PB.NetworkEnvelope.MessageCase messageCase,
+                            byte[] bytes) {
+        this.networkEnvelope = networkEnvelope;
+        this.size = size;
+        this.messageCase = messageCase;
+        this.bytes = bytes;
+    }
+
+    void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(bytes);
+    }
+}
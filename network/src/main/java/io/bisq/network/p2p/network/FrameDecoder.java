@@ -0,0 +1,265 @@
+package io.bisq.network.p2p.network;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.ExtendedDataSizePermission;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes length delimited protobuffer frames (varint32 size followed by the serialized NetworkEnvelope). That is
+ * the same format as written by PB.NetworkEnvelope.writeDelimitedTo.
+ * <p>
+ * Before a frame is parsed we read the size prefix and peek into the first bytes of the frame to find out which
+ * message type it contains. Frames exceeding the permitted size for that message type are skipped without
+ * allocating or parsing them, frames exceeding the max. permitted size of any message are treated as corrupted
+ * data. Accepted frames are read into a reusable buffer.
+ * <p>
+ * Supports blocking streams (readFrom) and chunks of bytes from a non-blocking channel (decode).
+ * Not thread safe. Each connection has its own instance.
+ */
+@Slf4j
+class FrameDecoder {
+
+    interface FrameHandler {
+        void onFrame(PB.NetworkEnvelope proto, int size) throws IOException;
+
+        // Called after the frame has been skipped
+        void onOversizedFrame(int size, int maxSize);
+    }
+
+    private static final Map<Class<? extends NetworkProtoResolver>, Set<Integer>> EXTENDED_SIZE_FIELD_NUMBERS_BY_RESOLVER =
+            new ConcurrentHashMap<>();
+
+    // Tag of message_version (1 byte), its value (max. 10 bytes) and the tag of the message (max. 5 bytes)
+    private static final int HEADER_PEEK_SIZE = 16;
+    // We keep the buffer for later frames only up to that size
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private enum State {
+        SIZE,
+        HEADER,
+        BODY,
+        SKIP
+    }
+
+    // Field numbers in the NetworkEnvelope oneof of the message types implementing ExtendedDataSizePermission
+    private final Set<Integer> extendedSizeFieldNumbers;
+    private final int permittedSize;
+    private final int maxPermittedSize;
+    private final byte[] header = new byte[HEADER_PEEK_SIZE];
+    private byte[] buffer = new byte[1024];
+
+    // State for decode
+    private State state = State.SIZE;
+    private int frameSize;
+    private int shift;
+    private int headerLength;
+    private byte[] frame;
+    private int position;
+    private int maxSize;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    FrameDecoder(NetworkProtoResolver networkProtoResolver, int permittedSize, int maxPermittedSize) {
+        this(getExtendedSizeFieldNumbers(networkProtoResolver), permittedSize, maxPermittedSize);
+    }
+
+    FrameDecoder(Set<Integer> extendedSizeFieldNumbers, int permittedSize, int maxPermittedSize) {
+        this.extendedSizeFieldNumbers = extendedSizeFieldNumbers;
+        this.permittedSize = permittedSize;
+        this.maxPermittedSize = maxPermittedSize;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Reads the next frame from a blocking stream. Returns false if the end of the stream was reached before
+    // a new frame started.
+    boolean readFrom(InputStream inputStream, FrameHandler frameHandler) throws IOException {
+        int firstByte = inputStream.read();
+        if (firstByte == -1)
+            return false;
+
+        int size = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        checkFrameSize(size);
+
+        int numHeaderBytes = Math.min(size, HEADER_PEEK_SIZE);
+        ByteStreams.readFully(inputStream, header, 0, numHeaderBytes);
+        int maxSize = getMaxSize(header, numHeaderBytes);
+        if (size > maxSize) {
+            ByteStreams.skipFully(inputStream, size - numHeaderBytes);
+            frameHandler.onOversizedFrame(size, maxSize);
+        } else {
+            byte[] bytes = getBuffer(size);
+            System.arraycopy(header, 0, bytes, 0, numHeaderBytes);
+            ByteStreams.readFully(inputStream, bytes, numHeaderBytes, size - numHeaderBytes);
+            frameHandler.onFrame(parse(bytes, size), size);
+        }
+        return true;
+    }
+
+    // Consumes all remaining bytes of the buffer. Incomplete frames are kept until the next call.
+    void decode(ByteBuffer in, FrameHandler frameHandler) throws IOException {
+        // An empty frame has no header bytes, so we need to complete it even if there are no bytes left
+        while (in.hasRemaining() || state == State.HEADER && headerLength == frameSize) {
+            switch (state) {
+                case SIZE:
+                    byte b = in.get();
+                    frameSize |= (b & 0x7F) << shift;
+                    if ((b & 0x80) != 0) {
+                        shift += 7;
+                        if (shift > 28)
+                            throw new StreamCorruptedException("Malformed varint32 at frame size");
+                    } else {
+                        checkFrameSize(frameSize);
+                        headerLength = 0;
+                        state = State.HEADER;
+                    }
+                    break;
+                case HEADER:
+                    int numHeaderBytes = Math.min(frameSize, HEADER_PEEK_SIZE);
+                    int numBytes = Math.min(in.remaining(), numHeaderBytes - headerLength);
+                    in.get(header, headerLength, numBytes);
+                    headerLength += numBytes;
+                    if (headerLength == numHeaderBytes) {
+                        maxSize = getMaxSize(header, numHeaderBytes);
+                        position = numHeaderBytes;
+                        if (frameSize > maxSize) {
+                            state = State.SKIP;
+                        } else {
+                            frame = getBuffer(frameSize);
+                            System.arraycopy(header, 0, frame, 0, numHeaderBytes);
+                            state = State.BODY;
+                        }
+                        completeFrameIfDone(frameHandler);
+                    }
+                    break;
+                case BODY:
+                    numBytes = Math.min(in.remaining(), frameSize - position);
+                    in.get(frame, position, numBytes);
+                    position += numBytes;
+                    completeFrameIfDone(frameHandler);
+                    break;
+                case SKIP:
+                    numBytes = Math.min(in.remaining(), frameSize - position);
+                    in.position(in.position() + numBytes);
+                    position += numBytes;
+                    completeFrameIfDone(frameHandler);
+                    break;
+            }
+        }
+    }
+
+    // Returns the permitted size for the message type found in the first bytes of the frame
+    int getMaxSize(byte[] header, int length) {
+        int fieldNumber = peekMessageFieldNumber(header, length);
+        return extendedSizeFieldNumbers.contains(fieldNumber) ? maxPermittedSize : permittedSize;
+    }
+
+
+    // We resolve an empty instance of each message type with the resolver, so the extended size applies to exactly
+    // the types which get the ExtendedDataSizePermission after parsing. Types the resolver cannot create from an
+    // empty instance are treated as normal sized messages. The result is cached per resolver class.
+    static Set<Integer> getExtendedSizeFieldNumbers(NetworkProtoResolver networkProtoResolver) {
+        return EXTENDED_SIZE_FIELD_NUMBERS_BY_RESOLVER.computeIfAbsent(networkProtoResolver.getClass(), key -> {
+            Set<Integer> fieldNumbers = new HashSet<>();
+            for (Descriptors.FieldDescriptor field : PB.NetworkEnvelope.getDescriptor().getFields()) {
+                if (field.getContainingOneof() == null || field.getType() != Descriptors.FieldDescriptor.Type.MESSAGE)
+                    continue;
+
+                try {
+                    PB.NetworkEnvelope proto = PB.NetworkEnvelope.newBuilder()
+                            .setField(field, PB.NetworkEnvelope.getDefaultInstance().getField(field))
+                            .build();
+                    if (networkProtoResolver.fromProto(proto) instanceof ExtendedDataSizePermission)
+                        fieldNumbers.add(field.getNumber());
+                } catch (Throwable t) {
+                    // Most messages cannot be created from their default instance. If an ExtendedDataSizePermission
+                    // message is among them it would get the normal permitted size, FrameDecoderResolverTest in core
+                    // checks that all of them are resolved.
+                    log.debug("Could not resolve default instance of {}. {}", field.getName(), t.toString());
+                }
+            }
+            return Collections.unmodifiableSet(fieldNumbers);
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Frames larger than any permitted message are not worth skipping, we treat them as corrupted data.
+    private void checkFrameSize(int size) throws StreamCorruptedException {
+        if (size < 0 || size > maxPermittedSize)
+            throw new StreamCorruptedException("Invalid frame size. size=" + size + ", maxPermittedSize=" + maxPermittedSize);
+    }
+
+    private void completeFrameIfDone(FrameHandler frameHandler) throws IOException {
+        if (position < frameSize)
+            return;
+
+        State completedState = state;
+        int size = frameSize;
+        byte[] bytes = frame;
+        frameSize = 0;
+        shift = 0;
+        frame = null;
+        state = State.SIZE;
+
+        if (completedState == State.SKIP)
+            frameHandler.onOversizedFrame(size, maxSize);
+        else
+            frameHandler.onFrame(parse(bytes, size), size);
+    }
+
+    private byte[] getBuffer(int size) {
+        if (size <= buffer.length)
+            return buffer;
+
+        if (size > MAX_RETAINED_BUFFER_SIZE)
+            return new byte[size];
+
+        buffer = new byte[Math.min(MAX_RETAINED_BUFFER_SIZE, Math.max(size, buffer.length * 2))];
+        return buffer;
+    }
+
+    // Parsing copies the bytes fields, so the buffer can be reused after that.
+    private static PB.NetworkEnvelope parse(byte[] bytes, int size) throws IOException {
+        return PB.NetworkEnvelope.parser().parseFrom(bytes, 0, size);
+    }
+
+    // Fields are serialized in the order of their field number, so message_version (1) comes first followed
+    // by the oneof message field. Returns -1 if we cannot tell.
+    private static int peekMessageFieldNumber(byte[] header, int length) {
+        try {
+            CodedInputStream codedInputStream = CodedInputStream.newInstance(header, 0, length);
+            int tag = codedInputStream.readTag();
+            if (tag >>> 3 == PB.NetworkEnvelope.MESSAGE_VERSION_FIELD_NUMBER) {
+                codedInputStream.readInt32();
+                tag = codedInputStream.readTag();
+            }
+            return tag >>> 3;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
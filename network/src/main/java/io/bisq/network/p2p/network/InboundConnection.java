@@ -1,6 +1,7 @@
 package io.bisq.network.p2p.network;
 
 import io.bisq.common.proto.network.NetworkProtoResolver;
+import org.jetbrains.annotations.Nullable;
 
 import java.net.Socket;
 
@@ -9,6 +10,14 @@ public class InboundConnection extends Connection {
                              MessageListener messageListener,
                              ConnectionListener connectionListener,
                              NetworkProtoResolver networkProtoResolver) {
-        super(socket, messageListener, connectionListener, null, networkProtoResolver);
+        this(socket, messageListener, connectionListener, networkProtoResolver, null);
+    }
+
+    InboundConnection(Socket socket,
+                      MessageListener messageListener,
+                      ConnectionListener connectionListener,
+                      NetworkProtoResolver networkProtoResolver,
+                      @Nullable NioTransport nioTransport) {
+        super(socket, messageListener, connectionListener, null, networkProtoResolver, nioTransport);
     }
 }
@@ -19,8 +19,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -64,7 +67,10 @@ public class LocalhostNetworkNode extends NetworkNode {
             createHiddenService(hiddenServiceDescriptor -> {
                 Log.traceCall("hiddenService created");
                 try {
-                    startServer(new ServerSocket(servicePort));
+                    if (isUseNioTransport())
+                        startServer(ServerSocketChannel.open().bind(new InetSocketAddress(servicePort)).socket());
+                    else
+                        startServer(new ServerSocket(servicePort));
                 } catch (IOException e) {
                     e.printStackTrace();
                     log.error("Exception at startServer: " + e.getMessage());
@@ -79,7 +85,10 @@ public class LocalhostNetworkNode extends NetworkNode {
     // Called from NetworkNode thread
     @Override
     protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
-        return new Socket(peerNodeAddress.getHostName(), peerNodeAddress.getPort());
+        if (isUseNioTransport())
+            return SocketChannel.open(new InetSocketAddress(peerNodeAddress.getHostName(), peerNodeAddress.getPort())).socket();
+        else
+            return new Socket(peerNodeAddress.getHostName(), peerNodeAddress.getPort());
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -43,6 +43,9 @@ public abstract class NetworkNode implements MessageListener {
     final CopyOnWriteArraySet<SetupListener> setupListeners = new CopyOnWriteArraySet<>();
     ListeningExecutorService executorService;
     private Server server;
+    private boolean useNioTransport;
+    @Nullable
+    NioTransport nioTransport;
 
     private volatile boolean shutDownInProgress;
     // accessed from different threads
@@ -146,7 +149,8 @@ public abstract class NetworkNode implements MessageListener {
                                 NetworkNode.this,
                                 connectionListener,
                                 peersNodeAddress,
-                                networkProtoResolver);
+                                networkProtoResolver,
+                                nioTransport);
 
                         log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
                                 "NetworkNode created new outbound connection:"
@@ -247,6 +251,18 @@ public abstract class NetworkNode implements MessageListener {
         return resultFuture;
     }
 
+    // Enqueuing an already encoded message is cheap, so we don't need a thread for it
+    public SettableFuture<Connection> sendMessage(Connection connection, EncodedEnvelope encodedEnvelope) {
+        final SettableFuture<Connection> resultFuture = SettableFuture.create();
+        try {
+            connection.sendMessage(encodedEnvelope);
+            UserThread.execute(() -> resultFuture.set(connection));
+        } catch (Throwable t) {
+            UserThread.execute(() -> resultFuture.setException(t));
+        }
+        return resultFuture;
+    }
+
     public ReadOnlyObjectProperty<NodeAddress> nodeAddressProperty() {
         return nodeAddressProperty;
     }
@@ -285,12 +301,24 @@ public abstract class NetworkNode implements MessageListener {
             }
 
             getAllConnections().stream().forEach(c -> c.shutDown(CloseConnectionReason.APP_SHUT_DOWN));
+
+            if (nioTransport != null) {
+                nioTransport.shutDown();
+                nioTransport = null;
+            }
             log.debug("NetworkNode shutdown complete");
         }
         if (shutDownCompleteHandler != null) shutDownCompleteHandler.run();
     }
 
 
+    // Need to be called before start. Connections with a channel backed socket are then handled by a small group
+    // of selector threads instead of a thread per connection.
+    public void setUseNioTransport(boolean useNioTransport) {
+        this.useNioTransport = useNioTransport;
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // SetupListener
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -350,6 +378,19 @@ public abstract class NetworkNode implements MessageListener {
 
     void createExecutorService() {
         executorService = Utilities.getListeningExecutorService("NetworkNode-" + servicePort, 15, 30, 60);
+
+        if (useNioTransport && nioTransport == null) {
+            try {
+                nioTransport = new NioTransport("NioTransport-" + servicePort);
+            } catch (IOException e) {
+                log.error("Could not create NioTransport. We use the blocking transport instead. " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    boolean isUseNioTransport() {
+        return nioTransport != null;
     }
 
     void startServer(ServerSocket serverSocket) {
@@ -381,7 +422,8 @@ public abstract class NetworkNode implements MessageListener {
         server = new Server(serverSocket,
                 NetworkNode.this,
                 connectionListener,
-                networkProtoResolver);
+                networkProtoResolver,
+                nioTransport);
         executorService.submit(server);
     }
 
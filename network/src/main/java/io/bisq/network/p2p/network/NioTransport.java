@@ -0,0 +1,429 @@
+package io.bisq.network.p2p.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional selector based transport. Instead of running one blocking InputHandler thread per connection, all
+ * connections with a channel backed socket are registered round robin at a small group of selector loops.
+ * Incoming bytes are decoded with a FrameDecoder and handed over as PB.NetworkEnvelope to the FrameListener
+ * (the InputHandler of the connection), so the Connection/MessageListener contract stays the same.
+ * Sockets without a channel (e.g. outbound Tor connections created by the SOCKS proxy) still use the blocking
+ * InputHandler thread.
+ */
+class NioTransport {
+    private static final Logger log = LoggerFactory.getLogger(NioTransport.class);
+
+    private static final int MAX_NUM_LOOPS = 4;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    private static final long SHUT_DOWN_TIMEOUT_MS = 1000;
+    // If more bytes are waiting to be written the ChannelHandle reports a write backlog
+    private static final int MAX_PENDING_WRITE_BYTES = 1024 * 1024;
+
+    interface FrameListener extends FrameDecoder.FrameHandler {
+        void onException(Throwable throwable);
+
+        // Checked after each read. While true we stop reading from the channel, so a peer sending faster than we
+        // handle the frames gets slowed down by TCP flow control. The listener calls
+        // ChannelHandle.updateReadInterest once it accepts frames again.
+        boolean isReadPaused();
+    }
+
+    interface ChannelHandle {
+        // Stream to be used for writing to the channel
+        OutputStream getOutputStream();
+
+        // Applies the current FrameListener.isReadPaused state. Can be called from any thread.
+        void updateReadInterest();
+
+        // Writes to the stream never block. The caller should stop writing while the peer does not consume the
+        // data we have written so far.
+        boolean isWriteBacklogged();
+    }
+
+    private final SelectorLoop[] loops;
+    private final AtomicInteger loopIndex = new AtomicInteger(0);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioTransport(String name) throws IOException {
+        this(name, Math.min(MAX_NUM_LOOPS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    NioTransport(String name, int numLoops) throws IOException {
+        loops = new SelectorLoop[Math.max(1, numLoops)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(name + "-" + i);
+            loops[i].start();
+        }
+        log.info("NioTransport started with {} selector loops", loops.length);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static boolean supports(Socket socket) {
+        return socket.getChannel() != null;
+    }
+
+    // Called from the thread creating the connection
+    // If we don't receive data for idleTimeoutMs or pending data cannot be written for writeTimeoutMs the
+    // FrameListener gets a SocketTimeoutException.
+    ChannelHandle register(SocketChannel socketChannel, FrameListener frameListener, FrameDecoder frameDecoder,
+                           long idleTimeoutMs, long writeTimeoutMs) throws IOException {
+        socketChannel.configureBlocking(false);
+        SelectorLoop loop = loops[Math.abs(loopIndex.getAndIncrement() % loops.length)];
+        ChannelHandler channelHandler = new ChannelHandler(loop, socketChannel, frameListener,
+                frameDecoder, idleTimeoutMs, writeTimeoutMs);
+        loop.execute(channelHandler::register);
+        return channelHandler;
+    }
+
+    // Blocks until the selector loops have terminated. Messages written after that (e.g. the CloseConnectionMessage
+    // sent at shutdown of the connections) are written directly to the channel, waiting at most
+    // SHUT_DOWN_TIMEOUT_MS for the channel to accept them.
+    void shutDown() {
+        for (SelectorLoop loop : loops)
+            loop.shutDown();
+        for (SelectorLoop loop : loops)
+            loop.awaitTermination();
+        log.debug("NioTransport shutdown complete");
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // SelectorLoop
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class SelectorLoop extends Thread {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // Shared by all channels of that loop, the decoder copies the bytes it needs.
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private volatile boolean stopped;
+        private long lastIdleCheck;
+
+        SelectorLoop(String name) throws IOException {
+            super(name);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MS);
+
+                    Runnable task;
+                    while ((task = tasks.poll()) != null)
+                        task.run();
+
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        ChannelHandler channelHandler = (ChannelHandler) key.attachment();
+                        if (key.isValid() && key.isReadable())
+                            channelHandler.read(readBuffer);
+                        if (key.isValid() && key.isWritable())
+                            channelHandler.flush();
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastIdleCheck >= SELECT_TIMEOUT_MS) {
+                        lastIdleCheck = now;
+                        selector.keys().stream()
+                                .filter(SelectionKey::isValid)
+                                .forEach(key -> ((ChannelHandler) key.attachment()).checkIdle(now));
+                    }
+                } catch (Throwable t) {
+                    if (!stopped)
+                        log.error("Exception at selector loop " + getName() + ". " + t.getMessage());
+                }
+            }
+        }
+
+        void shutDown() {
+            stopped = true;
+            selector.wakeup();
+        }
+
+        void awaitTermination() {
+            try {
+                if (Thread.currentThread() != this)
+                    join(SHUT_DOWN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Flush what was queued before we stopped
+            selector.keys().stream()
+                    .filter(SelectionKey::isValid)
+                    .forEach(key -> ((ChannelHandler) key.attachment()).flush());
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug("IOException at closing selector " + e.getMessage());
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // ChannelHandler
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class ChannelHandler implements ChannelHandle {
+        private final SelectorLoop loop;
+        private final SocketChannel socketChannel;
+        private final FrameListener frameListener;
+        private final FrameDecoder frameDecoder;
+        private final long idleTimeoutMs;
+        private final long writeTimeoutMs;
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicLong numPendingWriteBytes = new AtomicLong();
+        // Time of the last write to the channel or of the first write into the empty writeQueue
+        private volatile long lastWriteProgressTimeStamp = System.currentTimeMillis();
+        private final ChannelOutputStream outputStream = new ChannelOutputStream(this);
+
+        // Only accessed from the loop thread
+        private SelectionKey key;
+        private long lastReadTimeStamp = System.currentTimeMillis();
+        private boolean readPaused;
+        private boolean failed;
+
+        ChannelHandler(SelectorLoop loop, SocketChannel socketChannel, FrameListener frameListener,
+                       FrameDecoder frameDecoder, long idleTimeoutMs, long writeTimeoutMs) {
+            this.loop = loop;
+            this.socketChannel = socketChannel;
+            this.frameListener = frameListener;
+            this.frameDecoder = frameDecoder;
+            this.idleTimeoutMs = idleTimeoutMs;
+            this.writeTimeoutMs = writeTimeoutMs;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public void updateReadInterest() {
+            loop.execute(this::applyReadInterest);
+        }
+
+        @Override
+        public boolean isWriteBacklogged() {
+            return numPendingWriteBytes.get() > MAX_PENDING_WRITE_BYTES;
+        }
+
+        void register() {
+            try {
+                key = socketChannel.register(loop.selector, SelectionKey.OP_READ, this);
+                applyReadInterest();
+                if (!writeQueue.isEmpty())
+                    flush();
+            } catch (ClosedChannelException e) {
+                onException(e);
+            }
+        }
+
+        void read(ByteBuffer readBuffer) {
+            // The key might have been selected before we paused reading
+            if (readPaused)
+                return;
+
+            try {
+                readBuffer.clear();
+                int numBytes = socketChannel.read(readBuffer);
+                if (numBytes == -1)
+                    throw new EOFException("Channel reached end of stream");
+
+                if (numBytes > 0) {
+                    lastReadTimeStamp = System.currentTimeMillis();
+                    readBuffer.flip();
+                    frameDecoder.decode(readBuffer, frameListener);
+                    applyReadInterest();
+                }
+            } catch (Throwable t) {
+                onException(t);
+            }
+        }
+
+        // Called from any thread
+        void write(ByteBuffer byteBuffer) throws IOException {
+            if (!socketChannel.isOpen())
+                throw new ClosedChannelException();
+
+            if (loop.stopped) {
+                writeAfterShutDown(byteBuffer);
+                return;
+            }
+
+            writeQueue.add(byteBuffer);
+            if (numPendingWriteBytes.getAndAdd(byteBuffer.remaining()) == 0)
+                lastWriteProgressTimeStamp = System.currentTimeMillis();
+            if (flushScheduled.compareAndSet(false, true))
+                loop.execute(this::flush);
+        }
+
+        // Called from the loop thread, or once at shut down of the loop
+        synchronized void flush() {
+            flushScheduled.set(false);
+            if (key == null)
+                return;
+
+            try {
+                ByteBuffer byteBuffer;
+                while ((byteBuffer = writeQueue.peek()) != null) {
+                    int numBytes = socketChannel.write(byteBuffer);
+                    if (numBytes > 0) {
+                        numPendingWriteBytes.addAndGet(-numBytes);
+                        lastWriteProgressTimeStamp = System.currentTimeMillis();
+                    }
+                    if (byteBuffer.hasRemaining())
+                        break;
+                    writeQueue.poll();
+                }
+
+                if (key.isValid()) {
+                    if (writeQueue.isEmpty())
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    else
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            } catch (Throwable t) {
+                onException(t);
+            }
+        }
+
+        // Without the selector loop we write the data still queued and then the new data with a temporary selector,
+        // so the peer never gets a partly written frame followed by other data. If the channel does not accept the
+        // data within SHUT_DOWN_TIMEOUT_MS we give up, the connection gets closed anyway.
+        private synchronized void writeAfterShutDown(ByteBuffer byteBuffer) throws IOException {
+            writeQueue.add(byteBuffer);
+            long deadline = System.currentTimeMillis() + SHUT_DOWN_TIMEOUT_MS;
+            try (Selector selector = Selector.open()) {
+                socketChannel.register(selector, SelectionKey.OP_WRITE);
+                ByteBuffer pending;
+                while ((pending = writeQueue.peek()) != null) {
+                    socketChannel.write(pending);
+                    if (pending.hasRemaining()) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0)
+                            throw new SocketTimeoutException("Pending data could not be written within " +
+                                    SHUT_DOWN_TIMEOUT_MS + " ms after shut down");
+                        selector.select(remaining);
+                    } else {
+                        writeQueue.poll();
+                    }
+                }
+            }
+        }
+
+        void checkIdle(long now) {
+            // While reading is paused the peer is not to blame for missing data
+            if (!readPaused && now - lastReadTimeStamp > idleTimeoutMs)
+                onException(new SocketTimeoutException("No data received for " + idleTimeoutMs + " ms"));
+            else if (numPendingWriteBytes.get() > 0 && now - lastWriteProgressTimeStamp > writeTimeoutMs)
+                onException(new SocketTimeoutException("Pending data could not be written for " + writeTimeoutMs + " ms"));
+        }
+
+        private void applyReadInterest() {
+            if (key == null || !key.isValid())
+                return;
+
+            boolean paused = frameListener.isReadPaused();
+            if (paused == readPaused)
+                return;
+
+            readPaused = paused;
+            if (paused) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            } else {
+                lastReadTimeStamp = System.currentTimeMillis();
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+        }
+
+        private void onException(Throwable t) {
+            if (!failed) {
+                failed = true;
+                if (key != null)
+                    key.cancel();
+                frameListener.onException(t);
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // ChannelOutputStream
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Collects the bytes of a delimited write and hands them over to the selector loop at flush.
+    // Caller has to synchronize writes (Connection uses the protoOutputStreamLock).
+    private static class ChannelOutputStream extends OutputStream {
+        private final ChannelHandler channelHandler;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        ChannelOutputStream(ChannelHandler channelHandler) {
+            this.channelHandler = channelHandler;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.size() > 0) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer.toByteArray());
+                buffer.reset();
+                channelHandler.write(byteBuffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channelHandler.socketChannel.close();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.bisq.network.p2p.network;
 
 import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.network.p2p.NodeAddress;
+import org.jetbrains.annotations.Nullable;
 
 import java.net.Socket;
 
@@ -11,6 +12,15 @@ public class OutboundConnection extends Connection {
                               ConnectionListener connectionListener,
                               NodeAddress peersNodeAddress,
                               NetworkProtoResolver networkProtoResolver) {
-        super(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+        this(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver, null);
+    }
+
+    OutboundConnection(Socket socket,
+                       MessageListener messageListener,
+                       ConnectionListener connectionListener,
+                       NodeAddress peersNodeAddress,
+                       NetworkProtoResolver networkProtoResolver,
+                       @Nullable NioTransport nioTransport) {
+        super(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver, nioTransport);
     }
 }
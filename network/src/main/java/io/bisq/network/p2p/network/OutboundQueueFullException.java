@@ -0,0 +1,10 @@
+package io.bisq.network.p2p.network;
+
+// Thrown if a message cannot be sent because the outbound queue of the connection is full
+public class OutboundQueueFullException extends RuntimeException {
+
+    public OutboundQueueFullException(String message) {
+        super(message);
+    }
+
+}
@@ -2,6 +2,7 @@ package io.bisq.network.p2p.network;
 
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.network.NetworkProtoResolver;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,13 +25,17 @@ class Server implements Runnable {
     private final Set<Connection> connections = new CopyOnWriteArraySet<>();
     private volatile boolean stopped;
     private final NetworkProtoResolver networkProtoResolver;
+    @Nullable
+    private final NioTransport nioTransport;
 
 
     public Server(ServerSocket serverSocket,
                   MessageListener messageListener,
                   ConnectionListener connectionListener,
-                  NetworkProtoResolver networkProtoResolver) {
+                  NetworkProtoResolver networkProtoResolver,
+                  @Nullable NioTransport nioTransport) {
         this.networkProtoResolver = networkProtoResolver;
+        this.nioTransport = nioTransport;
         Log.traceCall();
         this.serverSocket = serverSocket;
         this.messageListener = messageListener;
@@ -52,7 +57,8 @@ class Server implements Runnable {
                         InboundConnection connection = new InboundConnection(socket,
                                 messageListener,
                                 connectionListener,
-                                networkProtoResolver);
+                                networkProtoResolver,
+                                nioTransport);
 
                         log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
                                 "Server created new inbound connection:"
@@ -1,7 +1,10 @@
 package io.bisq.network.p2p.network;
 
+import com.google.common.collect.MapMaker;
+import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
 import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.LongProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -9,35 +12,114 @@ import javafx.beans.property.SimpleLongProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters of a connection and the totals of all connections.
+ * <p>
+ * The counters are updated from the reader and writer threads of the connections without locking and without
+ * posting to the UserThread. The JavaFX properties used by the UI are only created on request and then updated
+ * from the counters every SAMPLE_INTERVAL_SEC on the UserThread.
+ */
 public class Statistic {
     private static final Logger log = LoggerFactory.getLogger(Statistic.class);
 
+    private static final long SAMPLE_INTERVAL_SEC = 1;
+    private static final PB.NetworkEnvelope.MessageCase[] MESSAGE_CASES = PB.NetworkEnvelope.MessageCase.values();
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Static
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private final static LongProperty totalSentBytes = new SimpleLongProperty(0);
-    private final static LongProperty totalReceivedBytes = new SimpleLongProperty(0);
+    private final static LongAdder totalSentBytes = new LongAdder();
+    private final static LongAdder totalReceivedBytes = new LongAdder();
+    private final static LongAdder totalDroppedMessages = new LongAdder();
+    private final static AtomicLongArray totalSentMessages = new AtomicLongArray(MESSAGE_CASES.length);
+    private final static AtomicLongArray totalReceivedMessages = new AtomicLongArray(MESSAGE_CASES.length);
+
+    // Only accessed from the UserThread
+    private static LongProperty totalSentBytesProperty;
+    private static LongProperty totalReceivedBytesProperty;
+    private static LongProperty totalDroppedMessagesProperty;
+    private static Timer sampleTimer;
+    // Instances with properties, weak keys so the statistic of a closed connection can be garbage collected
+    private static final Set<Statistic> sampled = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
 
     public static long getTotalSentBytes() {
-        return totalSentBytes.get();
+        return totalSentBytes.sum();
     }
 
     public static LongProperty totalSentBytesProperty() {
-        return totalSentBytes;
+        if (totalSentBytesProperty == null) {
+            totalSentBytesProperty = new SimpleLongProperty(getTotalSentBytes());
+            startSampling();
+        }
+        return totalSentBytesProperty;
     }
 
     public static long getTotalReceivedBytes() {
-        return totalReceivedBytes.get();
+        return totalReceivedBytes.sum();
     }
 
     public static LongProperty totalReceivedBytesProperty() {
-        return totalReceivedBytes;
+        if (totalReceivedBytesProperty == null) {
+            totalReceivedBytesProperty = new SimpleLongProperty(getTotalReceivedBytes());
+            startSampling();
+        }
+        return totalReceivedBytesProperty;
+    }
+
+    public static long getTotalDroppedMessages() {
+        return totalDroppedMessages.sum();
+    }
+
+    public static LongProperty totalDroppedMessagesProperty() {
+        if (totalDroppedMessagesProperty == null) {
+            totalDroppedMessagesProperty = new SimpleLongProperty(getTotalDroppedMessages());
+            startSampling();
+        }
+        return totalDroppedMessagesProperty;
+    }
+
+    // Number of messages of all connections by message type since startup
+    public static Map<PB.NetworkEnvelope.MessageCase, Long> getTotalSentMessages() {
+        return toMap(totalSentMessages);
+    }
+
+    public static Map<PB.NetworkEnvelope.MessageCase, Long> getTotalReceivedMessages() {
+        return toMap(totalReceivedMessages);
+    }
+
+    private static void startSampling() {
+        if (sampleTimer == null)
+            sampleTimer = UserThread.runPeriodically(Statistic::sample, SAMPLE_INTERVAL_SEC);
+    }
+
+    private static void sample() {
+        if (totalSentBytesProperty != null)
+            totalSentBytesProperty.set(getTotalSentBytes());
+        if (totalReceivedBytesProperty != null)
+            totalReceivedBytesProperty.set(getTotalReceivedBytes());
+        if (totalDroppedMessagesProperty != null)
+            totalDroppedMessagesProperty.set(getTotalDroppedMessages());
+        sampled.forEach(Statistic::sampleProperties);
+    }
+
+    private static Map<PB.NetworkEnvelope.MessageCase, Long> toMap(AtomicLongArray counters) {
+        Map<PB.NetworkEnvelope.MessageCase, Long> map = new EnumMap<>(PB.NetworkEnvelope.MessageCase.class);
+        for (int i = 0; i < counters.length(); i++) {
+            long value = counters.get(i);
+            if (value > 0)
+                map.put(MESSAGE_CASES[i], value);
+        }
+        return map;
     }
 
 
@@ -46,12 +128,21 @@ public class Statistic {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final Date creationDate;
-    private long lastActivityTimestamp = System.currentTimeMillis();
-    private final LongProperty sentBytes = new SimpleLongProperty(0);
-    private final LongProperty receivedBytes = new SimpleLongProperty(0);
-    private final Map<String, Integer> receivedMessages = new ConcurrentHashMap<>();
-    private final Map<String, Integer> sentMessages = new ConcurrentHashMap<>();
-    private final IntegerProperty roundTripTime = new SimpleIntegerProperty(0);
+    private volatile long lastActivityTimestamp = System.currentTimeMillis();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+    private final AtomicLongArray sentMessages = new AtomicLongArray(MESSAGE_CASES.length);
+    private final AtomicLongArray receivedMessages = new AtomicLongArray(MESSAGE_CASES.length);
+    private volatile int roundTripTime;
+    private volatile int outboundQueueSize;
+
+    // Created on request, only accessed from the UserThread
+    private LongProperty sentBytesProperty;
+    private LongProperty receivedBytesProperty;
+    private LongProperty droppedMessagesProperty;
+    private IntegerProperty roundTripTimeProperty;
+    private IntegerProperty outboundQueueSizeProperty;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -67,44 +158,44 @@ public class Statistic {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void updateLastActivityTimestamp() {
-        UserThread.execute(() -> lastActivityTimestamp = System.currentTimeMillis());
+        lastActivityTimestamp = System.currentTimeMillis();
     }
 
     public void addSentBytes(int value) {
-        UserThread.execute(() -> {
-            sentBytes.set(sentBytes.get() + value);
-            totalSentBytes.set(totalSentBytes.get() + value);
-        });
+        sentBytes.add(value);
+        totalSentBytes.add(value);
     }
 
     public void addReceivedBytes(int value) {
-        UserThread.execute(() -> {
-            receivedBytes.set(receivedBytes.get() + value);
-            totalReceivedBytes.set(totalReceivedBytes.get() + value);
-        });
+        receivedBytes.add(value);
+        totalReceivedBytes.add(value);
     }
 
-    // TODO would need msg inspection to get useful information...
-    public void addReceivedMessage(NetworkEnvelope networkEnvelop) {
-        String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (receivedMessages.containsKey(messageClassName))
-            counter = receivedMessages.get(messageClassName) + 1;
+    public void addReceivedMessage(PB.NetworkEnvelope.MessageCase messageCase) {
+        receivedMessages.incrementAndGet(messageCase.ordinal());
+        totalReceivedMessages.incrementAndGet(messageCase.ordinal());
+    }
 
-        receivedMessages.put(messageClassName, counter);
+    public void addSentMessage(PB.NetworkEnvelope.MessageCase messageCase) {
+        sentMessages.incrementAndGet(messageCase.ordinal());
+        totalSentMessages.incrementAndGet(messageCase.ordinal());
     }
 
-    public void addSentMessage(NetworkEnvelope networkEnvelop) {
-        String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (sentMessages.containsKey(messageClassName))
-            counter = sentMessages.get(messageClassName) + 1;
+    public void setRoundTripTime(int roundTripTime) {
+        this.roundTripTime = roundTripTime;
+        // Called from the UserThread, so we update the property directly
+        if (roundTripTimeProperty != null)
+            roundTripTimeProperty.set(roundTripTime);
+    }
 
-        sentMessages.put(messageClassName, counter);
+    public void setOutboundQueueSize(int value) {
+        outboundQueueSize = value;
     }
 
-    public void setRoundTripTime(int roundTripTime) {
-        this.roundTripTime.set(roundTripTime);
+    public void addDroppedMessage(NetworkEnvelope networkEnvelop) {
+        log.debug("Dropped message " + networkEnvelop.getClass().getSimpleName());
+        droppedMessages.increment();
+        totalDroppedMessages.increment();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -120,36 +211,105 @@ public class Statistic {
     }
 
     public long getSentBytes() {
-        return sentBytes.get();
+        return sentBytes.sum();
     }
 
     public LongProperty sentBytesProperty() {
-        return sentBytes;
+        if (sentBytesProperty == null) {
+            sentBytesProperty = new SimpleLongProperty(getSentBytes());
+            addToSampled();
+        }
+        return sentBytesProperty;
     }
 
     public long getReceivedBytes() {
-        return receivedBytes.get();
+        return receivedBytes.sum();
     }
 
     public LongProperty receivedBytesProperty() {
-        return receivedBytes;
+        if (receivedBytesProperty == null) {
+            receivedBytesProperty = new SimpleLongProperty(getReceivedBytes());
+            addToSampled();
+        }
+        return receivedBytesProperty;
+    }
+
+    public Map<PB.NetworkEnvelope.MessageCase, Long> getSentMessages() {
+        return toMap(sentMessages);
+    }
+
+    public Map<PB.NetworkEnvelope.MessageCase, Long> getReceivedMessages() {
+        return toMap(receivedMessages);
     }
 
     public Date getCreationDate() {
         return creationDate;
     }
 
-    public IntegerProperty roundTripTimeProperty() {
+    public int getRoundTripTime() {
         return roundTripTime;
     }
 
+    public IntegerProperty roundTripTimeProperty() {
+        if (roundTripTimeProperty == null)
+            roundTripTimeProperty = new SimpleIntegerProperty(roundTripTime);
+        return roundTripTimeProperty;
+    }
+
+    public int getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+
+    public IntegerProperty outboundQueueSizeProperty() {
+        if (outboundQueueSizeProperty == null) {
+            outboundQueueSizeProperty = new SimpleIntegerProperty(outboundQueueSize);
+            addToSampled();
+        }
+        return outboundQueueSizeProperty;
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    public LongProperty droppedMessagesProperty() {
+        if (droppedMessagesProperty == null) {
+            droppedMessagesProperty = new SimpleLongProperty(getDroppedMessages());
+            addToSampled();
+        }
+        return droppedMessagesProperty;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addToSampled() {
+        sampled.add(this);
+        startSampling();
+    }
+
+    private void sampleProperties() {
+        if (sentBytesProperty != null)
+            sentBytesProperty.set(getSentBytes());
+        if (receivedBytesProperty != null)
+            receivedBytesProperty.set(getReceivedBytes());
+        if (droppedMessagesProperty != null)
+            droppedMessagesProperty.set(getDroppedMessages());
+        if (outboundQueueSizeProperty != null)
+            outboundQueueSizeProperty.set(outboundQueueSize);
+    }
+
     @Override
     public String toString() {
         return "Statistic{" +
                 "creationDate=" + creationDate +
                 ", lastActivityTimestamp=" + lastActivityTimestamp +
-                ", sentBytes=" + sentBytes +
-                ", receivedBytes=" + receivedBytes +
+                ", sentBytes=" + getSentBytes() +
+                ", receivedBytes=" + getReceivedBytes() +
+                ", outboundQueueSize=" + outboundQueueSize +
+                ", droppedMessages=" + getDroppedMessages() +
                 '}';
     }
 
@@ -0,0 +1,79 @@
+package io.bisq.network.p2p.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Simple token bucket used for rate limiting outbound messages of a connection.
+ * Holds up to capacity tokens and refills permitsPerSec tokens per second. Instead of blocking the caller we
+ * report how long to wait until the next token is available.
+ * Not thread safe, used only by the writer of a connection.
+ */
+class TokenBucket {
+    private final int capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    TokenBucket(int capacity, int permitsPerSec) {
+        this(capacity, permitsPerSec, System::nanoTime);
+    }
+
+    TokenBucket(int capacity, int permitsPerSec, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.tokensPerNano = permitsPerSec / (double) TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    boolean tryConsume() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    // Number of whole tokens currently available
+    int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    long getMillisUntilNextToken() {
+        refill();
+        if (tokens >= 1)
+            return 0;
+        else
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / tokensPerNano)));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
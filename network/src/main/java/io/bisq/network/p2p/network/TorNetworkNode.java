@@ -228,7 +228,8 @@ public class TorNetworkNode extends NetworkNode {
             Utilities.setThreadName("TorNetworkNode:CreateHiddenService");
             {
                 long ts = System.currentTimeMillis();
-                HiddenServiceDescriptor hiddenServiceDescriptor = torNode.createHiddenService(localPort, servicePort);
+                HiddenServiceDescriptor hiddenServiceDescriptor = torNode.createHiddenService(localPort, servicePort,
+                        null, isUseNioTransport());
                 torNode.addHiddenServiceReadyListener(hiddenServiceDescriptor, descriptor -> {
                     log.debug("\n\n############################################################\n" +
                             "Hidden service published:" +
@@ -0,0 +1,103 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.generated.protobuffer.PB;
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot of the traffic counters of all connections, used for logging the traffic of headless nodes.
+ * The rates are calculated from the difference to the previous snapshot.
+ */
+@Value
+public class TrafficMetrics {
+    @Value
+    public static class PeerTraffic {
+        private final String peer;
+        private final Connection.PeerType peerType;
+        private final long sentBytes;
+        private final long receivedBytes;
+        private final int roundTripTime;
+        private final int outboundQueueSize;
+        private final long droppedMessages;
+    }
+
+    private final long timestamp;
+    private final int numConnections;
+    private final long totalSentBytes;
+    private final long totalReceivedBytes;
+    private final long totalDroppedMessages;
+    private final long sentBytesPerSec;
+    private final long receivedBytesPerSec;
+    // Percentiles of the round trip times of the connections with a measured round trip time, in ms
+    private final int roundTripTimeP50;
+    private final int roundTripTimeP90;
+    private final int roundTripTimeMax;
+    // Sorted by the sum of sent and received bytes, largest first
+    private final List<PeerTraffic> peerTraffic;
+    private final Map<PB.NetworkEnvelope.MessageCase, Long> totalSentMessages;
+    private final Map<PB.NetworkEnvelope.MessageCase, Long> totalReceivedMessages;
+
+    public static TrafficMetrics from(Collection<Connection> connections, @Nullable TrafficMetrics previous) {
+        long timestamp = System.currentTimeMillis();
+        long totalSentBytes = Statistic.getTotalSentBytes();
+        long totalReceivedBytes = Statistic.getTotalReceivedBytes();
+        long sentBytesPerSec = 0;
+        long receivedBytesPerSec = 0;
+        if (previous != null && timestamp > previous.timestamp) {
+            long elapsed = timestamp - previous.timestamp;
+            sentBytesPerSec = (totalSentBytes - previous.totalSentBytes) * 1000 / elapsed;
+            receivedBytesPerSec = (totalReceivedBytes - previous.totalReceivedBytes) * 1000 / elapsed;
+        }
+
+        List<PeerTraffic> peerTraffic = connections.stream()
+                .map(connection -> {
+                    Statistic statistic = connection.getStatistic();
+                    String peer = connection.getPeersNodeAddressOptional().isPresent() ?
+                            connection.getPeersNodeAddressOptional().get().getFullAddress() :
+                            connection.getUid();
+                    return new PeerTraffic(peer,
+                            connection.getPeerType(),
+                            statistic.getSentBytes(),
+                            statistic.getReceivedBytes(),
+                            statistic.getRoundTripTime(),
+                            statistic.getOutboundQueueSize(),
+                            statistic.getDroppedMessages());
+                })
+                .sorted(Comparator.comparingLong((PeerTraffic e) -> e.sentBytes + e.receivedBytes).reversed())
+                .collect(Collectors.toList());
+
+        List<Integer> roundTripTimes = peerTraffic.stream()
+                .map(PeerTraffic::getRoundTripTime)
+                .filter(e -> e > 0)
+                .sorted()
+                .collect(Collectors.toList());
+
+        return new TrafficMetrics(timestamp,
+                connections.size(),
+                totalSentBytes,
+                totalReceivedBytes,
+                Statistic.getTotalDroppedMessages(),
+                sentBytesPerSec,
+                receivedBytesPerSec,
+                getPercentile(roundTripTimes, 50),
+                getPercentile(roundTripTimes, 90),
+                getPercentile(roundTripTimes, 100),
+                peerTraffic,
+                Statistic.getTotalSentMessages(),
+                Statistic.getTotalReceivedMessages());
+    }
+
+    // Nearest rank percentile of a sorted list, 0 if the list is empty
+    static int getPercentile(List<Integer> sorted, int percentile) {
+        if (sorted.isEmpty())
+            return 0;
+        int rank = (int) Math.ceil(percentile / 100d * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+}
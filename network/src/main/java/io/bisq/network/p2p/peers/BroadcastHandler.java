@@ -2,6 +2,7 @@ package io.bisq.network.p2p.peers;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
@@ -9,8 +10,10 @@ import io.bisq.common.app.Log;
 import io.bisq.common.util.Utilities;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.EncodedEnvelope;
 import io.bisq.network.p2p.network.NetworkNode;
 import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import io.bisq.network.p2p.storage.messages.BulkRefreshOfferMessage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -27,6 +30,10 @@ public class BroadcastHandler implements PeerManager.Listener {
 
     private static final Logger log = LoggerFactory.getLogger(BroadcastHandler.class);
     private static final long TIMEOUT_PER_PEER_SEC = 30;
+    // The single RefreshOfferMessages for peers which don't support the BulkRefreshOfferMessage are sent in chunks.
+    // One chunk per second matches the outbound rate limit of the connection and stays far below its queue size.
+    private static final int REFRESH_OFFER_MESSAGES_PER_CHUNK = 50;
+    private static final long REFRESH_OFFER_CHUNK_DELAY_MS = 1000;
 
     interface ResultHandler {
         void onCompleted(BroadcastHandler broadcastHandler);
@@ -68,6 +75,14 @@ public class BroadcastHandler implements PeerManager.Listener {
     private Listener listener;
     private int numOfPeers;
     private Timer timeoutTimer;
+    // The message is serialized once and the same bytes are sent to all peers
+    @Nullable
+    private EncodedEnvelope encodedEnvelope;
+    // Only used for a BulkRefreshOfferMessage sent to peers which don't support it
+    @Nullable
+    private List<EncodedEnvelope> encodedRefreshOfferMessages;
+    // Whether the message can be sent is decided once per set of supported capabilities, not per peer
+    private final Map<List<Integer>, Boolean> isCapabilitySupportedBySupportedCapabilities = new HashMap<>();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -149,10 +164,19 @@ public class BroadcastHandler implements PeerManager.Listener {
                 "message = " + Utilities.toTruncatedString(message);
         if (!stopped) {
             if (!connection.isStopped()) {
-                if (!connection.isCapabilityRequired(message) || connection.isCapabilitySupported(message)) {
+                ListenableFuture<Connection> future = null;
+                if (!connection.isCapabilityRequired(message) || isCapabilitySupported(connection, message)) {
+                    if (encodedEnvelope == null)
+                        encodedEnvelope = EncodedEnvelope.encode(message);
+                    future = networkNode.sendMessage(connection, encodedEnvelope);
+                } else if (message instanceof BulkRefreshOfferMessage) {
+                    // Peers with an old version get the refreshes as single messages
+                    future = sendRefreshOfferMessages(connection, (BulkRefreshOfferMessage) message);
+                }
+
+                if (future != null) {
                     NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
                     log.trace("Broadcast message to " + nodeAddress + ".");
-                    SettableFuture<Connection> future = networkNode.sendMessage(connection, message);
                     Futures.addCallback(future, new FutureCallback<Connection>() {
                         @Override
                         public void onSuccess(Connection connection) {
@@ -224,8 +248,60 @@ public class BroadcastHandler implements PeerManager.Listener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private ListenableFuture<Connection> sendRefreshOfferMessages(Connection connection, BulkRefreshOfferMessage message) {
+        if (encodedRefreshOfferMessages == null)
+            encodedRefreshOfferMessages = message.getRefreshOfferMessages().stream()
+                    .map(EncodedEnvelope::encode)
+                    .collect(Collectors.toList());
+
+        SettableFuture<Connection> resultFuture = SettableFuture.create();
+        sendRefreshOfferMessages(connection, encodedRefreshOfferMessages, 0, resultFuture);
+        return resultFuture;
+    }
+
+    // We send the messages in chunks, so we don't fill up the outbound queue of the connection with up to
+    // MAX_REFRESH_OFFER_MESSAGES messages at once, which would cause other messages to that peer to be dropped.
+    private void sendRefreshOfferMessages(Connection connection, List<EncodedEnvelope> encodedMessages, int fromIndex,
+                                          SettableFuture<Connection> resultFuture) {
+        if (stopped)
+            return;
+
+        if (connection.isStopped()) {
+            resultFuture.setException(new IllegalStateException("Connection stopped while sending the refresh offer messages"));
+            return;
+        }
+
+        int toIndex = Math.min(fromIndex + REFRESH_OFFER_MESSAGES_PER_CHUNK, encodedMessages.size());
+        List<ListenableFuture<Connection>> futures = encodedMessages.subList(fromIndex, toIndex).stream()
+                .map(encodedRefreshOfferMessage -> networkNode.sendMessage(connection, encodedRefreshOfferMessage))
+                .collect(Collectors.toList());
+        Futures.addCallback(Futures.allAsList(futures), new FutureCallback<List<Connection>>() {
+            @Override
+            public void onSuccess(List<Connection> result) {
+                if (toIndex < encodedMessages.size())
+                    UserThread.runAfter(() -> sendRefreshOfferMessages(connection, encodedMessages, toIndex, resultFuture),
+                            REFRESH_OFFER_CHUNK_DELAY_MS, TimeUnit.MILLISECONDS);
+                else
+                    resultFuture.set(connection);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                resultFuture.setException(throwable);
+            }
+        });
+    }
+
+    private boolean isCapabilitySupported(Connection connection, BroadcastMessage message) {
+        // The key can be null for peers with an old version which do not support capabilities
+        return isCapabilitySupportedBySupportedCapabilities.computeIfAbsent(connection.getSupportedCapabilities(),
+                supportedCapabilities -> connection.isCapabilitySupported(message));
+    }
+
     private void cleanup() {
         stopped = true;
+        encodedEnvelope = null;
+        encodedRefreshOfferMessages = null;
         peerManager.removeListener(this);
         if (timeoutTimer != null) {
             timeoutTimer.stop();
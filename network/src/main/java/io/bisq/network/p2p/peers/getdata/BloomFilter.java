@@ -0,0 +1,143 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.generated.protobuffer.PB;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bloom filter over the keys (payload hashes) of our data store. Used in the GetDataRequest instead of the list of
+ * excluded keys if the peer supports it. With the default false positive rate it needs about 29 bits per key
+ * instead of the 32 bytes of the key.
+ * <p>
+ * A false positive causes the peer to not send us an item we don't have. We use a new random seed for each filter,
+ * so an item missed that way will be delivered at one of the next requests.
+ * <p>
+ * The keys are SHA256 hashes, so we don't need to hash them again but derive the bit positions from the key bytes
+ * combined with the seed (double hashing).
+ */
+@EqualsAndHashCode
+@Getter
+@ToString(exclude = "bits")
+public final class BloomFilter implements NetworkPayload {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.000001;
+
+    // Protects the peer against filters which are expensive to test
+    private static final int MAX_NUM_HASH_FUNCTIONS = 32;
+    private static final double LN_2 = Math.log(2);
+
+    private final byte[] bits;
+    private final int numHashFunctions;
+    private final long seed;
+
+    public static BloomFilter fromKeys(Collection<byte[]> keys) {
+        return fromKeys(keys, DEFAULT_FALSE_POSITIVE_RATE, new Random().nextLong());
+    }
+
+    public static BloomFilter fromKeys(Collection<byte[]> keys, double falsePositiveRate, long seed) {
+        int numKeys = Math.max(1, keys.size());
+        long numBits = (long) Math.ceil(-numKeys * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+        int numBytes = (int) Math.max(1, (numBits + 7) / 8);
+        int numHashFunctions = (int) Math.max(1, Math.min(MAX_NUM_HASH_FUNCTIONS,
+                Math.round((double) numBytes * 8 / numKeys * LN_2)));
+        BloomFilter bloomFilter = new BloomFilter(new byte[numBytes], numHashFunctions, seed);
+        keys.forEach(bloomFilter::put);
+        return bloomFilter;
+    }
+
+    private BloomFilter(byte[] bits, int numHashFunctions, long seed) {
+        checkArgument(bits.length > 0, "bits must not be empty");
+        checkArgument(numHashFunctions > 0 && numHashFunctions <= MAX_NUM_HASH_FUNCTIONS,
+                "Invalid numHashFunctions. numHashFunctions=" + numHashFunctions);
+        this.bits = bits;
+        this.numHashFunctions = numHashFunctions;
+        this.seed = seed;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public PB.BloomFilter toProtoMessage() {
+        return PB.BloomFilter.newBuilder()
+                .setBits(ByteString.copyFrom(bits))
+                .setNumHashFunctions(numHashFunctions)
+                .setSeed(seed)
+                .build();
+    }
+
+    public static BloomFilter fromProto(PB.BloomFilter proto) {
+        return new BloomFilter(proto.getBits().toByteArray(), proto.getNumHashFunctions(), proto.getSeed());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean mightContain(byte[] key) {
+        long hash1 = getHash1(key);
+        long hash2 = getHash2(key);
+        for (int i = 0; i < numHashFunctions; i++) {
+            int index = getIndex(hash1, hash2, i);
+            if ((bits[index >>> 3] & (1 << (index & 7))) == 0)
+                return false;
+        }
+        return true;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void put(byte[] key) {
+        long hash1 = getHash1(key);
+        long hash2 = getHash2(key);
+        for (int i = 0; i < numHashFunctions; i++) {
+            int index = getIndex(hash1, hash2, i);
+            bits[index >>> 3] |= 1 << (index & 7);
+        }
+    }
+
+    private int getIndex(long hash1, long hash2, int i) {
+        long combined = hash1 + i * hash2;
+        return (int) ((combined & Long.MAX_VALUE) % ((long) bits.length * 8));
+    }
+
+    private long getHash1(byte[] key) {
+        return mix(readLong(key, 0) ^ seed);
+    }
+
+    private long getHash2(byte[] key) {
+        // Must not be 0, otherwise all positions would be the same
+        return mix(readLong(key, 8) ^ Long.rotateLeft(seed, 32)) | 1;
+    }
+
+    // Reads up to 8 bytes starting at offset. Keys shorter than that are padded with 0.
+    private static long readLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = offset; i < offset + 8; i++)
+            result = (result << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        return result;
+    }
+
+    // Finalizer of MurmurHash3, spreads the seed over all bits
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class GetDataRequestHandler {
@@ -82,7 +83,14 @@ public class GetDataRequestHandler {
                         .collect(Collectors.toSet())
                 : new HashSet<>();
 
-        for (ProtectedStorageEntry protectedStorageEntry : dataStorage.getFilteredValues(excludedItems)) {
+        // Peers supporting Capability.GET_DATA_BLOOM_FILTER send a bloom filter of their keys instead of the full
+        // list of keys.
+        final BloomFilter bloomFilter = getDataRequest.getBloomFilter();
+        Predicate<P2PDataStorage.ByteArray> isExcluded = bloomFilter != null ?
+                key -> excludedItems.contains(key) || bloomFilter.mightContain(key.bytes) :
+                excludedItems::contains;
+
+        for (ProtectedStorageEntry protectedStorageEntry : dataStorage.getFilteredValues(isExcluded)) {
             final StoragePayload storagePayload = protectedStorageEntry.getStoragePayload();
             boolean doAdd = false;
             if (storagePayload instanceof CapabilityRequiringPayload) {
@@ -5,6 +5,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.network.p2p.NodeAddress;
@@ -102,10 +103,18 @@ public class RequestDataHandler implements MessageListener {
                     .map(e -> e.getKey().bytes)
                     .collect(Collectors.toSet());
 
+            // We always send a bloom filter of the keys. Peers with an old version skip the unknown field, so if we
+            // don't know yet that the peer supports it (e.g. at the PreliminaryGetDataRequest to a seed node) we
+            // send the keys as well. If we have received the capabilities of that peer already we only send the
+            // filter.
+            BloomFilter bloomFilter = BloomFilter.fromKeys(excludedKeys);
+            if (isBloomFilterSupported(nodeAddress))
+                excludedKeys = new HashSet<>();
+
             if (isPreliminaryDataRequest)
-                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, bloomFilter);
             else
-                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys);
+                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys, bloomFilter);
 
             if (timeoutTimer == null) {
                 timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
@@ -205,18 +214,18 @@ public class RequestDataHandler implements MessageListener {
                         final NodeAddress sender = connection.getPeersNodeAddressOptional().get();
 
                         List<ProtectedStorageEntry> processDelayedItems = new ArrayList<>();
+                        List<ProtectedStorageEntry> items = new ArrayList<>();
                         dataSet.stream().forEach(e -> {
                             if (e.getStoragePayload() instanceof LazyProcessedStoragePayload)
                                 processDelayedItems.add(e);
-                            else {
-                                // We dont broadcast here (last param) as we are only connected to the seed node and would be pointless
-                                dataStorage.add(e, sender, null, false, false);
-                            }
+                            else
+                                items.add(e);
                         });
 
                         // We process the LazyProcessedStoragePayload items (TradeStatistics) in batches with a delay in between.
                         // We want avoid that the UI get stuck when processing many entries.
-                        // The dataStorage.add call is a bit expensive as sig checks is done there.
+                        // The dataStorage.add call is a bit expensive (hashing of the payload), the sig checks are done
+                        // on worker threads.
 
                         // Using a background thread might be an alternative but it would require much more effort and 
                         // it would also decrease user experience if the app gets under heavy load (like at startup with wallet sync).
@@ -235,11 +244,15 @@ public class RequestDataHandler implements MessageListener {
                             long delay = (i + 1) * 200;
                             int endIndex = Math.min(size, startIndex + chunkSize);
                             List<ProtectedStorageEntry> subList = processDelayedItems.subList(startIndex, endIndex);
-                            UserThread.runAfter(() -> subList.stream().forEach(protectedStorageEntry -> dataStorage.add(protectedStorageEntry, sender, null, false, false)), delay, TimeUnit.MILLISECONDS);
+                            UserThread.runAfter(() -> dataStorage.addAll(subList, sender, false, null), delay, TimeUnit.MILLISECONDS);
                         }
 
                         cleanup();
-                        listener.onComplete();
+                        // The signatures are verified on worker threads, we notify our listener after all items
+                        // have been added.
+                        // We dont broadcast here (allowBroadcast=false) as we are only connected to the seed node
+                        // and would be pointless
+                        dataStorage.addAll(items, sender, false, listener::onComplete);
                     } else {
                         log.debug("Nonce not matching. That can happen rarely if we get a response after a canceled " +
                                         "handshake (timeout causes connection close but peer might have sent a msg before " +
@@ -265,6 +278,16 @@ public class RequestDataHandler implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
 
+    private boolean isBloomFilterSupported(NodeAddress nodeAddress) {
+        final int capability = Capabilities.Capability.GET_DATA_BLOOM_FILTER.ordinal();
+        return networkNode.getAllConnections().stream()
+                .filter(connection -> connection.getPeersNodeAddressOptional().isPresent() &&
+                        connection.getPeersNodeAddressOptional().get().equals(nodeAddress))
+                .map(Connection::getSupportedCapabilities)
+                .anyMatch(supportedCapabilities -> supportedCapabilities != null &&
+                        supportedCapabilities.contains(capability));
+    }
+
     @SuppressWarnings("UnusedParameters")
     private void handleFault(String errorMessage, NodeAddress nodeAddress, CloseConnectionReason closeConnectionReason) {
         cleanup();
@@ -2,10 +2,12 @@ package io.bisq.network.p2p.peers.getdata.messages;
 
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.network.p2p.ExtendedDataSizePermission;
+import io.bisq.network.p2p.peers.getdata.BloomFilter;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import javax.annotation.Nullable;
 import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
@@ -14,10 +16,15 @@ import java.util.Set;
 public abstract class GetDataRequest extends NetworkEnvelope implements ExtendedDataSizePermission {
     protected final int nonce;
     protected final Set<byte[]> excludedKeys;
+    // Only set if the peer supports Capability.GET_DATA_BLOOM_FILTER. Keys contained in the filter are excluded
+    // as well.
+    @Nullable
+    protected final BloomFilter bloomFilter;
 
-    public GetDataRequest(int messageVersion, int nonce, Set<byte[]> excludedKeys) {
+    public GetDataRequest(int messageVersion, int nonce, Set<byte[]> excludedKeys, @Nullable BloomFilter bloomFilter) {
         super(messageVersion);
         this.nonce = nonce;
         this.excludedKeys = excludedKeys;
+        this.bloomFilter = bloomFilter;
     }
 }
@@ -6,9 +6,12 @@ import io.bisq.common.proto.ProtoUtil;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.SendersNodeAddressMessage;
+import io.bisq.network.p2p.peers.getdata.BloomFilter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 
+import javax.annotation.Nullable;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -25,6 +28,17 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
         this(senderNodeAddress,
                 nonce,
                 excludedKeys,
+                null);
+    }
+
+    public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
+                                 int nonce,
+                                 Set<byte[]> excludedKeys,
+                                 @Nullable BloomFilter bloomFilter) {
+        this(senderNodeAddress,
+                nonce,
+                excludedKeys,
+                bloomFilter,
                 Version.getP2PMessageVersion());
     }
 
@@ -36,23 +50,27 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     private GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                   int nonce,
                                   Set<byte[]> excludedKeys,
+                                  @Nullable BloomFilter bloomFilter,
                                   int messageVersion) {
         super(messageVersion,
                 nonce,
-                excludedKeys);
+                excludedKeys,
+                bloomFilter);
         checkNotNull(senderNodeAddress, "senderNodeAddress must not be null at GetUpdatedDataRequest");
         this.senderNodeAddress = senderNodeAddress;
     }
 
     @Override
     public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        final PB.GetUpdatedDataRequest.Builder builder = PB.GetUpdatedDataRequest.newBuilder()
+                .setSenderNodeAddress(senderNodeAddress.toProtoMessage())
+                .setNonce(nonce)
+                .addAllExcludedKeys(excludedKeys.stream()
+                        .map(ByteString::copyFrom)
+                        .collect(Collectors.toList()));
+        Optional.ofNullable(bloomFilter).ifPresent(e -> builder.setBloomFilter(e.toProtoMessage()));
         return getNetworkEnvelopeBuilder()
-                .setGetUpdatedDataRequest(PB.GetUpdatedDataRequest.newBuilder()
-                        .setSenderNodeAddress(senderNodeAddress.toProtoMessage())
-                        .setNonce(nonce)
-                        .addAllExcludedKeys(excludedKeys.stream()
-                                .map(ByteString::copyFrom)
-                                .collect(Collectors.toList())))
+                .setGetUpdatedDataRequest(builder)
                 .build();
     }
 
@@ -60,6 +78,7 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
         return new GetUpdatedDataRequest(NodeAddress.fromProto(proto.getSenderNodeAddress()),
                 proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasBloomFilter() ? BloomFilter.fromProto(proto.getBloomFilter()) : null,
                 messageVersion);
     }
 }
@@ -7,10 +7,13 @@ import io.bisq.common.proto.ProtoUtil;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.AnonymousMessage;
 import io.bisq.network.p2p.SupportedCapabilitiesMessage;
+import io.bisq.network.p2p.peers.getdata.BloomFilter;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,7 +24,11 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
     private final ArrayList<Integer> supportedCapabilities = Capabilities.getCapabilities();
 
     public PreliminaryGetDataRequest(int nonce, Set<byte[]> excludedKeys) {
-        this(nonce, excludedKeys, Version.getP2PMessageVersion());
+        this(nonce, excludedKeys, null);
+    }
+
+    public PreliminaryGetDataRequest(int nonce, Set<byte[]> excludedKeys, @Nullable BloomFilter bloomFilter) {
+        this(nonce, excludedKeys, bloomFilter, Version.getP2PMessageVersion());
     }
 
 
@@ -29,25 +36,31 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private PreliminaryGetDataRequest(int nonce, Set<byte[]> excludedKeys, int messageVersion) {
-        super(messageVersion, nonce, excludedKeys);
+    private PreliminaryGetDataRequest(int nonce,
+                                      Set<byte[]> excludedKeys,
+                                      @Nullable BloomFilter bloomFilter,
+                                      int messageVersion) {
+        super(messageVersion, nonce, excludedKeys, bloomFilter);
     }
 
     @Override
     public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        final PB.PreliminaryGetDataRequest.Builder builder = PB.PreliminaryGetDataRequest.newBuilder()
+                .setNonce(nonce)
+                .addAllExcludedKeys(excludedKeys.stream()
+                        .map(ByteString::copyFrom)
+                        .collect(Collectors.toList()))
+                .addAllSupportedCapabilities(supportedCapabilities);
+        Optional.ofNullable(bloomFilter).ifPresent(e -> builder.setBloomFilter(e.toProtoMessage()));
         return getNetworkEnvelopeBuilder()
-                .setPreliminaryGetDataRequest(PB.PreliminaryGetDataRequest.newBuilder()
-                        .setNonce(nonce)
-                        .addAllExcludedKeys(excludedKeys.stream()
-                                .map(ByteString::copyFrom)
-                                .collect(Collectors.toList()))
-                        .addAllSupportedCapabilities(supportedCapabilities))
+                .setPreliminaryGetDataRequest(builder)
                 .build();
     }
 
     public static PreliminaryGetDataRequest fromProto(PB.PreliminaryGetDataRequest proto, int messageVersion) {
         return new PreliminaryGetDataRequest(proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasBloomFilter() ? BloomFilter.fromProto(proto.getBloomFilter()) : null,
                 messageVersion);
     }
 }
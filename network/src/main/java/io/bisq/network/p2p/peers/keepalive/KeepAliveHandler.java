@@ -80,7 +80,7 @@ class KeepAliveHandler implements MessageListener {
     private void sendPing(Connection connection) {
         Log.traceCall("connection=" + connection + " / this=" + this);
         if (!stopped) {
-            Ping ping = new Ping(nonce, connection.getStatistic().roundTripTimeProperty().get());
+            Ping ping = new Ping(nonce, connection.getStatistic().getRoundTripTime());
             sendTs = System.currentTimeMillis();
             SettableFuture<Connection> future = networkNode.sendMessage(connection, ping);
             Futures.addCallback(future, new FutureCallback<Connection>() {
@@ -0,0 +1,58 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.util.Tuple2;
+
+import java.util.*;
+
+/**
+ * Hashes of our stored data ordered by their expiration date, so the periodic check for expired data only needs
+ * to look at the entries which are due instead of the whole map.
+ * <p>
+ * The expiration date of an entry gets later with each refresh of the TTL. We don't update the queue at a refresh
+ * but check the entries when they are due and schedule them again if they are not expired yet. Only an earlier
+ * expiration date (e.g. by backDate) needs to be scheduled explicitly.
+ * <p>
+ * Not thread safe, must be used from the UserThread.
+ */
+class ExpiryQueue {
+    private final Queue<Tuple2<Long, P2PDataStorage.ByteArray>> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Tuple2<Long, P2PDataStorage.ByteArray> tuple) -> tuple.first));
+    // The earliest scheduled expiration date of each hash. Items of the queue with another date are outdated and
+    // get ignored.
+    private final Map<P2PDataStorage.ByteArray, Long> scheduledExpirationDates = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void schedule(P2PDataStorage.ByteArray hash, long expirationDate) {
+        Long scheduledExpirationDate = scheduledExpirationDates.get(hash);
+        if (scheduledExpirationDate == null || expirationDate < scheduledExpirationDate) {
+            scheduledExpirationDates.put(hash, expirationDate);
+            queue.add(new Tuple2<>(expirationDate, hash));
+        }
+    }
+
+    void remove(P2PDataStorage.ByteArray hash) {
+        // The item in the queue gets ignored when it is due
+        scheduledExpirationDates.remove(hash);
+    }
+
+    // Returns the hashes with an expiration date not later than now and removes them from the queue
+    List<P2PDataStorage.ByteArray> pollDue(long now) {
+        List<P2PDataStorage.ByteArray> dueHashes = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().first <= now) {
+            Tuple2<Long, P2PDataStorage.ByteArray> tuple = queue.poll();
+            if (tuple.first.equals(scheduledExpirationDates.get(tuple.second))) {
+                scheduledExpirationDates.remove(tuple.second);
+                dueHashes.add(tuple.second);
+            }
+        }
+        return dueHashes;
+    }
+
+    int size() {
+        return scheduledExpirationDates.size();
+    }
+}
@@ -2,9 +2,16 @@ package io.bisq.network.p2p.storage;
 
 import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 
+import java.util.Collection;
+
 public interface HashMapChangedListener {
     void onAdded(ProtectedStorageEntry data);
 
     @SuppressWarnings("UnusedParameters")
     void onRemoved(ProtectedStorageEntry data);
+
+    // Expired data are removed in batches. Override if the listener can handle a batch more efficiently.
+    default void onRemoved(Collection<ProtectedStorageEntry> data) {
+        data.forEach(this::onRemoved);
+    }
 }
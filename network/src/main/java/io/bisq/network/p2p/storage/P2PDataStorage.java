@@ -9,16 +9,17 @@ import io.bisq.common.crypto.CryptoException;
 import io.bisq.common.crypto.Sig;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.common.proto.persistable.PersistablePayload;
 import io.bisq.common.proto.persistable.PersistedDataHost;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.AppendOnlyLog;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.common.storage.ResourceNotFoundException;
 import io.bisq.common.storage.Storage;
 import io.bisq.common.util.Tuple2;
 import io.bisq.common.util.Utilities;
 import io.bisq.generated.protobuffer.PB;
-import io.bisq.network.crypto.EncryptionService;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.*;
 import io.bisq.network.p2p.peers.BroadcastHandler;
@@ -42,6 +43,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 // Run in UserThread
@@ -56,14 +58,31 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @VisibleForTesting
     public static int CHECK_TTL_INTERVAL_SEC = 60;
 
+    // We write a new snapshot of a persisted map if its log has more records than the map has entries,
+    // so the costs for the compaction are spread over the records.
+    private static final int MIN_LOG_RECORDS_FOR_COMPACTION = 1000;
+    private static final String ENTRY_MAP_FILE_NAME = "EntryMap";
+    private static final long SEQUENCE_NUMBER_MAP_PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
     private final Broadcaster broadcaster;
     private final File storageDir;
+    private final NetworkProtoResolver networkProtoResolver;
     private final Map<ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
+    // Hashes of the RequiresOwnerIsOnlinePayloads in our map by the node address of their owner. Needs to be
+    // updated at each change of the map, use putEntry and removeEntry for changes.
+    private final Map<NodeAddress, Set<ByteArray>> hashesByOwnerNodeAddress = new ConcurrentHashMap<>();
     private final CopyOnWriteArraySet<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
+    private final PayloadHashCache payloadHashCache = new PayloadHashCache();
+    private final SignatureVerifier signatureVerifier = new SignatureVerifier(payloadHashCache);
     private Timer removeExpiredEntriesTimer;
+    // Expiration dates of the entries which are removed at expiry. Only accessed from the UserThread.
+    private final ExpiryQueue expiryQueue = new ExpiryQueue();
+    private long lastSequenceNumberMapPurgeTs;
     private final SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
     private final Storage<SequenceNumberMap> sequenceNumberMapStorage;
     private final Storage<PersistedEntryMap> persistedEntryMapStorage;
+    private final AppendOnlyLog<SequenceNumberMap> sequenceNumberMapLog;
+    private final AppendOnlyLog<PersistedEntryMap> persistedEntryMapLog;
     private PersistedEntryMap persistedEntryMap;
 
 
@@ -74,9 +93,11 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public P2PDataStorage(Broadcaster broadcaster,
                           NetworkNode networkNode,
                           File storageDir,
+                          NetworkProtoResolver networkProtoResolver,
                           PersistenceProtoResolver persistenceProtoResolver) {
         this.broadcaster = broadcaster;
         this.storageDir = storageDir;
+        this.networkProtoResolver = networkProtoResolver;
 
         networkNode.addMessageListener(this);
         networkNode.addConnectionListener(this);
@@ -85,13 +106,28 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         persistedEntryMapStorage = new Storage<>(storageDir, persistenceProtoResolver);
         sequenceNumberMapStorage.setNumMaxBackupFiles(5);
         persistedEntryMapStorage.setNumMaxBackupFiles(1);
+
+        // Changes of the maps are appended to a log instead of writing the whole map at each change.
+        // The snapshots are written by the logs, so they keep the backups at compaction.
+        sequenceNumberMapLog = new AppendOnlyLog<>(storageDir, SequenceNumberMap.class.getSimpleName(), persistenceProtoResolver);
+        persistedEntryMapLog = new AppendOnlyLog<>(storageDir, ENTRY_MAP_FILE_NAME, persistenceProtoResolver);
+        sequenceNumberMapLog.setNumMaxBackupFiles(5);
+        persistedEntryMapLog.setNumMaxBackupFiles(1);
     }
 
     @Override
     public void readPersisted() {
         SequenceNumberMap persistedSequenceNumberMap = sequenceNumberMapStorage.initAndGetPersisted(sequenceNumberMap);
-        if (persistedSequenceNumberMap != null)
-            sequenceNumberMap.setMap(getPurgedSequenceNumberMap(persistedSequenceNumberMap.getMap()));
+        List<SequenceNumberMap> records = sequenceNumberMapLog.read();
+        if (persistedSequenceNumberMap != null || !records.isEmpty()) {
+            Map<ByteArray, MapValue> persisted = new HashMap<>();
+            if (persistedSequenceNumberMap != null)
+                persisted.putAll(persistedSequenceNumberMap.getMap());
+            records.forEach(record -> persisted.putAll(record.getMap()));
+            sequenceNumberMap.setMap(getPurgedSequenceNumberMap(persisted));
+        }
+        if (sequenceNumberMapLog.getNumRecords() > Math.max(MIN_LOG_RECORDS_FOR_COMPACTION, sequenceNumberMap.size()))
+            sequenceNumberMapLog.compact(SequenceNumberMap.clone(sequenceNumberMap));
 
         // PersistedEntryMap cannot be set here as we dont know yet the selected base currency
         // We get it called in readPersistedEntryMap once ready
@@ -100,7 +136,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     // This method is called at startup in a non-user thread.
     // We should not have any threading issues here as the p2p network is just initializing
     public synchronized void readEntryMapFromResources(String resourceFileName) {
-        final String storageFileName = "EntryMap";
+        final String storageFileName = ENTRY_MAP_FILE_NAME;
         File dbDir = new File(storageDir.getAbsolutePath());
         if (!dbDir.exists() && !dbDir.mkdir())
             log.warn("make dir failed.\ndbDir=" + dbDir.getAbsolutePath());
@@ -120,20 +156,20 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         } else {
             log.debug(storageFileName + " file exists already.");
         }
-        // takes about 4 seconds with PB! :-(
-        persistedEntryMap = persistedEntryMapStorage.<HashMap<ByteArray, MapValue>>initAndGetPersistedWithFileName(storageFileName);
-
-        if (persistedEntryMap != null) {
-            map.putAll(persistedEntryMap.getMap());
-            log.info("persistedEntryMap size=" + map.size());
-
-            // In case another object is already listening...
-            if (!hashMapChangedListeners.isEmpty())
-                map.values().stream()
-                        .forEach(protectedStorageEntry -> hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedStorageEntry)));
-        } else {
-            persistedEntryMap = new PersistedEntryMap();
-        }
+        // The entries are streamed from the file and converted in parallel. We only apply them once the whole file
+        // was read successfully, a corrupted file is handled by Storage and we start with an empty map.
+        long ts = System.currentTimeMillis();
+        persistedEntryMap = new PersistedEntryMap();
+        Map<ByteArray, ProtectedStorageEntry> persistedEntries = persistedEntryMapStorage.initAndReadPersistedWithFileName(
+                storageFileName, inputStream -> PersistedEntryMap.readEntries(inputStream, networkProtoResolver));
+        if (persistedEntries != null)
+            addPersistedEntries(persistedEntries);
+
+        // We apply the changes which have been added since the last compaction
+        persistedEntryMapLog.read().forEach(record -> addPersistedEntries(record.getMap()));
+        log.info("persistedEntryMap size={}. Loading took {} ms", persistedEntryMap.getMap().size(),
+                System.currentTimeMillis() - ts);
+        compactPersistedEntryMapIfRequired();
     }
 
 
@@ -144,6 +180,10 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void shutDown() {
         if (removeExpiredEntriesTimer != null)
             removeExpiredEntriesTimer.stop();
+
+        signatureVerifier.shutDown();
+        sequenceNumberMapLog.shutDown();
+        persistedEntryMapLog.shutDown();
     }
 
     public void onBootstrapComplete() {
@@ -154,26 +194,35 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             // object when we get it sent from new peers, we don’t remove the sequence number from the map.
             // That way an ADD message for an already expired data will fail because the sequence number
             // is equal and not larger as expected.
-            Map<ByteArray, ProtectedStorageEntry> temp = new HashMap<>(map);
-            Set<ProtectedStorageEntry> toRemoveSet = new HashSet<>();
-            temp.entrySet().stream()
-                    .filter(entry -> entry.getValue().isExpired())
-                    .forEach(entry -> {
-                        ByteArray hashOfPayload = entry.getKey();
-                        ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
-                        if (!(protectedStorageEntry.getStoragePayload() instanceof PersistedStoragePayload)) {
-                            toRemoveSet.add(protectedStorageEntry);
-                            log.debug("We found an expired data entry. We remove the protectedData:\n\t" + Utilities.toTruncatedString(protectedStorageEntry));
-                            map.remove(hashOfPayload);
-                        }
-                    });
+            long now = System.currentTimeMillis();
+            List<ProtectedStorageEntry> toRemoveList = new ArrayList<>();
+            expiryQueue.pollDue(now).forEach(hashOfPayload -> {
+                ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
+                if (protectedStorageEntry == null)
+                    return;
+
+                if (protectedStorageEntry.isExpired()) {
+                    toRemoveList.add(protectedStorageEntry);
+                    log.debug("We found an expired data entry. We remove the protectedData:\n\t" + Utilities.toTruncatedString(protectedStorageEntry));
+                    removeEntry(hashOfPayload);
+                } else {
+                    // TTL got refreshed in the meantime
+                    expiryQueue.schedule(hashOfPayload, getExpirationDate(protectedStorageEntry));
+                }
+            });
 
-            toRemoveSet.stream().forEach(
-                    protectedDataToRemove -> hashMapChangedListeners.stream().forEach(
-                            listener -> listener.onRemoved(protectedDataToRemove)));
+            if (!toRemoveList.isEmpty())
+                hashMapChangedListeners.stream().forEach(listener -> listener.onRemoved(toRemoveList));
 
-            if (sequenceNumberMap.size() > 1000)
+            // Entries are purged only after PURGE_AGE_DAYS, so we don't need to check at each interval
+            if (sequenceNumberMap.size() > 1000 && now - lastSequenceNumberMapPurgeTs > SEQUENCE_NUMBER_MAP_PURGE_INTERVAL_MS) {
+                lastSequenceNumberMapPurgeTs = now;
+                int sizeBeforePurge = sequenceNumberMap.size();
                 sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
+                // The log contains only additions, so we need a new snapshot for the removed entries
+                if (sequenceNumberMap.size() != sizeBeforePurge)
+                    sequenceNumberMapLog.compact(SequenceNumberMap.clone(sequenceNumberMap));
+            }
         }, CHECK_TTL_INTERVAL_SEC);
     }
 
@@ -186,15 +235,47 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof BroadcastMessage) {
             Log.traceCall(Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
+            // Signatures are verified on worker threads. The operations are applied in the order the messages
+            // arrived after the verification.
             connection.getPeersNodeAddressOptional().ifPresent(peersNodeAddress -> {
                 if (networkEnvelop instanceof AddDataMessage) {
-                    add(((AddDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, null, false);
+                    final ProtectedStorageEntry protectedStorageEntry = ((AddDataMessage) networkEnvelop).getProtectedStorageEntry();
+                    signatureVerifier.verify(protectedStorageEntry, isSignatureValid -> {
+                        if (isSignatureValid)
+                            add(protectedStorageEntry, peersNodeAddress, null, false, true, true);
+                    });
                 } else if (networkEnvelop instanceof RemoveDataMessage) {
-                    remove(((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, false);
+                    final ProtectedStorageEntry protectedStorageEntry = ((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry();
+                    signatureVerifier.verify(protectedStorageEntry, isSignatureValid -> {
+                        if (isSignatureValid)
+                            remove(protectedStorageEntry, peersNodeAddress, false, true);
+                    });
                 } else if (networkEnvelop instanceof RemoveMailboxDataMessage) {
-                    removeMailboxData(((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry(), peersNodeAddress, false);
+                    final ProtectedMailboxStorageEntry protectedMailboxStorageEntry = ((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry();
+                    signatureVerifier.verify(protectedMailboxStorageEntry, isSignatureValid -> {
+                        if (isSignatureValid)
+                            removeMailboxData(protectedMailboxStorageEntry, peersNodeAddress, false, true);
+                    });
                 } else if (networkEnvelop instanceof RefreshOfferMessage) {
-                    refreshTTL((RefreshOfferMessage) networkEnvelop, peersNodeAddress, false);
+                    final RefreshOfferMessage refreshOfferMessage = (RefreshOfferMessage) networkEnvelop;
+                    // The signature is checked with the owner pubKey of our stored data. As the pubKey is part of
+                    // the payload it is the same for all data with that hash.
+                    final ProtectedStorageEntry storedData = map.get(new ByteArray(refreshOfferMessage.getHashOfPayload()));
+                    if (storedData != null) {
+                        if (isRefreshCandidate(storedData, refreshOfferMessage)) {
+                            signatureVerifier.verify(storedData.getStoragePayload().getOwnerPubKey(),
+                                    refreshOfferMessage.getHashOfDataAndSeqNr(),
+                                    refreshOfferMessage.getSignature(),
+                                    isSignatureValid -> {
+                                        if (isSignatureValid)
+                                            refreshTTL(refreshOfferMessage, peersNodeAddress, false, true);
+                                    });
+                        }
+                    } else {
+                        signatureVerifier.execute(() -> refreshTTL(refreshOfferMessage, peersNodeAddress, false));
+                    }
+                } else if (networkEnvelop instanceof BulkRefreshOfferMessage) {
+                    onBulkRefreshOfferMessage((BulkRefreshOfferMessage) networkEnvelop, peersNodeAddress);
                 }
             });
         }
@@ -212,47 +293,44 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Override
     public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
         if (connection.hasPeersNodeAddress() && !closeConnectionReason.isIntended) {
-            map.values().stream()
-                    .forEach(protectedData -> {
-                        ExpirablePayload expirablePayload = protectedData.getStoragePayload();
-                        if (expirablePayload instanceof RequiresOwnerIsOnlinePayload) {
-                            RequiresOwnerIsOnlinePayload requiresOwnerIsOnlinePayload = (RequiresOwnerIsOnlinePayload) expirablePayload;
-                            NodeAddress ownerNodeAddress = requiresOwnerIsOnlinePayload.getOwnerNodeAddress();
-                            if (ownerNodeAddress.equals(connection.getPeersNodeAddressOptional().get())) {
-                                // We have a RequiresLiveOwnerData data object with the node address of the
-                                // disconnected peer. We remove that data from our map.
-
-                                // Check if we have the data (e.g. OfferPayload)
-                                ByteArray hashOfPayload = getHashAsByteArray(expirablePayload);
-                                boolean containsKey = map.containsKey(hashOfPayload);
-                                if (containsKey) {
-                                    log.debug("We remove the data as the data owner got disconnected with " +
-                                            "closeConnectionReason=" + closeConnectionReason);
-
-                                    //noinspection ConstantConditions
-                                    Log.logIfStressTests("We remove the data as the data owner got disconnected with " +
-                                            "closeConnectionReason=" + closeConnectionReason +
-                                            " / isIntended=" + closeConnectionReason.isIntended +
-                                            " / peer=" + (connection.getPeersNodeAddressOptional().isPresent() ? connection.getPeersNodeAddressOptional().get() : "PeersNode unknown"));
-
-                                    // We only set the data back by half of the TTL and remove the data only if is has
-                                    // expired after tha back dating.
-                                    // We might get connection drops which are not caused by the node going offline, so
-                                    // we give more tolerance with that approach, giving the node the change to
-                                    // refresh the TTL with a refresh message.
-                                    // We observed those issues during stress tests, but it might have been caused by the
-                                    // test set up (many nodes/connections over 1 router)
-                                    // TODO investigate what causes the disconnections.
-                                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
-                                    protectedData.backDate();
-                                    if (protectedData.isExpired())
-                                        doRemoveProtectedExpirableData(protectedData, hashOfPayload);
-                                } else {
-                                    log.debug("Remove data ignored as we don't have an entry for that data.");
-                                }
-                            }
-                        }
-                    });
+            // We look up the RequiresOwnerIsOnlinePayload data objects with the node address of the disconnected
+            // peer in our index instead of iterating over the whole map.
+            Set<ByteArray> hashesOfOwnersPayloads = hashesByOwnerNodeAddress.get(connection.getPeersNodeAddressOptional().get());
+            if (hashesOfOwnersPayloads == null)
+                return;
+
+            // We copy as doRemoveProtectedExpirableData changes the set
+            new ArrayList<>(hashesOfOwnersPayloads).forEach(hashOfPayload -> {
+                // Check if we have the data (e.g. OfferPayload)
+                ProtectedStorageEntry protectedData = map.get(hashOfPayload);
+                if (protectedData != null) {
+                    log.debug("We remove the data as the data owner got disconnected with " +
+                            "closeConnectionReason=" + closeConnectionReason);
+
+                    //noinspection ConstantConditions
+                    Log.logIfStressTests("We remove the data as the data owner got disconnected with " +
+                            "closeConnectionReason=" + closeConnectionReason +
+                            " / isIntended=" + closeConnectionReason.isIntended +
+                            " / peer=" + (connection.getPeersNodeAddressOptional().isPresent() ? connection.getPeersNodeAddressOptional().get() : "PeersNode unknown"));
+
+                    // We only set the data back by half of the TTL and remove the data only if is has
+                    // expired after tha back dating.
+                    // We might get connection drops which are not caused by the node going offline, so
+                    // we give more tolerance with that approach, giving the node the change to
+                    // refresh the TTL with a refresh message.
+                    // We observed those issues during stress tests, but it might have been caused by the
+                    // test set up (many nodes/connections over 1 router)
+                    // TODO investigate what causes the disconnections.
+                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
+                    protectedData.backDate();
+                    if (protectedData.isExpired())
+                        doRemoveProtectedExpirableData(protectedData, hashOfPayload);
+                    else
+                        expiryQueue.schedule(hashOfPayload, getExpirationDate(protectedData));
+                } else {
+                    log.debug("Remove data ignored as we don't have an entry for that data.");
+                }
+            });
         }
     }
 
@@ -274,12 +352,34 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     public boolean add(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
                        @Nullable BroadcastHandler.Listener listener, boolean isDataOwner, boolean allowBroadcast) {
+        return add(protectedStorageEntry, sender, listener, isDataOwner, allowBroadcast, false);
+    }
+
+    /**
+     * Adds the entries we received with a GetDataResponse. The signatures are verified in parallel on worker threads
+     * and the entries get added in the given order on the UserThread. The resultHandler is called after all entries
+     * have been processed.
+     */
+    public void addAll(List<ProtectedStorageEntry> protectedStorageEntries, @Nullable NodeAddress sender,
+                       boolean allowBroadcast, @Nullable Runnable resultHandler) {
+        protectedStorageEntries.forEach(protectedStorageEntry ->
+                signatureVerifier.verify(protectedStorageEntry, isSignatureValid -> {
+                    if (isSignatureValid)
+                        add(protectedStorageEntry, sender, null, false, allowBroadcast, true);
+                }));
+        if (resultHandler != null)
+            signatureVerifier.execute(resultHandler);
+    }
+
+    private boolean add(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
+                        @Nullable BroadcastHandler.Listener listener, boolean isDataOwner, boolean allowBroadcast,
+                        boolean isSignatureVerified) {
         Log.traceCall("with allowBroadcast=" + allowBroadcast);
         final StoragePayload storagePayload = protectedStorageEntry.getStoragePayload();
         ByteArray hashOfPayload = getHashAsByteArray(storagePayload);
         boolean sequenceNrValid = isSequenceNrValid(protectedStorageEntry.getSequenceNumber(), hashOfPayload);
         boolean result = checkPublicKeys(protectedStorageEntry, true)
-                && checkSignature(protectedStorageEntry)
+                && (isSignatureVerified || checkSignature(protectedStorageEntry))
                 && sequenceNrValid;
 
         boolean containsKey = map.containsKey(hashOfPayload);
@@ -292,12 +392,13 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
             if (!containsKey || hasSequenceNrIncreased) {
                 // At startup we don't have the item so we store it. At updates of the seq nr we store as well.
-                map.put(hashOfPayload, protectedStorageEntry);
+                putEntry(hashOfPayload, protectedStorageEntry);
 
                 // If we get a PersistedStoragePayload we save to disc
                 if (storagePayload instanceof PersistedStoragePayload) {
                     persistedEntryMap.put(hashOfPayload, protectedStorageEntry);
-                    persistedEntryMapStorage.queueUpForSave(persistedEntryMap, 2000);
+                    persistedEntryMapLog.append(new PersistedEntryMap(Collections.singletonMap(hashOfPayload, protectedStorageEntry)));
+                    compactPersistedEntryMapIfRequired();
                 }
 
                 hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedStorageEntry));
@@ -307,9 +408,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             }
 
             if (hasSequenceNrIncreased) {
-                sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-                // We set the delay higher as we might receive a batch of items
-                sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 2000);
+                putSequenceNumber(hashOfPayload, protectedStorageEntry.getSequenceNumber());
 
                 if (allowBroadcast)
                     broadcast(new AddDataMessage(protectedStorageEntry), sender, listener, isDataOwner);
@@ -323,8 +422,60 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     public boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner) {
+        return refreshTTL(refreshTTLMessage, sender, isDataOwner, false);
+    }
+
+    private boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner,
+                               boolean isSignatureVerified) {
         Log.traceCall();
 
+        if (isAlreadyRefreshed(refreshTTLMessage)) {
+            log.trace("We got that message with that seq nr already from another peer. We ignore that message.");
+            return true;
+        }
+
+        boolean result = applyRefresh(refreshTTLMessage, isSignatureVerified);
+        if (result)
+            broadcast(refreshTTLMessage, sender, null, isDataOwner);
+        return result;
+    }
+
+    // Applies all refreshes and broadcasts the applied ones in one BulkRefreshOfferMessage.
+    // Returns false if any of the refreshes was invalid.
+    public boolean refreshTTL(BulkRefreshOfferMessage bulkRefreshOfferMessage, @Nullable NodeAddress sender,
+                              boolean isDataOwner) {
+        return refreshTTL(bulkRefreshOfferMessage.getRefreshOfferMessages(), sender, isDataOwner, false);
+    }
+
+    private boolean refreshTTL(List<RefreshOfferMessage> refreshOfferMessages, @Nullable NodeAddress sender,
+                               boolean isDataOwner, boolean isSignatureVerified) {
+        Log.traceCall("Number of refreshes: " + refreshOfferMessages.size());
+
+        boolean result = true;
+        List<RefreshOfferMessage> appliedRefreshOfferMessages = new ArrayList<>();
+        for (RefreshOfferMessage refreshOfferMessage : refreshOfferMessages) {
+            if (!isAlreadyRefreshed(refreshOfferMessage)) {
+                if (applyRefresh(refreshOfferMessage, isSignatureVerified))
+                    appliedRefreshOfferMessages.add(refreshOfferMessage);
+                else
+                    result = false;
+            }
+        }
+
+        if (!appliedRefreshOfferMessages.isEmpty())
+            broadcast(new BulkRefreshOfferMessage(appliedRefreshOfferMessages), sender, null, isDataOwner);
+        return result;
+    }
+
+    private boolean isAlreadyRefreshed(RefreshOfferMessage refreshTTLMessage) {
+        ByteArray hashOfPayload = new ByteArray(refreshTTLMessage.getHashOfPayload());
+        return map.containsKey(hashOfPayload) &&
+                sequenceNumberMap.containsKey(hashOfPayload) &&
+                sequenceNumberMap.get(hashOfPayload).sequenceNr == refreshTTLMessage.getSequenceNumber();
+    }
+
+    // Refreshes the stored data if the refresh is valid. Does not broadcast the refresh.
+    private boolean applyRefresh(RefreshOfferMessage refreshTTLMessage, boolean isSignatureVerified) {
         byte[] hashOfDataAndSeqNr = refreshTTLMessage.getHashOfDataAndSeqNr();
         byte[] signature = refreshTTLMessage.getSignature();
         ByteArray hashOfPayload = new ByteArray(refreshTTLMessage.getHashOfPayload());
@@ -332,41 +483,72 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
         if (map.containsKey(hashOfPayload)) {
             ProtectedStorageEntry storedData = map.get(hashOfPayload);
-
-            if (sequenceNumberMap.containsKey(hashOfPayload) && sequenceNumberMap.get(hashOfPayload).sequenceNr == sequenceNumber) {
-                log.trace("We got that message with that seq nr already from another peer. We ignore that message.");
-                return true;
-            } else {
-                PublicKey ownerPubKey = storedData.getStoragePayload().getOwnerPubKey();
-                final boolean checkSignature = checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
-                final boolean hasSequenceNrIncreased = hasSequenceNrIncreased(sequenceNumber, hashOfPayload);
-                final boolean checkIfStoredDataPubKeyMatchesNewDataPubKey = checkIfStoredDataPubKeyMatchesNewDataPubKey(ownerPubKey,
-                        hashOfPayload);
-                boolean allValid = checkSignature &&
-                        hasSequenceNrIncreased &&
-                        checkIfStoredDataPubKeyMatchesNewDataPubKey;
-
-                // printData("before refreshTTL");
-                if (allValid) {
-                    log.debug("refreshDate called for storedData:\n\t" + StringUtils.abbreviate(storedData.toString(), 100));
-                    storedData.refreshTTL();
-                    storedData.updateSequenceNumber(sequenceNumber);
-                    storedData.updateSignature(signature);
-                    printData("after refreshTTL");
-                    sequenceNumberMap.put(hashOfPayload, new MapValue(sequenceNumber, System.currentTimeMillis()));
-                    sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 1000);
-
-                    broadcast(refreshTTLMessage, sender, null, isDataOwner);
-                }
-                return allValid;
+            PublicKey ownerPubKey = storedData.getStoragePayload().getOwnerPubKey();
+            final boolean checkSignature = isSignatureVerified || checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
+            final boolean hasSequenceNrIncreased = hasSequenceNrIncreased(sequenceNumber, hashOfPayload);
+            final boolean checkIfStoredDataPubKeyMatchesNewDataPubKey = checkIfStoredDataPubKeyMatchesNewDataPubKey(ownerPubKey,
+                    hashOfPayload);
+            boolean allValid = checkSignature &&
+                    hasSequenceNrIncreased &&
+                    checkIfStoredDataPubKeyMatchesNewDataPubKey;
+
+            // printData("before refreshTTL");
+            if (allValid) {
+                log.debug("refreshDate called for storedData:\n\t" + StringUtils.abbreviate(storedData.toString(), 100));
+                storedData.refreshTTL();
+                storedData.updateSequenceNumber(sequenceNumber);
+                storedData.updateSignature(signature);
+                printData("after refreshTTL");
+                putSequenceNumber(hashOfPayload, sequenceNumber);
             }
+            return allValid;
         } else {
             log.debug("We don't have data for that refresh message in our map. That is expected if we missed the data publishing.");
             return false;
         }
     }
 
+    // The signatures are verified on the worker threads. The valid refreshes are applied together after all
+    // verifications are done, so they are relayed as one message.
+    private void onBulkRefreshOfferMessage(BulkRefreshOfferMessage bulkRefreshOfferMessage, NodeAddress sender) {
+        List<RefreshOfferMessage> refreshOfferMessages = bulkRefreshOfferMessage.getRefreshOfferMessages();
+        if (refreshOfferMessages.size() > BulkRefreshOfferMessage.MAX_REFRESH_OFFER_MESSAGES) {
+            log.warn("We received a BulkRefreshOfferMessage with too many refreshes. We ignore that message. " +
+                    "size={}, sender={}", refreshOfferMessages.size(), sender);
+            return;
+        }
+
+        // Only accessed from the UserThread
+        List<RefreshOfferMessage> verifiedRefreshOfferMessages = new ArrayList<>();
+        refreshOfferMessages.forEach(refreshOfferMessage -> {
+            ProtectedStorageEntry storedData = map.get(new ByteArray(refreshOfferMessage.getHashOfPayload()));
+            if (storedData != null && isRefreshCandidate(storedData, refreshOfferMessage)) {
+                signatureVerifier.verify(storedData.getStoragePayload().getOwnerPubKey(),
+                        refreshOfferMessage.getHashOfDataAndSeqNr(),
+                        refreshOfferMessage.getSignature(),
+                        isSignatureValid -> {
+                            if (isSignatureValid)
+                                verifiedRefreshOfferMessages.add(refreshOfferMessage);
+                        });
+            }
+        });
+        signatureVerifier.execute(() -> refreshTTL(verifiedRefreshOfferMessages, sender, false, true));
+    }
+
+    // The cheap checks of applyRefresh, done before we verify the signature. Old or replayed refreshes don't have an
+    // increased sequence number and would cost us a signature verification each.
+    private boolean isRefreshCandidate(ProtectedStorageEntry storedData, RefreshOfferMessage refreshOfferMessage) {
+        ByteArray hashOfPayload = new ByteArray(refreshOfferMessage.getHashOfPayload());
+        return hasSequenceNrIncreased(refreshOfferMessage.getSequenceNumber(), hashOfPayload) &&
+                checkIfStoredDataPubKeyMatchesNewDataPubKey(storedData.getStoragePayload().getOwnerPubKey(), hashOfPayload);
+    }
+
     public boolean remove(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender, boolean isDataOwner) {
+        return remove(protectedStorageEntry, sender, isDataOwner, false);
+    }
+
+    private boolean remove(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender, boolean isDataOwner,
+                           boolean isSignatureVerified) {
         Log.traceCall();
         ByteArray hashOfPayload = getHashAsByteArray(protectedStorageEntry.getStoragePayload());
         boolean containsKey = map.containsKey(hashOfPayload);
@@ -375,15 +557,14 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         boolean result = containsKey
                 && checkPublicKeys(protectedStorageEntry, false)
                 && isSequenceNrValid(protectedStorageEntry.getSequenceNumber(), hashOfPayload)
-                && checkSignature(protectedStorageEntry)
+                && (isSignatureVerified || checkSignature(protectedStorageEntry))
                 && checkIfStoredDataPubKeyMatchesNewDataPubKey(protectedStorageEntry.getOwnerPubKey(), hashOfPayload);
 
         // printData("before remove");
         if (result) {
             doRemoveProtectedExpirableData(protectedStorageEntry, hashOfPayload);
             printData("after remove");
-            sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            putSequenceNumber(hashOfPayload, protectedStorageEntry.getSequenceNumber());
 
             broadcast(new RemoveDataMessage(protectedStorageEntry), sender, null, isDataOwner);
         } else {
@@ -394,6 +575,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     @SuppressWarnings("UnusedReturnValue")
     public boolean removeMailboxData(ProtectedMailboxStorageEntry protectedMailboxStorageEntry, @Nullable NodeAddress sender, boolean isDataOwner) {
+        return removeMailboxData(protectedMailboxStorageEntry, sender, isDataOwner, false);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    private boolean removeMailboxData(ProtectedMailboxStorageEntry protectedMailboxStorageEntry, @Nullable NodeAddress sender,
+                                      boolean isDataOwner, boolean isSignatureVerified) {
         Log.traceCall();
         ByteArray hashOfData = getHashAsByteArray(protectedMailboxStorageEntry.getStoragePayload());
         boolean containsKey = map.containsKey(hashOfData);
@@ -403,15 +590,14 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 && checkPublicKeys(protectedMailboxStorageEntry, false)
                 && isSequenceNrValid(protectedMailboxStorageEntry.getSequenceNumber(), hashOfData)
                 && protectedMailboxStorageEntry.getMailboxStoragePayload().getOwnerPubKey().equals(protectedMailboxStorageEntry.getReceiversPubKey()) // at remove both keys are the same (only receiver is able to remove data)
-                && checkSignature(protectedMailboxStorageEntry)
+                && (isSignatureVerified || checkSignature(protectedMailboxStorageEntry))
                 && checkIfStoredMailboxDataMatchesNewMailboxData(protectedMailboxStorageEntry.getReceiversPubKey(), hashOfData);
 
         // printData("before removeMailboxData");
         if (result) {
             doRemoveProtectedExpirableData(protectedMailboxStorageEntry, hashOfData);
             printData("after removeMailboxData");
-            sequenceNumberMap.put(hashOfData, new MapValue(protectedMailboxStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            putSequenceNumber(hashOfData, protectedMailboxStorageEntry.getSequenceNumber());
 
             broadcast(new RemoveMailboxDataMessage(protectedMailboxStorageEntry), sender, null, isDataOwner);
         } else {
@@ -434,7 +620,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = EncryptionService.getHash(new DataAndSeqNrPair(storagePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = payloadHashCache.getHashOfDataAndSeqNr(storagePayload, sequenceNumber);
         byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new ProtectedStorageEntry(storagePayload, ownerStoragePubKey.getPublic(), sequenceNumber, signature);
     }
@@ -448,7 +634,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = EncryptionService.getHash(new DataAndSeqNrPair(storagePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = payloadHashCache.getHashOfDataAndSeqNr(storagePayload, sequenceNumber);
         byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new RefreshOfferMessage(hashOfDataAndSeqNr, signature, hashOfPayload.bytes, sequenceNumber);
     }
@@ -463,7 +649,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         else
             sequenceNumber = 1;
 
-        byte[] hashOfDataAndSeqNr = EncryptionService.getHash(new DataAndSeqNrPair(expirableMailboxStoragePayload, sequenceNumber));
+        byte[] hashOfDataAndSeqNr = payloadHashCache.getHashOfDataAndSeqNr(expirableMailboxStoragePayload, sequenceNumber);
         byte[] signature = Sig.sign(storageSignaturePubKey.getPrivate(), hashOfDataAndSeqNr);
         return new ProtectedMailboxStorageEntry(expirableMailboxStoragePayload,
                 storageSignaturePubKey.getPublic(), sequenceNumber, signature, receiversPublicKey);
@@ -478,8 +664,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     public Set<ProtectedStorageEntry> getFilteredValues(Set<ByteArray> excludedKeys) {
+        return getFilteredValues(excludedKeys::contains);
+    }
+
+    public Set<ProtectedStorageEntry> getFilteredValues(Predicate<ByteArray> isExcluded) {
         return map.entrySet().stream()
-                .filter(e -> !excludedKeys.contains(e.getKey()))
+                .filter(e -> !isExcluded.test(e.getKey()))
                 .map(Entry::getValue)
                 .collect(Collectors.toSet());
     }
@@ -490,7 +680,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private void doRemoveProtectedExpirableData(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
-        map.remove(hashOfPayload);
+        removeEntry(hashOfPayload);
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.stream().forEach(e -> e.onRemoved(protectedStorageEntry));
     }
@@ -559,7 +749,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     private boolean checkSignature(ProtectedStorageEntry protectedStorageEntry) {
-        byte[] hashOfDataAndSeqNr = EncryptionService.getHash(new DataAndSeqNrPair(protectedStorageEntry.getStoragePayload(), protectedStorageEntry.getSequenceNumber()));
+        byte[] hashOfDataAndSeqNr = payloadHashCache.getHashOfDataAndSeqNr(protectedStorageEntry.getStoragePayload(), protectedStorageEntry.getSequenceNumber());
         return checkSignature(protectedStorageEntry.getOwnerPubKey(), hashOfDataAndSeqNr, protectedStorageEntry.getSignature());
     }
 
@@ -630,7 +820,65 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     private ByteArray getHashAsByteArray(ExpirablePayload data) {
-        return new ByteArray(EncryptionService.getHash(data));
+        return payloadHashCache.getHash(data);
+    }
+
+    private void putSequenceNumber(ByteArray hashOfPayload, int sequenceNumber) {
+        MapValue mapValue = new MapValue(sequenceNumber, System.currentTimeMillis());
+        sequenceNumberMap.put(hashOfPayload, mapValue);
+        sequenceNumberMapLog.append(SequenceNumberMap.fromEntry(hashOfPayload, mapValue));
+        if (sequenceNumberMapLog.getNumRecords() > Math.max(MIN_LOG_RECORDS_FOR_COMPACTION, sequenceNumberMap.size()))
+            sequenceNumberMapLog.compact(SequenceNumberMap.clone(sequenceNumberMap));
+    }
+
+    private void addPersistedEntries(Map<ByteArray, ProtectedStorageEntry> entries) {
+        persistedEntryMap.getMap().putAll(entries);
+        entries.forEach(this::putEntry);
+
+        // In case another object is already listening...
+        if (!hashMapChangedListeners.isEmpty())
+            entries.values().stream()
+                    .forEach(protectedStorageEntry -> hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedStorageEntry)));
+    }
+
+    private void putEntry(ByteArray hashOfPayload, ProtectedStorageEntry protectedStorageEntry) {
+        map.put(hashOfPayload, protectedStorageEntry);
+        StoragePayload storagePayload = protectedStorageEntry.getStoragePayload();
+        // PersistedStoragePayloads don't get removed at expiry. They are added from a non-user thread at startup.
+        if (!(storagePayload instanceof PersistedStoragePayload))
+            expiryQueue.schedule(hashOfPayload, getExpirationDate(protectedStorageEntry));
+
+        if (storagePayload instanceof RequiresOwnerIsOnlinePayload) {
+            NodeAddress ownerNodeAddress = ((RequiresOwnerIsOnlinePayload) storagePayload).getOwnerNodeAddress();
+            hashesByOwnerNodeAddress.compute(ownerNodeAddress, (key, hashes) -> {
+                if (hashes == null)
+                    hashes = ConcurrentHashMap.newKeySet();
+                hashes.add(hashOfPayload);
+                return hashes;
+            });
+        }
+    }
+
+    private void removeEntry(ByteArray hashOfPayload) {
+        ProtectedStorageEntry protectedStorageEntry = map.remove(hashOfPayload);
+        if (protectedStorageEntry != null && !(protectedStorageEntry.getStoragePayload() instanceof PersistedStoragePayload))
+            expiryQueue.remove(hashOfPayload);
+        if (protectedStorageEntry != null && protectedStorageEntry.getStoragePayload() instanceof RequiresOwnerIsOnlinePayload) {
+            NodeAddress ownerNodeAddress = ((RequiresOwnerIsOnlinePayload) protectedStorageEntry.getStoragePayload()).getOwnerNodeAddress();
+            hashesByOwnerNodeAddress.computeIfPresent(ownerNodeAddress, (key, hashes) -> {
+                hashes.remove(hashOfPayload);
+                return hashes.isEmpty() ? null : hashes;
+            });
+        }
+    }
+
+    private static long getExpirationDate(ProtectedStorageEntry protectedStorageEntry) {
+        return protectedStorageEntry.getCreationTimeStamp() + protectedStorageEntry.getStoragePayload().getTTL();
+    }
+
+    private void compactPersistedEntryMapIfRequired() {
+        if (persistedEntryMapLog.getNumRecords() > Math.max(MIN_LOG_RECORDS_FOR_COMPACTION, persistedEntryMap.getMap().size()))
+            persistedEntryMapLog.compact(new PersistedEntryMap(persistedEntryMap.getMap()));
     }
 
     // Get a new map with entries older than PURGE_AGE_DAYS purged from the given map.
@@ -702,8 +950,13 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         // Used only for calculating hash of byte array from PB object
         @Override
         public com.google.protobuf.Message toProtoMessage() {
+            return toProtoMessage((PB.StoragePayload) storagePayload.toProtoMessage(), sequenceNumber);
+        }
+
+        // Used if the payload is already serialized
+        static PB.DataAndSeqNrPair toProtoMessage(PB.StoragePayload payloadProto, int sequenceNumber) {
             return PB.DataAndSeqNrPair.newBuilder()
-                    .setPayload((PB.StoragePayload) storagePayload.toProtoMessage())
+                    .setPayload(payloadProto)
                     .setSequenceNumber(sequenceNumber)
                     .build();
         }
@@ -0,0 +1,46 @@
+package io.bisq.network.p2p.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.bisq.common.crypto.Hash;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.payload.ExpirablePayload;
+import io.bisq.network.p2p.storage.payload.StoragePayload;
+
+/**
+ * Memoizes the hashes of the payloads we store, so a payload gets serialized and hashed only once instead of at
+ * each lookup, remove, refresh or disconnect.
+ * <p>
+ * The hash is the key of the payload in our map, so a payload must not be changed after it has been handed over to
+ * P2PDataStorage. We use weak keys, which are compared by identity, so the entries are removed once the payload is
+ * not referenced anymore. The cache is thread safe, so the hashes can be calculated on the SignatureVerifier threads.
+ */
+class PayloadHashCache {
+    private final Cache<ExpirablePayload, P2PDataStorage.ByteArray> hashes = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    P2PDataStorage.ByteArray getHash(ExpirablePayload payload) {
+        P2PDataStorage.ByteArray hash = hashes.getIfPresent(payload);
+        if (hash == null) {
+            hash = new P2PDataStorage.ByteArray(Hash.getHash(payload.toProtoMessage().toByteArray()));
+            hashes.put(payload, hash);
+        }
+        return hash;
+    }
+
+    // Hash used for the signature of the payload and sequence number. As we need to serialize the payload for it
+    // anyway we use the same serialization for the hash of the payload if it is not cached yet.
+    byte[] getHashOfDataAndSeqNr(StoragePayload storagePayload, int sequenceNumber) {
+        PB.StoragePayload payloadProto = (PB.StoragePayload) storagePayload.toProtoMessage();
+        if (hashes.getIfPresent(storagePayload) == null)
+            hashes.put(storagePayload, new P2PDataStorage.ByteArray(Hash.getHash(payloadProto.toByteArray())));
+
+        return Hash.getHash(P2PDataStorage.DataAndSeqNrPair.toProtoMessage(payloadProto, sequenceNumber).toByteArray());
+    }
+}
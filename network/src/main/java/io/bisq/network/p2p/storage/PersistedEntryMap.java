@@ -17,7 +17,10 @@
 
 package io.bisq.network.p2p.storage;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
 import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.generated.protobuffer.PB;
@@ -25,13 +28,21 @@ import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class PersistedEntryMap implements PersistableEnvelope {
+    // Number of entries we decode in one task
+    private static final int CHUNK_SIZE = 250;
+
     @Getter
     private Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
 
@@ -53,21 +64,128 @@ public class PersistedEntryMap implements PersistableEnvelope {
                 .build();
     }
 
-    public static PersistableEnvelope fromProto(Map<String, PB.ProtectedStorageEntry> proto,
-                                                NetworkProtoResolver networkProtoResolver) {
-        // Protobuffer maps don't support bytes as key so we use a hex string
+    public static PersistableEnvelope fromProto(PB.PersistedEntryMap proto, NetworkProtoResolver networkProtoResolver) {
+        // We get called for each record of the AppendOnlyLog, so we use debug level.
+        // The large snapshot file is read with readEntries.
+        log.debug("PersistedEntryMap.fromProto size: " + proto.getPersistedEntryMapCount());
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = new HashMap<>();
+        proto.getPersistedEntryMapMap().forEach((key, value) ->
+                map.put(new P2PDataStorage.ByteArray(key), ProtectedStorageEntry.fromProto(value, networkProtoResolver)));
+        return new PersistedEntryMap(map);
+    }
+
+    /**
+     * Reads the entries of a file written by toProtoMessage (delimited PB.PersistableEnvelope) from the stream
+     * without parsing the whole proto into memory. The entries are read one by one and converted in chunks on the
+     * ForkJoinPool while reading continues, as the conversion of the ProtectedStorageEntries is expensive (about
+     * 1 ms per entry).
+     * <p/>
+     * Returns all entries or throws if any entry could not be read or converted, so the caller never gets a
+     * partial result.
+     */
+    public static Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> readEntries(InputStream inputStream,
+                                                                                   NetworkProtoResolver networkProtoResolver)
+            throws IOException {
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> result = new HashMap<>();
+        int firstByte = inputStream.read();
+        if (firstByte == -1)
+            return result;
+
+        int size = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        CodedInputStream codedInputStream = CodedInputStream.newInstance(inputStream);
+        // The default limit of 64 MB applies to the whole stream, we only limit it to the size of the envelope
+        codedInputStream.setSizeLimit(Integer.MAX_VALUE);
+        codedInputStream.pushLimit(size);
+
+        CompletionService<Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> completionService =
+                new ExecutorCompletionService<>(ForkJoinPool.commonPool());
+        List<Future<Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>>> futures = new ArrayList<>();
+        try {
+            Map<String, PB.ProtectedStorageEntry> chunk = new HashMap<>();
+            while (!codedInputStream.isAtEnd()) {
+                int tag = codedInputStream.readTag();
+                if (!isLengthDelimitedField(tag, PB.PersistableEnvelope.PERSISTED_ENTRY_MAP_FIELD_NUMBER)) {
+                    codedInputStream.skipField(tag);
+                    continue;
+                }
+
+                int oldLimit = codedInputStream.pushLimit(codedInputStream.readRawVarint32());
+                while (!codedInputStream.isAtEnd()) {
+                    int entryTag = codedInputStream.readTag();
+                    if (!isLengthDelimitedField(entryTag, PB.PersistedEntryMap.PERSISTED_ENTRY_MAP_FIELD_NUMBER)) {
+                        codedInputStream.skipField(entryTag);
+                        continue;
+                    }
 
-        // Takes about 4 sec for 4000 items ;-( Java serialisation was 500 ms
-        log.info("PersistedEntryMap.fromProto size: " + proto.entrySet().size());
-        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = proto.entrySet().stream()
-                .collect(Collectors.<Map.Entry<String, PB.ProtectedStorageEntry>, P2PDataStorage.ByteArray, ProtectedStorageEntry>toMap(
-                        e -> new P2PDataStorage.ByteArray(e.getKey()),
-                        e -> ProtectedStorageEntry.fromProto(e.getValue(), networkProtoResolver)
-                ));
-        return new PersistedEntryMap(new HashMap<>(map));
+                    readMapEntry(codedInputStream, chunk);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        futures.add(submit(completionService, chunk, networkProtoResolver));
+                        chunk = new HashMap<>();
+                    }
+                }
+                codedInputStream.popLimit(oldLimit);
+            }
+            if (!chunk.isEmpty())
+                futures.add(submit(completionService, chunk, networkProtoResolver));
+
+            for (int i = 0; i < futures.size(); i++)
+                result.putAll(completionService.take().get());
+            return result;
+        } catch (ExecutionException e) {
+            throw new IOException("Decoding of PersistedEntryMap failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Decoding of PersistedEntryMap got interrupted", e);
+        } finally {
+            // In case of an error the remaining chunks are not needed anymore
+            futures.forEach(future -> future.cancel(false));
+        }
     }
 
     public void put(P2PDataStorage.ByteArray key, ProtectedStorageEntry value) {
         map.put(key, value);
     }
+
+    private static boolean isLengthDelimitedField(int tag, int fieldNumber) {
+        return WireFormat.getTagFieldNumber(tag) == fieldNumber &&
+                WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    }
+
+    // Protobuffer map entries are serialized as messages with the key as field 1 and the value as field 2
+    private static void readMapEntry(CodedInputStream codedInputStream, Map<String, PB.ProtectedStorageEntry> chunk)
+            throws IOException {
+        int oldLimit = codedInputStream.pushLimit(codedInputStream.readRawVarint32());
+        String key = "";
+        PB.ProtectedStorageEntry value = PB.ProtectedStorageEntry.getDefaultInstance();
+        while (!codedInputStream.isAtEnd()) {
+            int tag = codedInputStream.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    key = codedInputStream.readStringRequireUtf8();
+                    break;
+                case 2:
+                    value = codedInputStream.readMessage(PB.ProtectedStorageEntry.parser(),
+                            ExtensionRegistryLite.getEmptyRegistry());
+                    break;
+                default:
+                    codedInputStream.skipField(tag);
+            }
+        }
+        codedInputStream.popLimit(oldLimit);
+        if (key.isEmpty())
+            throw new StreamCorruptedException("PersistedEntryMap entry without key");
+        chunk.put(key, value);
+    }
+
+    private static Future<Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> submit(
+            CompletionService<Map<P2PDataStorage.ByteArray, ProtectedStorageEntry>> completionService,
+            Map<String, PB.ProtectedStorageEntry> chunk,
+            NetworkProtoResolver networkProtoResolver) {
+        return completionService.submit(() -> {
+            Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = new HashMap<>();
+            chunk.forEach((key, value) ->
+                    map.put(new P2PDataStorage.ByteArray(key), ProtectedStorageEntry.fromProto(value, networkProtoResolver)));
+            return map;
+        });
+    }
 }
@@ -22,6 +22,7 @@ import io.bisq.generated.protobuffer.PB;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,6 +45,11 @@ public class SequenceNumberMap implements PersistableEnvelope {
         return new SequenceNumberMap(map.getMap());
     }
 
+    // Used for the records of the AppendOnlyLog
+    public static SequenceNumberMap fromEntry(P2PDataStorage.ByteArray key, P2PDataStorage.MapValue value) {
+        return new SequenceNumberMap(Collections.singletonMap(key, value));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // PROTO BUFFER
@@ -0,0 +1,122 @@
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.UserThread;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.Sig;
+import io.bisq.common.util.Tuple2;
+import io.bisq.common.util.Utilities;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import io.bisq.network.p2p.storage.payload.StoragePayload;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.PublicKey;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * Verifies the signatures of incoming storage entries on worker threads, so large GetDataResponses or bursts of
+ * AddDataMessages don't block the UserThread and use all cores.
+ * The results are handed over to the resultHandlers on the UserThread in the order the verifications have been
+ * requested, so the order of add and remove operations for the same data is kept.
+ */
+@Slf4j
+class SignatureVerifier {
+    private static final int NUM_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private final ScheduledThreadPoolExecutor executor = Utilities.getScheduledThreadPoolExecutor("SignatureVerifier",
+            NUM_THREADS, NUM_THREADS, 60);
+    private final PayloadHashCache payloadHashCache;
+    // Only accessed from the UserThread
+    private final Queue<Tuple2<CompletableFuture<Boolean>, Consumer<Boolean>>> pending = new ArrayDeque<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SignatureVerifier(PayloadHashCache payloadHashCache) {
+        this.payloadHashCache = payloadHashCache;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Verifies the signature of the hash of the payload and sequence number. The hash of the payload gets cached
+    // on the way, so it is not calculated again on the UserThread.
+    void verify(ProtectedStorageEntry protectedStorageEntry, Consumer<Boolean> resultHandler) {
+        // We read the mutable fields on the UserThread
+        final PublicKey ownerPubKey = protectedStorageEntry.getOwnerPubKey();
+        final StoragePayload storagePayload = protectedStorageEntry.getStoragePayload();
+        final int sequenceNumber = protectedStorageEntry.getSequenceNumber();
+        final byte[] signature = protectedStorageEntry.getSignature();
+        submit(() -> isValid(ownerPubKey, payloadHashCache.getHashOfDataAndSeqNr(storagePayload, sequenceNumber), signature),
+                resultHandler);
+    }
+
+    void verify(PublicKey publicKey, byte[] hash, byte[] signature, Consumer<Boolean> resultHandler) {
+        submit(() -> isValid(publicKey, hash, signature), resultHandler);
+    }
+
+    // Runs the handler on the UserThread after the results of all earlier requested verifications have been
+    // handed over.
+    void execute(Runnable handler) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        future.complete(true);
+        pending.add(new Tuple2<>(future, result -> handler.run()));
+        handOverCompletedResults();
+    }
+
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void submit(Callable<Boolean> verification, Consumer<Boolean> resultHandler) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        pending.add(new Tuple2<>(future, resultHandler));
+        executor.execute(() -> {
+            boolean isValid;
+            try {
+                isValid = verification.call();
+            } catch (Throwable t) {
+                log.error("Exception at signature verification. " + t.getMessage());
+                isValid = false;
+            }
+            future.complete(isValid);
+            UserThread.execute(this::handOverCompletedResults);
+        });
+    }
+
+    private void handOverCompletedResults() {
+        while (!pending.isEmpty() && pending.peek().first.isDone()) {
+            Tuple2<CompletableFuture<Boolean>, Consumer<Boolean>> tuple = pending.poll();
+            try {
+                tuple.second.accept(tuple.first.getNow(false));
+            } catch (Throwable t) {
+                log.error("Exception at handling result of signature verification", t);
+            }
+        }
+    }
+
+    private static boolean isValid(PublicKey publicKey, byte[] hash, byte[] signature) {
+        try {
+            boolean result = Sig.verify(publicKey, hash, signature);
+            if (!result)
+                log.warn("Signature verification failed. That should not happen.");
+            return result;
+        } catch (CryptoException e) {
+            log.error("Signature verification failed. " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.bisq.network.p2p.storage.messages;
+
+import io.bisq.common.app.Capabilities;
+import io.bisq.common.app.Version;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.CapabilityRequiringMessage;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Refreshes the TTL of many offers with one message. Makers with many open offers send one message per refresh
+ * cycle instead of one RefreshOfferMessage per offer and relay nodes verify and broadcast it as one unit.
+ * Nodes which don't support the BULK_REFRESH_OFFER_MESSAGE capability get the single RefreshOfferMessages.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Value
+public final class BulkRefreshOfferMessage extends BroadcastMessage implements CapabilityRequiringMessage {
+    // A RefreshOfferMessage has about 130 bytes, so a message stays well below the permitted message size
+    public static final int MAX_REFRESH_OFFER_MESSAGES = 500;
+
+    private final List<RefreshOfferMessage> refreshOfferMessages;
+
+    public BulkRefreshOfferMessage(List<RefreshOfferMessage> refreshOfferMessages) {
+        this(refreshOfferMessages, Version.getP2PMessageVersion());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private BulkRefreshOfferMessage(List<RefreshOfferMessage> refreshOfferMessages, int messageVersion) {
+        super(messageVersion);
+        this.refreshOfferMessages = Collections.unmodifiableList(new ArrayList<>(refreshOfferMessages));
+    }
+
+    @Override
+    public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        return getNetworkEnvelopeBuilder()
+                .setBulkRefreshOfferMessage(PB.BulkRefreshOfferMessage.newBuilder()
+                        .addAllRefreshOfferMessages(refreshOfferMessages.stream()
+                                .map(RefreshOfferMessage::toRefreshOfferMessageProto)
+                                .collect(Collectors.toList())))
+                .build();
+    }
+
+    public static BulkRefreshOfferMessage fromProto(PB.BulkRefreshOfferMessage proto, int messageVersion) {
+        return new BulkRefreshOfferMessage(proto.getRefreshOfferMessagesList().stream()
+                .map(e -> RefreshOfferMessage.fromProto(e, messageVersion))
+                .collect(Collectors.toList()),
+                messageVersion);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // CapabilityRequiringMessage
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public List<Integer> getRequiredCapabilities() {
+        return Collections.singletonList(Capabilities.Capability.BULK_REFRESH_OFFER_MESSAGE.ordinal());
+    }
+}
@@ -41,11 +41,17 @@ public final class RefreshOfferMessage extends BroadcastMessage {
     @Override
     public PB.NetworkEnvelope toProtoNetworkEnvelope() {
         return getNetworkEnvelopeBuilder()
-                .setRefreshOfferMessage(PB.RefreshOfferMessage.newBuilder()
-                        .setHashOfDataAndSeqNr(ByteString.copyFrom(hashOfDataAndSeqNr))
-                        .setSignature(ByteString.copyFrom(signature))
-                        .setHashOfPayload(ByteString.copyFrom(hashOfPayload))
-                        .setSequenceNumber(sequenceNumber))
+                .setRefreshOfferMessage(toRefreshOfferMessageProto())
+                .build();
+    }
+
+    // Used as well for the entries of the BulkRefreshOfferMessage
+    PB.RefreshOfferMessage toRefreshOfferMessageProto() {
+        return PB.RefreshOfferMessage.newBuilder()
+                .setHashOfDataAndSeqNr(ByteString.copyFrom(hashOfDataAndSeqNr))
+                .setSignature(ByteString.copyFrom(signature))
+                .setHashOfPayload(ByteString.copyFrom(hashOfPayload))
+                .setSequenceNumber(sequenceNumber)
                 .build();
     }
 
@@ -0,0 +1,42 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EncodedEnvelopeTest {
+
+    @Test
+    public void testSameBytesAsWriteDelimitedTo() throws IOException {
+        Ping ping = new Ping(1, 2);
+        PB.NetworkEnvelope proto = ping.toProtoNetworkEnvelope();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        proto.writeDelimitedTo(expected);
+
+        EncodedEnvelope encodedEnvelope = EncodedEnvelope.encode(ping);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encodedEnvelope.writeTo(outputStream);
+
+        assertArrayEquals(expected.toByteArray(), outputStream.toByteArray());
+        assertEquals(proto.getSerializedSize(), encodedEnvelope.getSize());
+    }
+
+    @Test
+    public void testWriteToMultipleStreams() throws IOException {
+        EncodedEnvelope encodedEnvelope = EncodedEnvelope.encode(new Ping(3, 4));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encodedEnvelope.writeTo(outputStream);
+        encodedEnvelope.writeTo(outputStream);
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        assertEquals(3, PB.NetworkEnvelope.parseDelimitedFrom(inputStream).getPing().getNonce());
+        assertEquals(3, PB.NetworkEnvelope.parseDelimitedFrom(inputStream).getPing().getNonce());
+    }
+}
@@ -0,0 +1,138 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.Payload;
+import io.bisq.common.proto.ProtobufferException;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameDecoderTest {
+    private static final int PERMITTED_SIZE = 100;
+    private static final int MAX_PERMITTED_SIZE = 1000;
+
+    private final List<PB.NetworkEnvelope> frames = new ArrayList<>();
+    private final List<Integer> oversizedFrames = new ArrayList<>();
+    private final FrameDecoder.FrameHandler frameHandler = new FrameDecoder.FrameHandler() {
+        @Override
+        public void onFrame(PB.NetworkEnvelope proto, int size) {
+            frames.add(proto);
+        }
+
+        @Override
+        public void onOversizedFrame(int size, int maxSize) {
+            oversizedFrames.add(size);
+        }
+    };
+
+    @Test
+    public void testReadFromSkipsOversizedFrame() throws IOException {
+        byte[] bytes = toBytes(getPing(1), getCloseConnectionMessage(PERMITTED_SIZE), getPing(2));
+        FrameDecoder frameDecoder = new FrameDecoder(Collections.emptySet(), PERMITTED_SIZE, MAX_PERMITTED_SIZE);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+
+        while (frameDecoder.readFrom(inputStream, frameHandler)) ;
+
+        assertEquals(2, frames.size());
+        assertEquals(1, frames.get(0).getPing().getNonce());
+        assertEquals(2, frames.get(1).getPing().getNonce());
+        assertEquals(1, oversizedFrames.size());
+        assertTrue(oversizedFrames.get(0) > PERMITTED_SIZE);
+    }
+
+    @Test
+    public void testDecodeChunks() throws IOException {
+        byte[] bytes = toBytes(getPing(1), getCloseConnectionMessage(PERMITTED_SIZE), getPing(2),
+                PB.NetworkEnvelope.getDefaultInstance());
+        FrameDecoder frameDecoder = new FrameDecoder(Collections.emptySet(), PERMITTED_SIZE, MAX_PERMITTED_SIZE);
+
+        // We feed the bytes in chunks of 3 bytes to get frames split at all positions
+        for (int i = 0; i < bytes.length; i += 3)
+            frameDecoder.decode(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)), frameHandler);
+
+        assertEquals(3, frames.size());
+        assertEquals(1, frames.get(0).getPing().getNonce());
+        assertEquals(2, frames.get(1).getPing().getNonce());
+        assertFalse(frames.get(2).hasPing());
+        assertEquals(1, oversizedFrames.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectFrameExceedingMaxPermittedSize() throws IOException {
+        byte[] bytes = toBytes(getCloseConnectionMessage(MAX_PERMITTED_SIZE));
+        new FrameDecoder(Collections.emptySet(), PERMITTED_SIZE, MAX_PERMITTED_SIZE).decode(ByteBuffer.wrap(bytes), frameHandler);
+    }
+
+    @Test
+    public void testExtendedSizeFieldNumbersFromResolver() {
+        NetworkProtoResolver resolver = new NetworkProtoResolver() {
+            @Override
+            public NetworkEnvelope fromProto(PB.NetworkEnvelope proto) {
+                switch (proto.getMessageCase()) {
+                    case PING:
+                        return new Ping(1, 0);
+                    case GET_DATA_RESPONSE:
+                        return new GetDataResponse(new HashSet<>(), 1, false);
+                    default:
+                        throw new ProtobufferException("Unknown message case");
+                }
+            }
+
+            @Override
+            public NetworkPayload fromProto(PB.StoragePayload proto) {
+                return null;
+            }
+
+            @Override
+            public NetworkPayload fromProto(PB.StorageEntryWrapper proto) {
+                return null;
+            }
+
+            @Override
+            public Payload fromProto(PB.PaymentAccountPayload proto) {
+                return null;
+            }
+        };
+
+        assertEquals(Collections.singleton(PB.NetworkEnvelope.GET_DATA_RESPONSE_FIELD_NUMBER),
+                FrameDecoder.getExtendedSizeFieldNumbers(resolver));
+    }
+
+    private static PB.NetworkEnvelope getPing(int nonce) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+
+    private static PB.NetworkEnvelope getCloseConnectionMessage(int reasonLength) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setCloseConnectionMessage(PB.CloseConnectionMessage.newBuilder()
+                        .setReason(new String(new char[reasonLength]).replace('\0', 'x')))
+                .build();
+    }
+
+    private static byte[] toBytes(PB.NetworkEnvelope... protos) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PB.NetworkEnvelope proto : protos)
+            proto.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
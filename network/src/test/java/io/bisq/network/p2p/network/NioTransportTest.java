@@ -0,0 +1,137 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.generated.protobuffer.PB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class NioTransportTest {
+    private static final int PERMITTED_SIZE = 1000;
+    private static final int MAX_PERMITTED_SIZE = 10000;
+    private static final long TIMEOUT_SEC = 5;
+
+    private final BlockingQueue<PB.NetworkEnvelope> frames = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Throwable> exceptions = new LinkedBlockingQueue<>();
+    private final NioTransport.FrameListener frameListener = new NioTransport.FrameListener() {
+        @Override
+        public void onFrame(PB.NetworkEnvelope proto, int size) {
+            frames.add(proto);
+        }
+
+        @Override
+        public void onOversizedFrame(int size, int maxSize) {
+        }
+
+        @Override
+        public void onException(Throwable throwable) {
+            exceptions.add(throwable);
+        }
+
+        @Override
+        public boolean isReadPaused() {
+            return false;
+        }
+    };
+
+    private NioTransport nioTransport;
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel clientChannel;
+    private SocketChannel serverChannel;
+
+    @Before
+    public void setUp() throws IOException {
+        nioTransport = new NioTransport("NioTransportTest", 1);
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        clientChannel = SocketChannel.open(serverSocketChannel.getLocalAddress());
+        clientChannel.socket().setTcpNoDelay(true);
+        serverChannel = serverSocketChannel.accept();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        nioTransport.shutDown();
+        clientChannel.close();
+        serverChannel.close();
+        serverSocketChannel.close();
+    }
+
+    @Test
+    public void testFramesSplitAcrossReads() throws Exception {
+        register(serverChannel, 60000);
+        byte[] bytes = toBytes(getPing(1), getPing(2), getPing(3));
+
+        // We send chunks of 3 bytes with a pause, so the frames arrive split over many reads
+        for (int i = 0; i < bytes.length; i += 3) {
+            clientChannel.write(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)));
+            Thread.sleep(2);
+        }
+
+        for (int nonce = 1; nonce <= 3; nonce++) {
+            PB.NetworkEnvelope frame = frames.poll(TIMEOUT_SEC, TimeUnit.SECONDS);
+            assertNotNull(frame);
+            assertEquals(nonce, frame.getPing().getNonce());
+        }
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        register(serverChannel, 100);
+
+        Throwable throwable = exceptions.poll(TIMEOUT_SEC, TimeUnit.SECONDS);
+        assertTrue(throwable instanceof SocketTimeoutException);
+    }
+
+    @Test
+    public void testWriteBeforeRegistrationIsFlushed() throws Exception {
+        // We write right after register returned, usually before the selector loop has registered the channel
+        OutputStream outputStream = register(clientChannel, 60000).getOutputStream();
+        getPing(1).writeDelimitedTo(outputStream);
+        outputStream.flush();
+
+        serverChannel.socket().setSoTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SEC));
+        InputStream inputStream = serverChannel.socket().getInputStream();
+        PB.NetworkEnvelope received = PB.NetworkEnvelope.parseDelimitedFrom(inputStream);
+        assertNotNull(received);
+        assertEquals(1, received.getPing().getNonce());
+    }
+
+    private NioTransport.ChannelHandle register(SocketChannel socketChannel, long idleTimeoutMs) throws IOException {
+        FrameDecoder frameDecoder = new FrameDecoder(Collections.emptySet(), PERMITTED_SIZE, MAX_PERMITTED_SIZE);
+        return nioTransport.register(socketChannel, frameListener, frameDecoder, idleTimeoutMs, 60000);
+    }
+
+    private static PB.NetworkEnvelope getPing(int nonce) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+
+    private static byte[] toBytes(PB.NetworkEnvelope... protos) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PB.NetworkEnvelope proto : protos)
+            proto.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
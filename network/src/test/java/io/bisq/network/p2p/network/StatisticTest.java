@@ -0,0 +1,39 @@
+package io.bisq.network.p2p.network;
+
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StatisticTest {
+
+    @Test
+    public void testConcurrentUpdates() {
+        Statistic statistic = new Statistic();
+        long totalSentBytes = Statistic.getTotalSentBytes();
+
+        IntStream.range(0, 10000).parallel().forEach(i -> {
+            statistic.addSentBytes(10);
+            statistic.addSentMessage(PB.NetworkEnvelope.MessageCase.PING);
+        });
+
+        assertEquals(100000, statistic.getSentBytes());
+        assertEquals(totalSentBytes + 100000, Statistic.getTotalSentBytes());
+        assertEquals(Long.valueOf(10000), statistic.getSentMessages().get(PB.NetworkEnvelope.MessageCase.PING));
+        assertFalse(statistic.getSentMessages().containsKey(PB.NetworkEnvelope.MessageCase.PONG));
+    }
+
+    @Test
+    public void testPercentile() {
+        assertEquals(0, TrafficMetrics.getPercentile(Collections.emptyList(), 50));
+        assertEquals(7, TrafficMetrics.getPercentile(Collections.singletonList(7), 90));
+        assertEquals(5, TrafficMetrics.getPercentile(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 50));
+        assertEquals(9, TrafficMetrics.getPercentile(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 90));
+        assertEquals(10, TrafficMetrics.getPercentile(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), 100));
+    }
+}
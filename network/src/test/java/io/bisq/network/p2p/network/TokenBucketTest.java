@@ -0,0 +1,34 @@
+package io.bisq.network.p2p.network;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstAndRefill() {
+        AtomicLong now = new AtomicLong(0);
+        TokenBucket tokenBucket = new TokenBucket(3, 10, now::get);
+
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+        assertEquals(100, tokenBucket.getMillisUntilNextToken());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, tokenBucket.getMillisUntilNextToken());
+        assertTrue(tokenBucket.tryConsume());
+        assertFalse(tokenBucket.tryConsume());
+
+        // refill never exceeds the capacity
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(3, tokenBucket.available());
+    }
+}
@@ -0,0 +1,54 @@
+package io.bisq.network.p2p.peers.getdata;
+
+import io.bisq.common.crypto.Hash;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testContainsAllKeys() {
+        List<byte[]> keys = getKeys(0, 1000);
+        BloomFilter bloomFilter = BloomFilter.fromKeys(keys);
+
+        keys.forEach(key -> assertTrue(bloomFilter.mightContain(key)));
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter bloomFilter = BloomFilter.fromKeys(getKeys(0, 1000), 0.01, 1);
+
+        long numFalsePositives = getKeys(1000, 10000).stream()
+                .filter(bloomFilter::mightContain)
+                .count();
+        // Expected are about 100
+        assertTrue("numFalsePositives=" + numFalsePositives, numFalsePositives < 200);
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        BloomFilter bloomFilter = BloomFilter.fromKeys(getKeys(0, 100));
+
+        assertEquals(bloomFilter, BloomFilter.fromProto(bloomFilter.toProtoMessage()));
+    }
+
+    @Test
+    public void testEmptyKeys() {
+        BloomFilter bloomFilter = BloomFilter.fromKeys(new ArrayList<>());
+
+        assertFalse(bloomFilter.mightContain(getKeys(0, 1).get(0)));
+    }
+
+    private static List<byte[]> getKeys(int from, int to) {
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = from; i < to; i++)
+            keys.add(Hash.getHash(String.valueOf(i).getBytes()));
+        return keys;
+    }
+}
@@ -0,0 +1,47 @@
+package io.bisq.network.p2p.storage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiryQueueTest {
+    private final P2PDataStorage.ByteArray hash1 = new P2PDataStorage.ByteArray(new byte[]{1});
+    private final P2PDataStorage.ByteArray hash2 = new P2PDataStorage.ByteArray(new byte[]{2});
+
+    @Test
+    public void testPollDueInOrder() {
+        ExpiryQueue expiryQueue = new ExpiryQueue();
+        expiryQueue.schedule(hash2, 20);
+        expiryQueue.schedule(hash1, 10);
+
+        assertTrue(expiryQueue.pollDue(9).isEmpty());
+        assertEquals(Arrays.asList(hash1, hash2), expiryQueue.pollDue(20));
+        assertEquals(0, expiryQueue.size());
+    }
+
+    @Test
+    public void testEarlierScheduleWins() {
+        ExpiryQueue expiryQueue = new ExpiryQueue();
+        expiryQueue.schedule(hash1, 20);
+        expiryQueue.schedule(hash1, 30);
+        expiryQueue.schedule(hash1, 10);
+
+        assertEquals(Collections.singletonList(hash1), expiryQueue.pollDue(10));
+        // The outdated items are ignored
+        assertTrue(expiryQueue.pollDue(30).isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        ExpiryQueue expiryQueue = new ExpiryQueue();
+        expiryQueue.schedule(hash1, 10);
+        expiryQueue.schedule(hash2, 10);
+        expiryQueue.remove(hash1);
+
+        assertEquals(Collections.singletonList(hash2), expiryQueue.pollDue(10));
+    }
+}
@@ -0,0 +1,35 @@
+package io.bisq.network.p2p.storage.messages;
+
+import io.bisq.common.app.Capabilities;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkRefreshOfferMessageTest {
+
+    @Test
+    public void testProtoRoundTrip() {
+        BulkRefreshOfferMessage message = new BulkRefreshOfferMessage(Arrays.asList(
+                new RefreshOfferMessage(new byte[]{1, 2}, new byte[]{3, 4}, new byte[]{5, 6}, 7),
+                new RefreshOfferMessage(new byte[]{8}, new byte[]{9}, new byte[]{10}, 11)));
+
+        PB.NetworkEnvelope proto = message.toProtoNetworkEnvelope();
+        BulkRefreshOfferMessage result = BulkRefreshOfferMessage.fromProto(proto.getBulkRefreshOfferMessage(),
+                proto.getMessageVersion());
+
+        assertEquals(message, result);
+        assertEquals(11, result.getRefreshOfferMessages().get(1).getSequenceNumber());
+    }
+
+    @Test
+    public void testRequiresCapability() {
+        BulkRefreshOfferMessage message = new BulkRefreshOfferMessage(Arrays.asList(
+                new RefreshOfferMessage(new byte[]{1}, new byte[]{2}, new byte[]{3}, 4)));
+
+        assertTrue(message.getRequiredCapabilities().contains(Capabilities.Capability.BULK_REFRESH_OFFER_MESSAGE.ordinal()));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.provider;
+
+import lombok.Getter;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable json response with its gzipped bytes, so the json is serialized and compressed once per change instead
+ * of at each request. The version is used as ETag, clients which send it in If-None-Match get a 304 response.
+ */
+public final class JsonSnapshot {
+    @Getter
+    private final long version;
+    @Getter
+    private final String json;
+    private final byte[] gzippedJson;
+
+    public JsonSnapshot(long version, String json) {
+        this.version = version;
+        this.json = json;
+        this.gzippedJson = gzip(json);
+    }
+
+    public String getETag() {
+        return "\"" + version + "\"";
+    }
+
+    public Object respond(Request request, Response response) throws IOException {
+        response.type("application/json");
+        response.header("ETag", getETag());
+        response.header("Vary", "Accept-Encoding");
+
+        if (getETag().equals(request.headers("If-None-Match"))) {
+            response.status(304);
+            return "";
+        }
+
+        String acceptEncoding = request.headers("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // We write the bytes directly. Spark does not serialize the returned body of a committed response, so
+            // the bytes don't get compressed again.
+            HttpServletResponse rawResponse = response.raw();
+            rawResponse.setHeader("Content-Encoding", "gzip");
+            rawResponse.setContentLength(gzippedJson.length);
+            OutputStream outputStream = rawResponse.getOutputStream();
+            outputStream.write(gzippedJson);
+            outputStream.flush();
+            return "";
+        }
+        return json;
+    }
+
+    private static byte[] gzip(String json) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+            throw new RuntimeException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
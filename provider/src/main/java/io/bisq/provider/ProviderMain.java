@@ -33,6 +33,7 @@ import java.security.NoSuchProviderException;
 import java.security.spec.InvalidKeySpecException;
 
 import static spark.Spark.get;
+import static spark.Spark.halt;
 import static spark.Spark.port;
 
 public class ProviderMain {
@@ -52,17 +53,39 @@ public class ProviderMain {
     }
 
     private static void handleGetAllMarketPrices(String[] args) throws IOException, NoSuchAlgorithmException, InvalidKeyException {
-        if (args.length == 2) {
-            String bitcoinAveragePrivKey = args[0];
-            String bitcoinAveragePubKey = args[1];
-
-            PriceRequestService priceRequestService = new PriceRequestService(bitcoinAveragePrivKey, bitcoinAveragePubKey);
+        if (args.length == 2 || (args.length == 1 && args[0].equals("--stubPriceProviders"))) {
+            PriceRequestService priceRequestService;
+            if (args.length == 2) {
+                String bitcoinAveragePrivKey = args[0];
+                String bitcoinAveragePubKey = args[1];
+                priceRequestService = new PriceRequestService(bitcoinAveragePrivKey, bitcoinAveragePubKey);
+            } else {
+                // For testing without network access. Prices are random, so don't use it for real clients.
+                log.warn("We use stub price providers");
+                priceRequestService = PriceRequestService.withStubSources(500, 0.1);
+            }
             get("/getAllMarketPrices", (req, res) -> {
                 log.info("Incoming getAllMarketPrices request from: " + req.userAgent());
-                return priceRequestService.getJson();
+                return priceRequestService.getSnapshot().respond(req, res);
+            });
+            get("/getMarketPricesSince/:version", (req, res) -> {
+                log.info("Incoming getMarketPricesSince request from: " + req.userAgent());
+                long version;
+                try {
+                    version = Long.parseLong(req.params(":version"));
+                } catch (NumberFormatException e) {
+                    halt(400, "Invalid version");
+                    return null;
+                }
+                return priceRequestService.getSnapshotSince(version).respond(req, res);
+            });
+            get("/getMarketPrice/:currencyCode", (req, res) -> {
+                log.info("Incoming getMarketPrice request from: " + req.userAgent());
+                return priceRequestService.getSnapshot(req.params(":currencyCode").toUpperCase()).respond(req, res);
             });
         } else {
-            throw new IllegalArgumentException("You need to provide the BitcoinAverage API keys. Private key as first argument, public key as second argument.");
+            throw new IllegalArgumentException("You need to provide the BitcoinAverage API keys. Private key as first argument, public key as second argument. " +
+                    "For testing without network access use --stubPriceProviders as only argument.");
         }
     }
 
@@ -70,7 +93,13 @@ public class ProviderMain {
         FeeRequestService feeRequestService = new FeeRequestService();
         get("/getFees", (req, res) -> {
             log.info("Incoming getFees request from: " + req.userAgent());
-            return feeRequestService.getJson();
+            JsonSnapshot snapshot = feeRequestService.getSnapshot();
+            if (snapshot == null) {
+                // We don't have a bitcoin fee yet, clients retry at the next request
+                res.header("Retry-After", "60");
+                halt(503, "Fees not available yet");
+            }
+            return snapshot.respond(req, res);
         });
     }
 }
@@ -19,10 +19,12 @@ package io.bisq.provider.fee;
 
 import io.bisq.common.util.Utilities;
 import io.bisq.core.provider.fee.FeeService;
+import io.bisq.provider.JsonSnapshot;
 import io.bisq.provider.fee.providers.BtcFeesProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.HashMap;
@@ -45,7 +47,9 @@ public class FeeRequestService {
     private final BtcFeesProvider btcFeesProvider;
     private final Map<String, Long> dataMap = new ConcurrentHashMap<>();
     private long bitcoinFeesTs;
-    private String json;
+    // Null until the first bitcoin fee request succeeded, clients expect the btcTxFee in the dataMap
+    @Nullable
+    private volatile JsonSnapshot snapshot;
 
     public FeeRequestService() throws IOException {
         btcFeesProvider = new BtcFeesProvider();
@@ -56,7 +60,6 @@ public class FeeRequestService {
         dataMap.put("dogeTxFee", FeeService.DOGE_DEFAULT_TX_FEE);
         dataMap.put("dashTxFee", FeeService.DASH_DEFAULT_TX_FEE);
 
-        writeToJson();
         startRequests();
     }
 
@@ -74,7 +77,12 @@ public class FeeRequestService {
         }, INTERVAL_BTC_FEES_MS, INTERVAL_BTC_FEES_MS);
 
 
-        requestBitcoinFees();
+        try {
+            requestBitcoinFees();
+        } catch (IOException e) {
+            // We retry with the timer, the provider should not fail to start if the fee provider is not reachable
+            log.warn("Initial request of bitcoin fees failed. " + e.toString());
+        }
     }
 
     private void requestBitcoinFees() throws IOException {
@@ -96,10 +104,14 @@ public class FeeRequestService {
         Map<String, Object> map = new HashMap<>();
         map.put("bitcoinFeesTs", bitcoinFeesTs);
         map.put("dataMap", dataMap);
-        json = Utilities.objectToJson(map);
+        JsonSnapshot current = snapshot;
+        long version = current != null ? Math.max(current.getVersion() + 1, System.currentTimeMillis()) :
+                System.currentTimeMillis();
+        snapshot = new JsonSnapshot(version, Utilities.objectToJson(map));
     }
 
-    public String getJson() {
-        return json;
+    @Nullable
+    public JsonSnapshot getSnapshot() {
+        return snapshot;
     }
 }
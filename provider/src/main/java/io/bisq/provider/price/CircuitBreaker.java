@@ -0,0 +1,62 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.provider.price;
+
+/**
+ * Stops requesting an upstream provider after a number of failures in a row, so a provider which is down does not
+ * tie up our request threads with timeouts. After the open time one request is let through. If it fails the open
+ * time is doubled up to the max. open time, if it succeeds the circuit is closed again.
+ * Only accessed from the scheduler thread of the PriceRequestService.
+ */
+class CircuitBreaker {
+    private final int maxFailures;
+    private final long minOpenTimeMs;
+    private final long maxOpenTimeMs;
+
+    private int numFailures;
+    private long openTimeMs;
+    private long openUntil;
+
+    CircuitBreaker(int maxFailures, long minOpenTimeMs, long maxOpenTimeMs) {
+        this.maxFailures = maxFailures;
+        this.minOpenTimeMs = minOpenTimeMs;
+        this.maxOpenTimeMs = maxOpenTimeMs;
+    }
+
+    boolean allowRequest() {
+        return System.currentTimeMillis() >= openUntil;
+    }
+
+    boolean isOpen() {
+        return numFailures >= maxFailures;
+    }
+
+    void onSuccess() {
+        numFailures = 0;
+        openTimeMs = 0;
+        openUntil = 0;
+    }
+
+    void onFailure() {
+        numFailures++;
+        if (isOpen()) {
+            openTimeMs = openTimeMs == 0 ? minOpenTimeMs : Math.min(maxOpenTimeMs, openTimeMs * 2);
+            openUntil = System.currentTimeMillis() + openTimeMs;
+        }
+    }
+}
@@ -17,24 +17,43 @@
 
 package io.bisq.provider.price;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.bisq.common.locale.CurrencyUtil;
+import io.bisq.common.locale.TradeCurrency;
 import io.bisq.common.util.Utilities;
+import io.bisq.provider.JsonSnapshot;
 import io.bisq.provider.price.providers.BtcAverageProvider;
 import io.bisq.provider.price.providers.CoinmarketcapProvider;
 import io.bisq.provider.price.providers.PoloniexProvider;
+import io.bisq.provider.price.providers.StubPriceProvider;
+import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Requests the prices from the upstream providers and publishes the merged prices as json.
+ * <p>
+ * The requests run on a thread pool with a timeout per provider. A provider which fails repeatedly is skipped for
+ * a while (see CircuitBreaker), so it does not affect the others. The next request of a provider is scheduled after
+ * the previous one has completed, so requests to a slow provider don't pile up.
+ * <p>
+ * The results are merged on a single scheduler thread. The published prices are an immutable snapshot which gets
+ * replaced, so the requests of the clients are served without locking. The json is rebuilt after each successful
+ * request as the timestamp of the provider changes, the version of a currency for the delta requests only changes
+ * if its price has changed or its timestamp needs to be refreshed.
+ */
 public class PriceRequestService {
     private static final Logger log = LoggerFactory.getLogger(PriceRequestService.class);
 
@@ -42,184 +61,230 @@ public class PriceRequestService {
     private static final long INTERVAL_BTC_AV_GLOBAL_MS = 150_000;    // 2.5 min 
     private static final long INTERVAL_POLONIEX_MS = 60_000;          // 1 min
     private static final long INTERVAL_COIN_MARKET_CAP_MS = 300_000;  // 5 min
+    private static final long REQUEST_TIMEOUT_MS = 20_000;
+    private static final long INITIAL_REQUESTS_TIMEOUT_SEC = 30;
     private static final long MARKET_PRICE_TTL_SEC = 1800;            // 30 min
+    // Clients treat prices older than 30 min as invalid, so we publish unchanged prices with a new timestamp if
+    // the published one is older than that.
+    private static final long TIMESTAMP_REFRESH_SEC = 600;            // 10 min
+    private static final int NUM_REQUEST_THREADS = 8;
+
+    // Immutable state of the published prices
+    private static class PublishedPrices {
+        final long version;
+        final Map<String, PriceData> prices;
+        // Version at which the price of a currency has been changed the last time, used for the delta requests
+        final Map<String, Long> versionByCurrencyCode;
+        final JsonSnapshot snapshot;
+
+        PublishedPrices(long version, Map<String, PriceData> prices, Map<String, Long> versionByCurrencyCode,
+                        JsonSnapshot snapshot) {
+            this.version = version;
+            this.prices = prices;
+            this.versionByCurrencyCode = versionByCurrencyCode;
+            this.snapshot = snapshot;
+        }
+    }
 
-    private final Timer timerBtcAverageLocal = new Timer();
-    private final Timer timerBtcAverageGlobal = new Timer();
-    private final Timer timerPoloniex = new Timer();
-    private final Timer timerCoinmarketcap = new Timer();
+    // Later sources have precedence. We don't replace prices of the local BTCAverage request with the global ones
+    // and Coinmarketcap prices with the Poloniex ones.
+    private final List<PriceSource> sources;
+    private final ScheduledThreadPoolExecutor scheduler = Utilities.getScheduledThreadPoolExecutor("PriceRequestService",
+            1, 1, 60);
+    private final ListeningExecutorService requestExecutor = MoreExecutors.listeningDecorator(
+            Utilities.getScheduledThreadPoolExecutor("PriceRequests", NUM_REQUEST_THREADS, NUM_REQUEST_THREADS, 60));
+    private final CountDownLatch initialRequests;
+    private final Map<String, Long> tsMap = new ConcurrentHashMap<>();
 
-    private final BtcAverageProvider btcAverageProvider;
-    private final PoloniexProvider poloniexProvider;
-    private final CoinmarketcapProvider coinmarketcapProvider;
+    private volatile PublishedPrices publishedPrices;
 
-    private final Map<String, PriceData> allPricesMap = new ConcurrentHashMap<>();
-    private Map<String, PriceData> btcAverageLocalMap;
-    private Map<String, PriceData> poloniexMap;
 
-    private long btcAverageTs;
-    private long poloniexTs;
-    private long coinmarketcapTs;
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private String json;
+    public PriceRequestService(String bitcoinAveragePrivKey, String bitcoinAveragePubKey) {
+        this(getSources(new BtcAverageProvider(bitcoinAveragePrivKey, bitcoinAveragePubKey),
+                new PoloniexProvider(),
+                new CoinmarketcapProvider()));
+    }
 
-    public PriceRequestService(String bitcoinAveragePrivKey, String bitcoinAveragePubKey) throws IOException, NoSuchAlgorithmException, InvalidKeyException {
-        btcAverageProvider = new BtcAverageProvider(bitcoinAveragePrivKey, bitcoinAveragePubKey);
-        poloniexProvider = new PoloniexProvider();
-        coinmarketcapProvider = new CoinmarketcapProvider();
+    // Uses StubPriceProviders instead of the upstream providers, so the provider can be run without network access.
+    public static PriceRequestService withStubSources(long latencyMs, double failureRate) {
+        List<String> fiatCurrencyCodes = CurrencyUtil.getAllSortedFiatCurrencies().stream()
+                .map(TradeCurrency::getCode)
+                .collect(Collectors.toList());
+        List<String> cryptoCurrencyCodes = CurrencyUtil.getAllSortedCryptoCurrencies().stream()
+                .map(TradeCurrency::getCode)
+                .collect(Collectors.toList());
+        StubPriceProvider fiatProvider = new StubPriceProvider(fiatCurrencyCodes, 4000, latencyMs, failureRate);
+        StubPriceProvider cryptoProvider = new StubPriceProvider(cryptoCurrencyCodes, 0.01, latencyMs, failureRate);
+        return new PriceRequestService(Arrays.asList(
+                new PriceSource("StubFiat", "btcAverageTs", fiatProvider::request, INTERVAL_BTC_AV_LOCAL_MS, REQUEST_TIMEOUT_MS),
+                new PriceSource("StubCrypto", "poloniexTs", cryptoProvider::request, INTERVAL_POLONIEX_MS, REQUEST_TIMEOUT_MS)));
+    }
 
-        startRequests();
+    private PriceRequestService(List<PriceSource> sources) {
+        this.sources = sources;
+        // Clients expect all timestamps in the json
+        tsMap.put("btcAverageTs", 0L);
+        tsMap.put("poloniexTs", 0L);
+        tsMap.put("coinmarketcapTs", 0L);
+        publishedPrices = new PublishedPrices(0, Collections.emptyMap(), Collections.emptyMap(),
+                new JsonSnapshot(0, toJson(0, Collections.emptyList())));
+
+        // We wait for the first responses, so we don't serve empty data at startup
+        initialRequests = new CountDownLatch(sources.size());
+        sources.forEach(source -> scheduler.execute(() -> request(source)));
+        try {
+            if (!initialRequests.await(INITIAL_REQUESTS_TIMEOUT_SEC, TimeUnit.SECONDS))
+                log.warn("Not all initial price requests completed within {} sec.", INITIAL_REQUESTS_TIMEOUT_SEC);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public String getJson() {
-        return json;
+    private static List<PriceSource> getSources(BtcAverageProvider btcAverageProvider,
+                                                PoloniexProvider poloniexProvider,
+                                                CoinmarketcapProvider coinmarketcapProvider) {
+        return Arrays.asList(
+                new PriceSource("BtcAverageGlobal", "btcAverageTs", btcAverageProvider::getGlobal,
+                        INTERVAL_BTC_AV_GLOBAL_MS, REQUEST_TIMEOUT_MS),
+                new PriceSource("BtcAverageLocal", "btcAverageTs", btcAverageProvider::getLocal,
+                        INTERVAL_BTC_AV_LOCAL_MS, REQUEST_TIMEOUT_MS),
+                new PriceSource("Coinmarketcap", "coinmarketcapTs", coinmarketcapProvider::request,
+                        INTERVAL_COIN_MARKET_CAP_MS, REQUEST_TIMEOUT_MS),
+                new PriceSource("Poloniex", "poloniexTs", poloniexProvider::request,
+                        INTERVAL_POLONIEX_MS, REQUEST_TIMEOUT_MS));
     }
 
-    private void startRequests() throws InvalidKeyException, NoSuchAlgorithmException, IOException {
-        timerBtcAverageLocal.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    requestBtcAverageLocalPrices();
-                } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-                    log.error(e.toString());
-                    e.printStackTrace();
-                } catch (IOException e) {
-                    log.warn(e.toString());
-                    e.printStackTrace();
-                }
-            }
-        }, INTERVAL_BTC_AV_LOCAL_MS, INTERVAL_BTC_AV_LOCAL_MS);
 
-        timerBtcAverageGlobal.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    requestBtcAverageGlobalPrices();
-                } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-                    log.error(e.toString());
-                    e.printStackTrace();
-                } catch (IOException e) {
-                    log.warn(e.toString());
-                    e.printStackTrace();
-                }
-            }
-        }, INTERVAL_BTC_AV_GLOBAL_MS, INTERVAL_BTC_AV_GLOBAL_MS);
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
 
-        timerPoloniex.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    requestPoloniexPrices();
-                } catch (IOException e) {
-                    log.warn(e.toString());
-                    e.printStackTrace();
-                }
-            }
-        }, INTERVAL_POLONIEX_MS, INTERVAL_POLONIEX_MS);
+    public JsonSnapshot getSnapshot() {
+        return publishedPrices.snapshot;
+    }
 
-        timerCoinmarketcap.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    requestCoinmarketcapPrices();
-                } catch (IOException e) {
-                    log.warn(e.toString());
-                    e.printStackTrace();
-                }
-            }
-        }, INTERVAL_COIN_MARKET_CAP_MS, INTERVAL_COIN_MARKET_CAP_MS);
+    // Returns the prices which have been changed after the given version. If the version is from an earlier run of
+    // the provider all prices are delivered as the versions are based on the time.
+    // The response only depends on the requested version, which is part of the url, and the published version, so
+    // the published version can be used as ETag.
+    public JsonSnapshot getSnapshotSince(long version) {
+        PublishedPrices publishedPrices = this.publishedPrices;
+        return new JsonSnapshot(publishedPrices.version, toJson(publishedPrices.version,
+                publishedPrices.prices.values().stream()
+                        .filter(priceData -> publishedPrices.versionByCurrencyCode.get(priceData.getCurrencyCode()) > version)
+                        .collect(Collectors.toList())));
+    }
 
-        requestBtcAverageLocalPrices();
-        requestBtcAverageGlobalPrices();
-        requestPoloniexPrices();
-        requestCoinmarketcapPrices();
+    public JsonSnapshot getSnapshot(String currencyCode) {
+        PublishedPrices publishedPrices = this.publishedPrices;
+        PriceData priceData = publishedPrices.prices.get(currencyCode);
+        return new JsonSnapshot(publishedPrices.version, toJson(publishedPrices.version, priceData != null ?
+                Collections.singletonList(priceData) :
+                Collections.emptyList()));
     }
 
 
-    private void requestCoinmarketcapPrices() throws IOException {
-        long ts = System.currentTimeMillis();
-        Map<String, PriceData> map = coinmarketcapProvider.request();
-        log.info("requestCoinmarketcapPrices took {} ms.", (System.currentTimeMillis() - ts));
-        removeOutdatedPrices(poloniexMap);
-        removeOutdatedPrices(allPricesMap);
-        // we don't replace prices which we got form the Poloniex request, just in case the Coinmarketcap data are 
-        // received earlier at startup we allow them but Poloniex will overwrite them.
-        map.entrySet().stream()
-                .filter(e -> poloniexMap == null || !poloniexMap.containsKey(e.getKey()))
-                .forEach(e -> allPricesMap.put(e.getKey(), e.getValue()));
-        coinmarketcapTs = Instant.now().getEpochSecond();
-
-        if (map.get("LTC") != null)
-            log.info("Coinmarketcap LTC (last): " + map.get("LTC").getPrice());
-
-        writeToJson();
-    }
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Called on the scheduler thread
+    private void request(PriceSource source) {
+        if (!source.circuitBreaker.allowRequest()) {
+            initialRequests.countDown();
+            schedule(source);
+            return;
+        }
 
-    private void requestPoloniexPrices() throws IOException {
         long ts = System.currentTimeMillis();
-        poloniexMap = poloniexProvider.request();
-        log.info("requestPoloniexPrices took {} ms.", (System.currentTimeMillis() - ts));
-        removeOutdatedPrices(allPricesMap);
-        allPricesMap.putAll(poloniexMap);
-        poloniexTs = Instant.now().getEpochSecond();
-
-        if (poloniexMap.get("LTC") != null)
-            log.info("Poloniex LTC (last): " + poloniexMap.get("LTC").getPrice());
+        ListenableFuture<Map<String, PriceData>> future = Futures.withTimeout(requestExecutor.submit(source.request),
+                source.timeoutMs, TimeUnit.MILLISECONDS, scheduler);
+        Futures.addCallback(future, new FutureCallback<Map<String, PriceData>>() {
+            @Override
+            public void onSuccess(Map<String, PriceData> result) {
+                log.info("Request of {} took {} ms.", source, System.currentTimeMillis() - ts);
+                source.circuitBreaker.onSuccess();
+                applyResult(source, result);
+                initialRequests.countDown();
+                schedule(source);
+            }
 
-        writeToJson();
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                source.circuitBreaker.onFailure();
+                log.warn("Request of {} failed after {} ms. circuitOpen={}. {}", source,
+                        System.currentTimeMillis() - ts, source.circuitBreaker.isOpen(), throwable.toString());
+                initialRequests.countDown();
+                schedule(source);
+            }
+        }, scheduler);
     }
 
-    private void requestBtcAverageLocalPrices() throws NoSuchAlgorithmException, InvalidKeyException, IOException {
-        long ts = System.currentTimeMillis();
-        btcAverageLocalMap = btcAverageProvider.getLocal();
-
-        if (btcAverageLocalMap.get("USD") != null)
-            log.info("BTCAverage local USD (last):" + btcAverageLocalMap.get("USD").getPrice());
-        log.info("requestBtcAverageLocalPrices took {} ms.", (System.currentTimeMillis() - ts));
+    private void schedule(PriceSource source) {
+        scheduler.schedule(() -> request(source), source.intervalMs, TimeUnit.MILLISECONDS);
+    }
 
-        removeOutdatedPrices(allPricesMap);
-        allPricesMap.putAll(btcAverageLocalMap);
-        btcAverageTs = Instant.now().getEpochSecond();
-        writeToJson();
+    // Called on the scheduler thread
+    private void applyResult(PriceSource source, Map<String, PriceData> result) {
+        long now = Instant.now().getEpochSecond();
+        // Prices which are missing in the result are kept until they are outdated
+        Map<String, PriceData> prices = new HashMap<>();
+        source.prices.values().stream()
+                .filter(priceData -> !isOutdated(priceData, now))
+                .forEach(priceData -> prices.put(priceData.getCurrencyCode(), priceData));
+        prices.putAll(result);
+        source.prices = Collections.unmodifiableMap(prices);
+        tsMap.put(source.tsKey, now);
+
+        publish(now);
     }
 
-    private void requestBtcAverageGlobalPrices() throws NoSuchAlgorithmException, InvalidKeyException, IOException {
+    // Called on the scheduler thread
+    private void publish(long now) {
+        Map<String, PriceData> allPrices = new HashMap<>();
+        sources.forEach(source -> source.prices.values().stream()
+                .filter(priceData -> !isOutdated(priceData, now))
+                .forEach(priceData -> allPrices.put(priceData.getCurrencyCode(), priceData)));
+
+        PublishedPrices current = publishedPrices;
+        // The version is strictly increasing, also over restarts of the provider
+        long version = Math.max(current.version + 1, System.currentTimeMillis());
+        Map<String, PriceData> prices = new HashMap<>(current.prices);
+        Map<String, Long> versionByCurrencyCode = new HashMap<>(current.versionByCurrencyCode);
+        prices.keySet().retainAll(allPrices.keySet());
+        versionByCurrencyCode.keySet().retainAll(allPrices.keySet());
+        for (PriceData priceData : allPrices.values()) {
+            String currencyCode = priceData.getCurrencyCode();
+            PriceData published = prices.get(currencyCode);
+            if (published == null ||
+                    published.getPrice() != priceData.getPrice() ||
+                    priceData.getTimestampSec() - published.getTimestampSec() >= TIMESTAMP_REFRESH_SEC) {
+                prices.put(currencyCode, priceData);
+                versionByCurrencyCode.put(currencyCode, version);
+            }
+        }
+
+        // We publish also if no price has changed, as the timestamp of the provider in the tsMap has been updated
         long ts = System.currentTimeMillis();
-        Map<String, PriceData> map = btcAverageProvider.getGlobal();
-
-        if (map.get("USD") != null)
-            log.info("BTCAverage global USD (last):" + map.get("USD").getPrice());
-        log.info("requestBtcAverageGlobalPrices took {} ms.", (System.currentTimeMillis() - ts));
-
-        removeOutdatedPrices(btcAverageLocalMap);
-        removeOutdatedPrices(allPricesMap);
-        // we don't replace prices which we got form the local request, just in case the global data are received 
-        // earlier at startup we allow them but the local request will overwrite them.
-        map.entrySet().stream()
-                .filter(e -> btcAverageLocalMap == null || !btcAverageLocalMap.containsKey(e.getKey()))
-                .forEach(e -> allPricesMap.put(e.getKey(), e.getValue()));
-        btcAverageTs = Instant.now().getEpochSecond();
-        writeToJson();
+        JsonSnapshot snapshot = new JsonSnapshot(version, toJson(version, prices.values()));
+        publishedPrices = new PublishedPrices(version, Collections.unmodifiableMap(prices),
+                Collections.unmodifiableMap(versionByCurrencyCode), snapshot);
+        log.info("Published {} prices. Building the json took {} ms.", prices.size(), System.currentTimeMillis() - ts);
     }
 
-    private void writeToJson() {
+    private String toJson(long version, Collection<PriceData> prices) {
         Map<String, Object> map = new HashMap<>();
-        map.put("btcAverageTs", btcAverageTs);
-        map.put("poloniexTs", poloniexTs);
-        map.put("coinmarketcapTs", coinmarketcapTs);
-        map.put("data", allPricesMap.values().toArray());
-        json = Utilities.objectToJson(map);
+        map.put("version", version);
+        map.putAll(tsMap);
+        map.put("data", prices.toArray());
+        return Utilities.objectToJson(map);
     }
 
-    private void removeOutdatedPrices(Map<String, PriceData> map) {
-        long now = Instant.now().getEpochSecond();
-        long limit = now - MARKET_PRICE_TTL_SEC;
-        Map<String, PriceData> filtered = map.entrySet().stream()
-                .filter(e -> e.getValue().getTimestampSec() > limit)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        map.clear();
-        map.putAll(filtered);
+    private static boolean isOutdated(PriceData priceData, long now) {
+        return priceData.getTimestampSec() <= now - MARKET_PRICE_TTL_SEC;
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.provider.price;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * An upstream provider of prices with its request interval and timeout and the last prices we got from it.
+ * Only accessed from the scheduler thread of the PriceRequestService.
+ */
+class PriceSource {
+    final String name;
+    // Key of the timestamp of the last successful request in the json
+    final String tsKey;
+    final Callable<Map<String, PriceData>> request;
+    final long intervalMs;
+    final long timeoutMs;
+    final CircuitBreaker circuitBreaker;
+
+    // Immutable, gets replaced at each successful request
+    Map<String, PriceData> prices = Collections.emptyMap();
+
+    PriceSource(String name, String tsKey, Callable<Map<String, PriceData>> request, long intervalMs, long timeoutMs) {
+        this.name = name;
+        this.tsKey = tsKey;
+        this.request = request;
+        this.intervalMs = intervalMs;
+        this.timeoutMs = timeoutMs;
+        this.circuitBreaker = new CircuitBreaker(3, 2 * intervalMs, 30 * intervalMs);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
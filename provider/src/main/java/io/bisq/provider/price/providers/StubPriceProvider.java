@@ -0,0 +1,46 @@
+package io.bisq.provider.price.providers;
+
+import io.bisq.provider.price.PriceData;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Local replacement for the upstream providers, used to run and load test the provider without network access.
+ * Delivers random walk prices after the given latency and fails with the given rate.
+ */
+public class StubPriceProvider {
+    private final Map<String, Double> prices = new HashMap<>();
+    private final long latencyMs;
+    private final double failureRate;
+    private final Random random = new Random();
+
+    public StubPriceProvider(Collection<String> currencyCodes, double initialPrice, long latencyMs, double failureRate) {
+        currencyCodes.forEach(currencyCode -> prices.put(currencyCode, initialPrice));
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+    }
+
+    public synchronized Map<String, PriceData> request() throws IOException {
+        try {
+            Thread.sleep(latencyMs / 2 + (long) (random.nextDouble() * latencyMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted");
+        }
+        if (random.nextDouble() < failureRate)
+            throw new IOException("Simulated failure of StubPriceProvider");
+
+        long ts = Instant.now().getEpochSecond();
+        Map<String, PriceData> marketPriceMap = new HashMap<>();
+        prices.replaceAll((currencyCode, price) -> random.nextInt(3) == 0 ?
+                price * (1 + (random.nextDouble() - 0.5) / 100) :
+                price);
+        prices.forEach((currencyCode, price) -> marketPriceMap.put(currencyCode, new PriceData(currencyCode, price, ts)));
+        return marketPriceMap;
+    }
+}
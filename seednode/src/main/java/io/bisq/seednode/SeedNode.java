@@ -21,7 +21,9 @@ import io.bisq.core.btc.wallet.BtcWalletService;
 import io.bisq.core.btc.wallet.WalletsSetup;
 import io.bisq.core.dao.DaoOptionKeys;
 import io.bisq.core.offer.OpenOfferManager;
+import io.bisq.core.trade.statistics.TradeStatisticsManager;
 import io.bisq.network.p2p.P2PService;
+import io.bisq.network.p2p.network.TrafficMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.bitcoinj.store.BlockStoreException;
@@ -33,6 +35,8 @@ import java.security.Security;
 
 @Slf4j
 public class SeedNode {
+    private static final long LOG_TRAFFIC_METRICS_INTERVAL_SEC = 10 * 60;
+
     private static BisqEnvironment bisqEnvironment;
 
     public static void setEnvironment(BisqEnvironment bisqEnvironment) {
@@ -42,6 +46,7 @@ public class SeedNode {
     private final Injector injector;
     private final SeedNodeModule seedNodeModule;
     private final AppSetup appSetup;
+    private TrafficMetrics trafficMetrics;
 
     public SeedNode() {
         String logPath = Paths.get(bisqEnvironment.getProperty(AppOptionKeys.APP_DATA_DIR_KEY), "bisq").toString();
@@ -87,6 +92,14 @@ public class SeedNode {
         Boolean fullDaoNode = injector.getInstance(Key.get(Boolean.class, Names.named(DaoOptionKeys.FULL_DAO_NODE)));
         appSetup = fullDaoNode ? injector.getInstance(AppSetupWithP2PAndDAO.class) : injector.getInstance(AppSetupWithP2P.class);
         appSetup.start();
+
+        UserThread.runPeriodically(this::logTrafficMetrics, LOG_TRAFFIC_METRICS_INTERVAL_SEC);
+    }
+
+    private void logTrafficMetrics() {
+        trafficMetrics = TrafficMetrics.from(injector.getInstance(P2PService.class).getNetworkNode().getAllConnections(),
+                trafficMetrics);
+        log.info("Traffic metrics: {}", trafficMetrics);
     }
 
     private void shutDown() {
@@ -107,6 +120,7 @@ public class SeedNode {
                         log.debug("Graceful shutdown completed");
                         resultHandler.handleResult();
                     });
+                    injector.getInstance(TradeStatisticsManager.class).shutDown();
                     injector.getInstance(WalletsSetup.class).shutDown();
                     injector.getInstance(BtcWalletService.class).shutDown();
                     injector.getInstance(BsqWalletService.class).shutDown();